@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.base.statistic;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistic bucket of {@link StatisticLeapArray}, records sum, count and max of values.
+ *
+ * @author sandynz
+ */
+public class StatisticBucket {
+
+    private final LongAdder sum = new LongAdder();
+    private final LongAdder count = new LongAdder();
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    public void add(long value) {
+        sum.add(value);
+        count.increment();
+        AtomicLong max = this.max;
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    public StatisticBucket reset() {
+        sum.reset();
+        count.reset();
+        max.set(Long.MIN_VALUE);
+        return this;
+    }
+
+    public long sum() {
+        return sum.sum();
+    }
+
+    public long count() {
+        return count.sum();
+    }
+
+    /**
+     * @return max value, or {@link Long#MIN_VALUE} if no value added
+     */
+    public long max() {
+        return max.get();
+    }
+
+    @Override
+    public String toString() {
+        return "StatisticBucket{" +
+                "sum=" + sum +
+                ", count=" + count +
+                ", max=" + max +
+                '}';
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.base.statistic;
+
+import org.sandynz.sdcommons.base.statistic.internal.TimeUtil;
+
+/**
+ * {@link LeapArray} implementation which records sum, count and max of values, e.g. task latency, pool utilization.
+ * <p>
+ * Aggregation methods iterate buckets in place, without creating bucket list.
+ *
+ * @param <Id> type of identifier
+ * @author sandynz
+ */
+public class StatisticLeapArray<Id> extends LeapArray<StatisticBucket, Id> {
+
+    /**
+     * @param sampleCount  bucket count of the sliding window
+     * @param intervalInMs the total time interval of this {@link LeapArray} in milliseconds
+     */
+    public StatisticLeapArray(int sampleCount, int intervalInMs) {
+        super(sampleCount, intervalInMs);
+    }
+
+    public StatisticLeapArray(LeapArrayCfg cfg) {
+        this(cfg.getSampleCount(), cfg.getIntervalInMs());
+    }
+
+    @Override
+    public StatisticBucket newEmptyBucket(long timeMillis) {
+        return new StatisticBucket();
+    }
+
+    @Override
+    protected WindowWrap<StatisticBucket> resetWindowTo(WindowWrap<StatisticBucket> windowWrap, long startTime) {
+        windowWrap.resetTo(startTime);
+        windowWrap.value().reset();
+        return windowWrap;
+    }
+
+    /**
+     * Add value to current bucket.
+     */
+    public void add(long value) {
+        WindowWrap<StatisticBucket> window = currentWindow();
+        if (window != null) {
+            window.value().add(value);
+        }
+    }
+
+    /**
+     * @return sum of values in valid buckets
+     */
+    public long sum() {
+        long now = refresh();
+        long result = 0;
+        for (int i = 0, size = array.length(); i < size; i++) {
+            WindowWrap<StatisticBucket> windowWrap = array.get(i);
+            if (windowWrap != null && !isWindowDeprecated(now, windowWrap)) {
+                result += windowWrap.value().sum();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return count of values in valid buckets
+     */
+    public long count() {
+        long now = refresh();
+        long result = 0;
+        for (int i = 0, size = array.length(); i < size; i++) {
+            WindowWrap<StatisticBucket> windowWrap = array.get(i);
+            if (windowWrap != null && !isWindowDeprecated(now, windowWrap)) {
+                result += windowWrap.value().count();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return max value in valid buckets, or {@link Long#MIN_VALUE} if there's no value
+     */
+    public long max() {
+        long now = refresh();
+        long result = Long.MIN_VALUE;
+        for (int i = 0, size = array.length(); i < size; i++) {
+            WindowWrap<StatisticBucket> windowWrap = array.get(i);
+            if (windowWrap != null && !isWindowDeprecated(now, windowWrap)) {
+                result = Math.max(result, windowWrap.value().max());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return average value in valid buckets, or 0 if there's no value
+     */
+    public double average() {
+        long now = refresh();
+        long sum = 0;
+        long count = 0;
+        for (int i = 0, size = array.length(); i < size; i++) {
+            WindowWrap<StatisticBucket> windowWrap = array.get(i);
+            if (windowWrap != null && !isWindowDeprecated(now, windowWrap)) {
+                StatisticBucket bucket = windowWrap.value();
+                sum += bucket.sum();
+                count += bucket.count();
+            }
+        }
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    /**
+     * Reset deprecated current bucket if necessary, so that it won't be aggregated.
+     */
+    private long refresh() {
+        long now = TimeUtil.currentTimeMillis();
+        currentWindow(now);
+        return now;
+    }
+
+}
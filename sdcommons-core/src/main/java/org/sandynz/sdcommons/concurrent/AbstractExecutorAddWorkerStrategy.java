@@ -35,21 +35,21 @@ public abstract class AbstractExecutorAddWorkerStrategy implements ExecutorAddWo
     protected abstract boolean addWorkerStep1(Runnable command, ExecutorExtContext ctx);
 
     @Override
-    public void addWorker(Runnable command, ExecutorExtContext ctx) {
+    public boolean tryAddWorker(Runnable command, ExecutorExtContext ctx) {
         boolean step1Ret = addWorkerStep1(command, ctx);
         if (step1Ret) {
-            return;
+            return true;
         }
 
         // Step 2 and 3. The same as ThreadPoolExecutor#execute
-        if (ctx.isRunning() && ctx.getWorkQueue().offer(command)) {
+        if (ctx.isRunning() && ctx.offerTask(command)) {
             if (!ctx.isRunning() && ctx.removeTask(command)) {
-                ctx.rejectTask(command);
+                return false;
             } else if (ctx.getWorkerCount() == 0) {
                 ctx.addWorker(null, false);
             }
-        } else if (!ctx.addWorker(command, false)) {
-            ctx.rejectTask(command);
+            return true;
         }
+        return ctx.addWorker(command, false);
     }
 }
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Rejected task handler implementation that blocks the submitter until space frees up in the work queue,
+ * or throws {@link LightweightRejectedExecutionException} if the timeout expires.
+ * <p>
+ * It gives producers smooth backpressure, without running tasks in the submitting thread like {@link ThreadPoolExecutor.CallerRunsPolicy},
+ * which is unacceptable in I/O threads.
+ * <p>
+ * At most {@code maxWaitingProducers} submitters wait for queue space at the same time, they're admitted by a fair semaphore,
+ * so producers are not starved. Other submitters wait for a permit within the same timeout.
+ * <p>
+ * It does nothing if the work queue is a {@link java.util.concurrent.SynchronousQueue} with no idle worker taking,
+ * except wait until the timeout expires.
+ *
+ * @author sandynz
+ */
+public class BlockingAdmissionPolicy implements RejectedExecutionHandler {
+
+    private final long timeoutNanos;
+    private final int maxWaitingProducers;
+    private final Semaphore permits;
+
+    private final LongAdder blockedCount = new LongAdder();
+    private final LongAdder blockedNanos = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+
+    /**
+     * @param timeout             max time to block a submitter
+     * @param unit                time unit of {@code timeout}
+     * @param maxWaitingProducers max count of submitters waiting for queue space at the same time
+     * @throws IllegalArgumentException if {@code timeout} or {@code maxWaitingProducers} less than 1
+     * @throws NullPointerException     if {@code unit} is null
+     */
+    public BlockingAdmissionPolicy(long timeout, TimeUnit unit, int maxWaitingProducers) {
+        if (timeout < 1) {
+            throw new IllegalArgumentException("timeout lt 1");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit null");
+        }
+        if (maxWaitingProducers < 1) {
+            throw new IllegalArgumentException("maxWaitingProducers lt 1");
+        }
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.maxWaitingProducers = maxWaitingProducers;
+        this.permits = new Semaphore(maxWaitingProducers, true);
+    }
+
+    /**
+     * Blocks until the task is queued, or the timeout expires. Admitted tasks are not counted as rejected by the executor.
+     *
+     * @return true if the task is queued, false if executor is shut down, or timeout expires, or interrupted while waiting
+     */
+    @Override
+    public boolean tryAdmit(Runnable r, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            return false;
+        }
+        ThreadPoolExecutor.ExecutorExtContext ctx = executor.getExecutorExtContext();
+        blockedCount.increment();
+        long start = System.nanoTime();
+        boolean queued = false;
+        try {
+            if (permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS)) {
+                try {
+                    long remaining = timeoutNanos - (System.nanoTime() - start);
+                    queued = remaining > 0L && ctx.offerTask(r, remaining, TimeUnit.NANOSECONDS);
+                } finally {
+                    permits.release();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            blockedNanos.add(System.nanoTime() - start);
+        }
+        if (!queued) {
+            timeoutCount.increment();
+            return false;
+        }
+        // recheck the same way as execute
+        if (!ctx.isRunning() && ctx.removeTask(r)) {
+            return false;
+        } else if (ctx.getWorkerCount() == 0) {
+            ctx.addWorker(null, false);
+        }
+        return true;
+    }
+
+    /**
+     * Invoked if the task is not admitted by {@link #tryAdmit(Runnable, ThreadPoolExecutor)}.
+     *
+     * @throws LightweightRejectedExecutionException always, for executor shut down, or interrupted while waiting, or timeout
+     */
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new LightweightRejectedExecutionException("Executor shutdown");
+        }
+        if (Thread.currentThread().isInterrupted()) {
+            throw new LightweightRejectedExecutionException("Interrupted while waiting for queue space");
+        }
+        throw new LightweightRejectedExecutionException("Timeout while waiting for queue space");
+    }
+
+    public long getTimeout(TimeUnit unit) {
+        return unit.convert(timeoutNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public int getMaxWaitingProducers() {
+        return maxWaitingProducers;
+    }
+
+    /**
+     * @return approximate count of submitters waiting for queue space
+     */
+    public int getWaitingProducerCount() {
+        return maxWaitingProducers - permits.availablePermits();
+    }
+
+    /**
+     * @return count of submitters blocked, including timed out ones
+     */
+    public long getBlockedCount() {
+        return blockedCount.sum();
+    }
+
+    /**
+     * @return total time of submitters blocked, in nanoseconds
+     */
+    public long getBlockedNanos() {
+        return blockedNanos.sum();
+    }
+
+    /**
+     * @return count of submitters rejected after timeout
+     */
+    public long getTimeoutCount() {
+        return timeoutCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "BlockingAdmissionPolicy{" +
+                "timeoutNanos=" + timeoutNanos +
+                ", maxWaitingProducers=" + maxWaitingProducers +
+                ", blockedCount=" + blockedCount +
+                ", timeoutCount=" + timeoutCount +
+                '}';
+    }
+
+}
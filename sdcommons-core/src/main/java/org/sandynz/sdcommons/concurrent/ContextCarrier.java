@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Task wrapper carrying contexts captured by {@link ContextPropagator}s.
+ * Contexts are restored and reset by executor hooks, not by {@link #run()}.
+ * <p>
+ * If only one propagator captures context, which is the common case, it's kept in fields without arrays.
+ * Previous contexts of the worker are kept in the carrier between restore and reset, a carrier is run once.
+ *
+ * @author sandynz
+ */
+@Slf4j
+final class ContextCarrier implements Runnable {
+
+    private final Runnable task;
+
+    // single captured context
+    private final ContextPropagator<Object> propagator;
+    private final Object context;
+    private Object previous;
+
+    // several captured contexts, indexed by propagator
+    private final ContextPropagator<?>[] propagators;
+    private final Object[] contexts;
+    private Object[] previousContexts;
+
+    @SuppressWarnings("unchecked")
+    private ContextCarrier(Runnable task, ContextPropagator<?> propagator, Object context) {
+        this.task = task;
+        this.propagator = (ContextPropagator<Object>) propagator;
+        this.context = context;
+        this.propagators = null;
+        this.contexts = null;
+    }
+
+    private ContextCarrier(Runnable task, ContextPropagator<?>[] propagators, Object[] contexts) {
+        this.task = task;
+        this.propagator = null;
+        this.context = null;
+        this.propagators = propagators;
+        this.contexts = contexts;
+    }
+
+    /**
+     * Captures contexts in the current thread.
+     *
+     * @return carrier, or the task itself if it's a carrier already or there's no context to propagate
+     */
+    static Runnable wrap(Runnable task, ContextPropagator<?>[] propagators) {
+        if (task instanceof ContextCarrier) {
+            return task;
+        }
+        int index = -1;
+        Object context = null;
+        for (int i = 0; i < propagators.length; i++) {
+            Object captured = propagators[i].capture();
+            if (captured == null) {
+                continue;
+            }
+            if (index >= 0) {
+                return new ContextCarrier(task, propagators, captureRest(propagators, index, context, i, captured));
+            }
+            index = i;
+            context = captured;
+        }
+        return index < 0 ? task : new ContextCarrier(task, propagators[index], context);
+    }
+
+    /**
+     * Captures contexts of propagators after {@code secondIndex}.
+     */
+    private static Object[] captureRest(ContextPropagator<?>[] propagators, int firstIndex, Object first, int secondIndex, Object second) {
+        Object[] contexts = new Object[propagators.length];
+        contexts[firstIndex] = first;
+        contexts[secondIndex] = second;
+        for (int i = secondIndex + 1; i < propagators.length; i++) {
+            contexts[i] = propagators[i].capture();
+        }
+        return contexts;
+    }
+
+    /**
+     * Captures contexts in the current thread once for all tasks, carriers share the captured contexts.
+     *
+     * @return carriers, or the tasks themselves if there's no context to propagate
+     */
+    static List<Runnable> wrapAll(List<Runnable> tasks, ContextPropagator<?>[] propagators) {
+        if (tasks.isEmpty()) {
+            return tasks;
+        }
+        Runnable first = wrap(tasks.get(0), propagators);
+        if (!(first instanceof ContextCarrier)) {
+            return tasks;
+        }
+        ContextCarrier template = (ContextCarrier) first;
+        List<Runnable> carriers = new ArrayList<>(tasks.size());
+        carriers.add(first);
+        for (int i = 1, size = tasks.size(); i < size; i++) {
+            Runnable task = tasks.get(i);
+            carriers.add(template.propagators == null
+                    ? new ContextCarrier(task, template.propagator, template.context)
+                    : new ContextCarrier(task, template.propagators, template.contexts));
+        }
+        return carriers;
+    }
+
+    static Runnable unwrap(Runnable r) {
+        return r instanceof ContextCarrier ? ((ContextCarrier) r).task : r;
+    }
+
+    Runnable getTask() {
+        return task;
+    }
+
+    @SuppressWarnings("unchecked")
+    void restore() {
+        if (propagators == null) {
+            try {
+                previous = propagator.restore(context);
+            } catch (Throwable throwable) {
+                log.error("restore ex caught, propagator={}", propagator, throwable);
+                // ignore
+            }
+            return;
+        }
+        Object[] previousContexts = new Object[propagators.length];
+        for (int i = 0; i < propagators.length; i++) {
+            Object context = contexts[i];
+            if (context != null) {
+                try {
+                    previousContexts[i] = ((ContextPropagator<Object>) propagators[i]).restore(context);
+                } catch (Throwable throwable) {
+                    log.error("restore ex caught, propagator={}", propagators[i], throwable);
+                    // ignore
+                }
+            }
+        }
+        this.previousContexts = previousContexts;
+    }
+
+    @SuppressWarnings("unchecked")
+    void reset() {
+        if (propagators == null) {
+            try {
+                propagator.reset(context, previous);
+            } catch (Throwable throwable) {
+                log.error("reset ex caught, propagator={}", propagator, throwable);
+                // ignore
+            }
+            previous = null;
+            return;
+        }
+        Object[] previousContexts = this.previousContexts;
+        for (int i = propagators.length - 1; i >= 0; i--) {
+            Object context = contexts[i];
+            if (context != null) {
+                try {
+                    ((ContextPropagator<Object>) propagators[i]).reset(context, previousContexts != null ? previousContexts[i] : null);
+                } catch (Throwable throwable) {
+                    log.error("reset ex caught, propagator={}", propagators[i], throwable);
+                    // ignore
+                }
+            }
+        }
+        this.previousContexts = null;
+    }
+
+    @Override
+    public void run() {
+        task.run();
+    }
+
+    @Override
+    public String toString() {
+        return task.toString();
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+/**
+ * Propagates thread context (e.g. MDC, tracing {@link ThreadLocal}s) from the submitting thread to the worker thread.
+ * <p>
+ * Captured context is shared between threads, it should be immutable.
+ *
+ * @param <C> type of captured context
+ * @author sandynz
+ * @see ExtendedThreadPoolExecutor#addContextPropagator(ContextPropagator)
+ */
+public interface ContextPropagator<C> {
+
+    /**
+     * Invoked in the submitting thread on submission.
+     *
+     * @return context snapshot, or null if there's nothing to propagate, then {@link #restore(Object)} and {@link #reset(Object, Object)} are skipped.
+     * If all propagators return null, the task is not wrapped.
+     */
+    C capture();
+
+    /**
+     * Invoked in the worker thread before the task runs.
+     *
+     * @param context context returned by {@link #capture()}, not null
+     * @return previous context of the worker thread, passed to {@link #reset(Object, Object)}, could be null
+     */
+    C restore(C context);
+
+    /**
+     * Invoked in the worker thread after the task runs, restores the previous context of the worker thread.
+     *
+     * @param context  context returned by {@link #capture()}, not null
+     * @param previous previous context returned by {@link #restore(Object)}, could be null
+     */
+    void reset(C context, C previous);
+
+}
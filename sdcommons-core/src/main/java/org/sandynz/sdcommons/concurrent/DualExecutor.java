@@ -19,7 +19,6 @@ package org.sandynz.sdcommons.concurrent;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.AbstractExecutorService;
-import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import lombok.extern.slf4j.Slf4j;
 
@@ -38,7 +37,7 @@ public class DualExecutor extends AbstractExecutorService {
     private final ThreadPoolExecutor spareExecutor;
 
     /**
-     * @param baseExecutor  base executor, {@link LightweightAbortPolicy} could be used
+     * @param baseExecutor  base executor, tasks are submitted by {@linkplain ThreadPoolExecutor#tryExecute(Runnable)}, so its rejected execution handler is not invoked
      * @param spareExecutor spare executor, {@linkplain Runnable} will be submitted to here when it is rejected by {@code baseExecutor}
      */
     public DualExecutor(ThreadPoolExecutor baseExecutor, ThreadPoolExecutor spareExecutor) {
@@ -76,22 +75,21 @@ public class DualExecutor extends AbstractExecutorService {
         return baseExecutor.isTerminated() && spareExecutor.isTerminated();
     }
 
+    /**
+     * Wait for both executors to terminate, they share one deadline.
+     */
     @Override
     public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
-        long t = unit.toNanos(timeout);
-        long t1 = t / 2;
-        boolean result = baseExecutor.awaitTermination(t1, TimeUnit.NANOSECONDS);
-        result &= spareExecutor.awaitTermination((t - t1), TimeUnit.NANOSECONDS);
-        return result;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return baseExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)
+                && spareExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
     }
 
     @Override
     public void execute(Runnable command) {
-        try {
-            baseExecutor.execute(command);
-        } catch (RejectedExecutionException e) {
+        if (!baseExecutor.tryExecute(command)) {
             if (log.isDebugEnabled()) {
-                log.debug("command rejected by baseExecutor, command={}", command, e);
+                log.debug("command rejected by baseExecutor, command={}", command);
             }
             spareExecutor.execute(command);
         }
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.List;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Result of {@link ExtendedThreadPoolExecutor#executeAll(java.util.Collection)}.
+ *
+ * @author sandynz
+ */
+@Getter
+@ToString
+public class ExecuteAllResult {
+
+    /**
+     * number of tasks accepted
+     */
+    private final int acceptedCount;
+    /**
+     * tasks rejected, in submission order, empty if all tasks are accepted
+     */
+    private final List<Runnable> rejectedTasks;
+
+    ExecuteAllResult(int acceptedCount, List<Runnable> rejectedTasks) {
+        this.acceptedCount = acceptedCount;
+        this.rejectedTasks = rejectedTasks;
+    }
+
+    /**
+     * @return true if all tasks are accepted
+     */
+    public boolean isAllAccepted() {
+        return rejectedTasks.isEmpty();
+    }
+
+}
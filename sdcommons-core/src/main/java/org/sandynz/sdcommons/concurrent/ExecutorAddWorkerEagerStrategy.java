@@ -31,11 +31,27 @@ public class ExecutorAddWorkerEagerStrategy extends AbstractExecutorAddWorkerStr
             return ctx.addWorker(command, true);
         }
         int workerCount = ctx.getWorkerCount();
-        if (workerCount < ctx.getMaximumPoolSize() && workerCount < ctx.getWorkQueue().size()) {
+        if (workerCount < ctx.getMaximumPoolSize() && workerCount < ctx.getApproximateQueueSize()) {
             // If work queue is SynchronousQueue which size is 0, steps are the same as ThreadPoolExecutor#execute
             return ctx.addWorker(command, false);
         }
         return false;
     }
 
+    /**
+     * Fills the gap to maximum pool size, since the batch would be queued otherwise.
+     */
+    @Override
+    public int getBatchWorkerCount(int taskCount, ExecutorExtContext ctx) {
+        return Math.max(0, Math.min(taskCount, ctx.getMaximumPoolSize() - ctx.getWorkerCount()));
+    }
+
+    /**
+     * Workers are bounded by maximum pool size, the same as {@link #getBatchWorkerCount(int, ExecutorExtContext)}.
+     */
+    @Override
+    public boolean isBatchWorkerCore(ExecutorExtContext ctx) {
+        return false;
+    }
+
 }
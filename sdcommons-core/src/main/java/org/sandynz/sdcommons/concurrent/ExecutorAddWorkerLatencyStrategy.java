@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sandynz.sdcommons.concurrent.ThreadPoolExecutor.ExecutorExtContext;
+
+/**
+ * Queue-wait-triggered strategy, prefer adding non-core worker when queued tasks wait too long, whatever how many tasks are queued.
+ * <p>
+ * Scaling up starts when {@linkplain ExecutorExtContext#getQueueWaitNanos() queue wait} reaches {@code highWatermark},
+ * and stops when queue wait drops below {@code lowWatermark}. While scaling up, at most one worker is added per {@code cooldown}.
+ * Batches of {@linkplain ExtendedThreadPoolExecutor#executeAll(java.util.Collection)} follow the same rules.
+ * <p>
+ * Queue wait is exact with a {@link ResizableBlockingQueue} work queue, e.g. configured by
+ * {@link ExecutorConstructionCfg#setWorkQueueCapacity(int)}, and a sampled lower bound with other queues, see
+ * {@link ExecutorExtContext#getQueueWaitNanos()}.
+ * <p>
+ * It's stateful, don't share it between executors.
+ *
+ * @author sandynz
+ */
+public class ExecutorAddWorkerLatencyStrategy extends AbstractExecutorAddWorkerStrategy {
+
+    private final long highWatermarkNanos;
+    private final long lowWatermarkNanos;
+    private final long cooldownNanos;
+
+    private volatile boolean scalingUp;
+    /**
+     * Time of {@linkplain ExecutorExtContext#nanoTime()} when last worker added, {@link #NEVER} if no worker added yet.
+     */
+    private final AtomicLong lastAddNanos = new AtomicLong(NEVER);
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    /**
+     * @param highWatermark queue wait to start scaling up
+     * @param lowWatermark  queue wait to stop scaling up
+     * @param cooldown      min interval between adding two workers, could be 0
+     * @param unit          time unit of above parameters
+     * @throws NullPointerException     if {@code unit} is null
+     * @throws IllegalArgumentException if {@code lowWatermark} less than 0, or greater than {@code highWatermark}, or {@code cooldown} less than 0
+     */
+    public ExecutorAddWorkerLatencyStrategy(long highWatermark, long lowWatermark, long cooldown, TimeUnit unit) {
+        if (unit == null) {
+            throw new NullPointerException("unit null");
+        }
+        if (lowWatermark < 0 || lowWatermark > highWatermark) {
+            throw new IllegalArgumentException("lowWatermark out of range");
+        }
+        if (cooldown < 0) {
+            throw new IllegalArgumentException("cooldown lt 0");
+        }
+        this.highWatermarkNanos = unit.toNanos(highWatermark);
+        this.lowWatermarkNanos = unit.toNanos(lowWatermark);
+        this.cooldownNanos = unit.toNanos(cooldown);
+    }
+
+    @Override
+    protected boolean addWorkerStep1(Runnable command, ExecutorExtContext ctx) {
+        int workerCount = ctx.getWorkerCount();
+        if (workerCount < ctx.getCorePoolSize()) {
+            return ctx.addWorker(command, true);
+        }
+        if (workerCount >= ctx.getMaximumPoolSize()) {
+            return false;
+        }
+        return tryScaleUp(ctx) && ctx.addWorker(command, false);
+    }
+
+    /**
+     * Fills the gap to core pool size, else adds at most one worker if scaling up, the same as a single submission.
+     */
+    @Override
+    public int getBatchWorkerCount(int taskCount, ExecutorExtContext ctx) {
+        int workerCount = ctx.getWorkerCount();
+        int corePoolSize = ctx.getCorePoolSize();
+        if (workerCount < corePoolSize) {
+            return Math.min(taskCount, corePoolSize - workerCount);
+        }
+        if (taskCount > 0 && workerCount < ctx.getMaximumPoolSize() && tryScaleUp(ctx)) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Core workers fill the gap to core pool size, the worker added while scaling up is non-core.
+     */
+    @Override
+    public boolean isBatchWorkerCore(ExecutorExtContext ctx) {
+        return ctx.getWorkerCount() < ctx.getCorePoolSize();
+    }
+
+    /**
+     * Updates scaling up state by queue wait, and claims the cooldown slot.
+     *
+     * @return true if a non-core worker should be added
+     */
+    private boolean tryScaleUp(ExecutorExtContext ctx) {
+        long waitNanos = ctx.getQueueWaitNanos();
+        if (scalingUp) {
+            if (waitNanos < lowWatermarkNanos) {
+                scalingUp = false;
+                return false;
+            }
+        } else {
+            if (waitNanos < highWatermarkNanos) {
+                return false;
+            }
+            scalingUp = true;
+        }
+        long now = ctx.nanoTime();
+        long last = lastAddNanos.get();
+        return (last == NEVER || now - last >= cooldownNanos) && lastAddNanos.compareAndSet(last, now);
+    }
+
+    public long getHighWatermark(TimeUnit unit) {
+        return unit.convert(highWatermarkNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getLowWatermark(TimeUnit unit) {
+        return unit.convert(lowWatermarkNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getCooldown(TimeUnit unit) {
+        return unit.convert(cooldownNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return whether queue wait reached high watermark and not dropped below low watermark yet
+     */
+    public boolean isScalingUp() {
+        return scalingUp;
+    }
+
+}
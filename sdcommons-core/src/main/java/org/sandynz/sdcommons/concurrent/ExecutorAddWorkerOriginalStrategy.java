@@ -11,7 +11,7 @@ import org.sandynz.sdcommons.concurrent.ThreadPoolExecutor.ExecutorExtContext;
 public class ExecutorAddWorkerOriginalStrategy implements ExecutorAddWorkerStrategy {
 
     @Override
-    public void addWorker(Runnable command, ExecutorExtContext ctx) {
+    public boolean tryAddWorker(Runnable command, ExecutorExtContext ctx) {
         /*
          * Proceed in 3 steps:
          *
@@ -34,17 +34,17 @@ public class ExecutorAddWorkerOriginalStrategy implements ExecutorAddWorkerStrat
          */
         if (ctx.getWorkerCount() < ctx.getCorePoolSize()) {
             if (ctx.addWorker(command, true)) {
-                return;
+                return true;
             }
         }
-        if (ctx.isRunning() && ctx.getWorkQueue().offer(command)) {
+        if (ctx.isRunning() && ctx.offerTask(command)) {
             if (!ctx.isRunning() && ctx.removeTask(command)) {
-                ctx.rejectTask(command);
+                return false;
             } else if (ctx.getWorkerCount() == 0) {
                 ctx.addWorker(null, false);
             }
-        } else if (!ctx.addWorker(command, false)) {
-            ctx.rejectTask(command);
+            return true;
         }
+        return ctx.addWorker(command, false);
     }
 }
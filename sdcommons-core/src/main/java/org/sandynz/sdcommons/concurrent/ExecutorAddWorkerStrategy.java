@@ -20,6 +20,9 @@ import org.sandynz.sdcommons.concurrent.ThreadPoolExecutor.ExecutorExtContext;
 
 /**
  * Add worker step abstraction of {@linkplain ThreadPoolExecutor#execute(Runnable)}.
+ * <p>
+ * Implementations must not invoke {@linkplain ExecutorExtContext#rejectTask(Runnable)} in {@link #tryAddWorker(Runnable, ExecutorExtContext)},
+ * since it's used by {@linkplain ThreadPoolExecutor#tryExecute(Runnable)}; {@link #addWorker(Runnable, ExecutorExtContext)} rejects on its behalf.
  *
  * @author sandynz
  */
@@ -27,10 +30,53 @@ public interface ExecutorAddWorkerStrategy {
 
     /**
      * Add worker step of {@linkplain ThreadPoolExecutor#execute(Runnable)}.
+     * Task is rejected by {@linkplain ExecutorExtContext#rejectTask(Runnable)} if it could not be accepted.
      *
      * @param command the same as {@code ThreadPoolExecutor#execute}'s {@code command}
      * @param ctx     {@code ThreadPoolExecutor#execute} extension context
      */
-    void addWorker(Runnable command, ExecutorExtContext ctx);
+    default void addWorker(Runnable command, ExecutorExtContext ctx) {
+        if (!tryAddWorker(command, ctx)) {
+            ctx.rejectTask(command);
+        }
+    }
+
+    /**
+     * Add worker step of {@linkplain ThreadPoolExecutor#tryExecute(Runnable)}.
+     * Rejected execution handler must NOT be invoked, rejection is reported by return value.
+     *
+     * @param command the same as {@code ThreadPoolExecutor#execute}'s {@code command}
+     * @param ctx     {@code ThreadPoolExecutor#execute} extension context
+     * @return true if task accepted, false if task rejected
+     */
+    boolean tryAddWorker(Runnable command, ExecutorExtContext ctx);
+
+    /**
+     * Add worker step of {@linkplain ExtendedThreadPoolExecutor#executeAll(java.util.Collection)}, it's decided once for a batch.
+     * Returns how many workers to add with the first tasks as their first task, the other tasks are queued.
+     * <p>
+     * Default implementation fills the gap to core pool size, the same as step 1 of {@linkplain ThreadPoolExecutor#execute(Runnable)}.
+     *
+     * @param taskCount number of tasks in the batch
+     * @param ctx       {@code ThreadPoolExecutor#execute} extension context
+     * @return number of workers to add, between 0 and {@code taskCount}
+     */
+    default int getBatchWorkerCount(int taskCount, ExecutorExtContext ctx) {
+        return Math.max(0, Math.min(taskCount, ctx.getCorePoolSize() - ctx.getWorkerCount()));
+    }
+
+    /**
+     * Whether workers counted by {@link #getBatchWorkerCount(int, ExecutorExtContext)} are added as core workers,
+     * i.e. bounded by core pool size rather than maximum pool size. Once a worker could not be added,
+     * e.g. core pool is filled by concurrent submitters meanwhile, the remaining tasks are queued.
+     * <p>
+     * Default implementation returns true, so that the batch never starts non-core workers while work queue has room.
+     *
+     * @param ctx {@code ThreadPoolExecutor#execute} extension context
+     * @return true to add core workers, false to add workers up to maximum pool size
+     */
+    default boolean isBatchWorkerCore(ExecutorExtContext ctx) {
+        return true;
+    }
 
 }
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import org.sandynz.sdcommons.base.statistic.StatisticLeapArray;
+
+/**
+ * Predicate which decides whether an executor admits a task or not, used by {@link OverflowExecutorChain}.
+ *
+ * @author sandynz
+ */
+@FunctionalInterface
+public interface ExecutorAdmissionPredicate {
+
+    /**
+     * @param command  task to be executed
+     * @param executor executor which is asked to admit {@code command}
+     * @return true if admitted, else false
+     */
+    boolean admit(Runnable command, ThreadPoolExecutor executor);
+
+    default ExecutorAdmissionPredicate and(ExecutorAdmissionPredicate other) {
+        if (other == null) {
+            throw new NullPointerException("other null");
+        }
+        return (command, executor) -> admit(command, executor) && other.admit(command, executor);
+    }
+
+    /**
+     * Admit when approximate queue size of executor is less than {@code maxQueueSize}.
+     */
+    static ExecutorAdmissionPredicate queueSizeBelow(int maxQueueSize) {
+        return (command, executor) -> executor.getExecutorExtContext().getApproximateQueueSize() < maxQueueSize;
+    }
+
+    /**
+     * Admit when active count of executor is less than {@code maxActiveRatio * maximumPoolSize}.
+     */
+    static ExecutorAdmissionPredicate activeRatioBelow(double maxActiveRatio) {
+        return (command, executor) -> executor.getActiveCount() < maxActiveRatio * executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Admit when average of {@code latencyArray} in the sliding window is less than {@code maxAverageLatency}.
+     *
+     * @param latencyArray      latency statistic of executor, which should be recorded by caller,
+     *                          e.g. {@linkplain RunnableListener} or {@code afterExecute}
+     * @param maxAverageLatency max average latency, in the same unit as recorded
+     */
+    static ExecutorAdmissionPredicate averageLatencyBelow(StatisticLeapArray<?> latencyArray, long maxAverageLatency) {
+        if (latencyArray == null) {
+            throw new NullPointerException("latencyArray null");
+        }
+        return (command, executor) -> latencyArray.average() < maxAverageLatency;
+    }
+
+}
@@ -0,0 +1,435 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulkhead partitions on a shared {@link ExtendedThreadPoolExecutor}, so that a slow downstream could not take every worker.
+ * <p>
+ * Each {@link Partition} is a named slice of the executor's concurrency, with a max-in-flight and max-queued limit.
+ * Limits are enforced by lock-free counters at submit time:
+ * <ol>
+ * <li>If the partition is under its max-in-flight, the task is submitted to the executor.</li>
+ * <li>Otherwise, if borrowing is enabled and the executor has idle capacity, i.e. both in-flight tasks of all partitions and active workers
+ * are less than maximum pool size, the task is submitted as a borrowed one.</li>
+ * <li>Otherwise, the task is held in the partition's local queue if it's under max-queued, or rejected.</li>
+ * </ol>
+ * When a task completes, its worker drains the partition's local queue, then other partitions' local queues if there's idle capacity to lend.
+ * Tasks are submitted to the executor by {@link ThreadPoolExecutor#tryExecute(Runnable)}, its rejected execution handler is not invoked.
+ * <p>
+ * Tasks are not held in local queues once the executor is shut down. Queued tasks which the executor refuses on draining, e.g. it's shut down
+ * meanwhile, are handed to the bulkhead's rejected task handler; by default {@link Future} tasks are cancelled and others are logged.
+ * {@link #shutdownNow()} hands back queued tasks instead.
+ * <p>
+ * Sum of partitions' max-in-flight is expected to be no more than maximum pool size, so that each partition gets its share of workers.
+ * Borrowed tasks hold workers until completed, other partitions could be delayed until then.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class ExecutorBulkhead {
+
+    /**
+     * Partition of {@linkplain ExecutorBulkhead}.
+     */
+    public final class Partition implements Executor {
+
+        private final String name;
+        private final int maxInFlight;
+        private final int maxQueued;
+
+        private final AtomicInteger inFlightCount = new AtomicInteger();
+        private final AtomicInteger queuedCount = new AtomicInteger();
+        private final Queue<Runnable> localQueue = new ConcurrentLinkedQueue<>();
+        private final LongAdder borrowedCount = new LongAdder();
+        private final LongAdder rejectedCount = new LongAdder();
+
+        private Partition(String name, int maxInFlight, int maxQueued) {
+            this.name = name;
+            this.maxInFlight = maxInFlight;
+            this.maxQueued = maxQueued;
+        }
+
+        /**
+         * Executes the task in this partition.
+         *
+         * @throws LightweightRejectedExecutionException if the partition is full, or the executor rejects the task
+         */
+        @Override
+        public void execute(Runnable command) {
+            if (!tryExecute(command)) {
+                throw new LightweightRejectedExecutionException("Task " + command + " rejected by partition " + name,
+                        executor.isShutdown() ? RejectedExecutionCause.SHUTDOWN : RejectedExecutionCause.QUEUE_FULL);
+            }
+        }
+
+        /**
+         * The same as {@link #execute(Runnable)}, but rejection is reported by return value.
+         *
+         * @return true if the task is submitted or queued
+         */
+        public boolean tryExecute(Runnable command) {
+            if (command == null) {
+                throw new NullPointerException("command is null");
+            }
+            if (tryAcquire()) {
+                if (submit(command)) {
+                    return true;
+                }
+                rejectedCount.increment();
+                return false;
+            }
+            if (queuedCount.incrementAndGet() > maxQueued) {
+                queuedCount.decrementAndGet();
+                rejectedCount.increment();
+                return false;
+            }
+            if (executor.isShutdown()) {
+                queuedCount.decrementAndGet();
+                rejectedCount.increment();
+                return false;
+            }
+            localQueue.offer(command);
+            // slots may be released before the task is visible to drainers
+            drain();
+            if (executor.isShutdown() && remove(command)) {
+                // shut down concurrently, it would never be submitted
+                rejectedCount.increment();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Removes the task from local queue by identity.
+         */
+        private boolean remove(Runnable command) {
+            for (Iterator<Runnable> iterator = localQueue.iterator(); iterator.hasNext(); ) {
+                if (iterator.next() == command) {
+                    iterator.remove();
+                    queuedCount.decrementAndGet();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Removes tasks from local queue.
+         */
+        private void drainLocalQueueTo(List<Runnable> tasks) {
+            Runnable command;
+            while ((command = localQueue.poll()) != null) {
+                queuedCount.decrementAndGet();
+                tasks.add(command);
+            }
+        }
+
+        /**
+         * Acquires an in-flight slot of this partition, or borrows one if possible.
+         */
+        private boolean tryAcquire() {
+            for (; ; ) {
+                int c = inFlightCount.get();
+                if (c < maxInFlight) {
+                    if (inFlightCount.compareAndSet(c, c + 1)) {
+                        totalInFlightCount.incrementAndGet();
+                        return true;
+                    }
+                    continue;
+                }
+                if (!borrowing) {
+                    return false;
+                }
+                int maximumPoolSize = executor.getMaximumPoolSize();
+                int total = totalInFlightCount.get();
+                if (total >= maximumPoolSize || executor.getActiveCount() >= maximumPoolSize) {
+                    return false;
+                }
+                if (totalInFlightCount.compareAndSet(total, total + 1)) {
+                    inFlightCount.incrementAndGet();
+                    borrowedCount.increment();
+                    return true;
+                }
+            }
+        }
+
+        private void rejectQueued(Runnable command) {
+            RejectedExecutionCause cause = executor.isShutdown() ? RejectedExecutionCause.SHUTDOWN : RejectedExecutionCause.QUEUE_FULL;
+            try {
+                rejectedTaskHandler.rejectedExecution(command, executor, cause);
+            } catch (RuntimeException e) {
+                // draining thread is a worker or another submitter, don't throw to it
+                log.warn("rejected task handler failed, partition={}, task={}", name, command, e);
+            }
+        }
+
+        private void release() {
+            inFlightCount.decrementAndGet();
+            totalInFlightCount.decrementAndGet();
+        }
+
+        /**
+         * Submits the task with an acquired slot, the slot is released if it's rejected.
+         */
+        private boolean submit(Runnable command) {
+            if (executor.tryExecute(new PartitionTask(this, command))) {
+                return true;
+            }
+            release();
+            return false;
+        }
+
+        /**
+         * Submits tasks in local queue while slots could be acquired.
+         */
+        private void drain() {
+            while (queuedCount.get() > 0 && tryAcquire()) {
+                Runnable command = localQueue.poll();
+                if (command == null) {
+                    // offered but not visible yet, the submitter drains after offering
+                    release();
+                    break;
+                }
+                queuedCount.decrementAndGet();
+                if (!submit(command)) {
+                    rejectedCount.increment();
+                    rejectQueued(command);
+                }
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMaxInFlight() {
+            return maxInFlight;
+        }
+
+        public int getMaxQueued() {
+            return maxQueued;
+        }
+
+        /**
+         * @return number of tasks submitted to the executor but not completed, including borrowed ones
+         */
+        public int getInFlightCount() {
+            return inFlightCount.get();
+        }
+
+        /**
+         * @return number of tasks in local queue
+         */
+        public int getQueuedCount() {
+            return Math.max(0, queuedCount.get());
+        }
+
+        /**
+         * @return total number of tasks submitted with borrowed slots
+         */
+        public long getBorrowedCount() {
+            return borrowedCount.sum();
+        }
+
+        public long getRejectedCount() {
+            return rejectedCount.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "Partition[name=" + name + ", inFlight=" + inFlightCount.get() + "/" + maxInFlight
+                    + ", queued=" + queuedCount.get() + "/" + maxQueued + "]";
+        }
+    }
+
+    /**
+     * Releases the slot and drains local queues on completion.
+     */
+    private final class PartitionTask implements Runnable {
+
+        private final Partition partition;
+        private final Runnable command;
+
+        PartitionTask(Partition partition, Runnable command) {
+            this.partition = partition;
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            try {
+                command.run();
+            } finally {
+                partition.release();
+                drainAfterRelease(partition);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return command.toString();
+        }
+    }
+
+    private static final Partition[] EMPTY_PARTITIONS = new Partition[0];
+
+    /**
+     * Cancels {@link Future} tasks, so that waiters don't wait forever, and logs the others.
+     */
+    private static final RejectedExecutionHandler DEFAULT_REJECTED_TASK_HANDLER = (r, executor) -> {
+        if (r instanceof Future) {
+            ((Future<?>) r).cancel(false);
+        }
+        log.warn("queued task rejected by executor, task={}", r);
+    };
+
+    private final ExtendedThreadPoolExecutor executor;
+    private final boolean borrowing;
+    private final RejectedExecutionHandler rejectedTaskHandler;
+    private final AtomicInteger totalInFlightCount = new AtomicInteger();
+    private final Map<String, Partition> partitionMap = new ConcurrentHashMap<>();
+    /**
+     * Copy-on-write partitions array, iterated by drainers.
+     */
+    private volatile Partition[] partitions = EMPTY_PARTITIONS;
+
+    /**
+     * @param executor  the shared executor
+     * @param borrowing whether partitions could borrow idle capacity of the executor beyond their max-in-flight
+     */
+    public ExecutorBulkhead(ExtendedThreadPoolExecutor executor, boolean borrowing) {
+        this(executor, borrowing, DEFAULT_REJECTED_TASK_HANDLER);
+    }
+
+    /**
+     * @param executor            the shared executor
+     * @param borrowing           whether partitions could borrow idle capacity of the executor beyond their max-in-flight
+     * @param rejectedTaskHandler invoked in the draining thread with tasks which were queued locally but refused by the executor,
+     *                            exceptions thrown by it are logged
+     */
+    public ExecutorBulkhead(ExtendedThreadPoolExecutor executor, boolean borrowing, RejectedExecutionHandler rejectedTaskHandler) {
+        if (executor == null) {
+            throw new NullPointerException("executor null");
+        }
+        if (rejectedTaskHandler == null) {
+            throw new NullPointerException("rejectedTaskHandler null");
+        }
+        this.executor = executor;
+        this.borrowing = borrowing;
+        this.rejectedTaskHandler = rejectedTaskHandler;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code maxInFlight} less than 1, or {@code maxQueued} less than 0, or name exists
+     */
+    public synchronized Partition addPartition(String name, int maxInFlight, int maxQueued) {
+        if (name == null) {
+            throw new NullPointerException("name null");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight lt 1");
+        }
+        if (maxQueued < 0) {
+            throw new IllegalArgumentException("maxQueued lt 0");
+        }
+        if (partitionMap.containsKey(name)) {
+            throw new IllegalArgumentException("partition exists, name=" + name);
+        }
+        Partition partition = new Partition(name, maxInFlight, maxQueued);
+        partitionMap.put(name, partition);
+        Partition[] partitions = this.partitions;
+        Partition[] newPartitions = Arrays.copyOf(partitions, partitions.length + 1);
+        newPartitions[partitions.length] = partition;
+        this.partitions = newPartitions;
+        return partition;
+    }
+
+    /**
+     * @return partition, or null if there's no partition with this name
+     */
+    public Partition getPartition(String name) {
+        return partitionMap.get(name);
+    }
+
+    public Partition[] getPartitions() {
+        return partitions.clone();
+    }
+
+    public ExtendedThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    public boolean isBorrowing() {
+        return borrowing;
+    }
+
+    /**
+     * @return number of tasks of all partitions submitted to the executor but not completed
+     */
+    public int getTotalInFlightCount() {
+        return totalInFlightCount.get();
+    }
+
+    /**
+     * Shuts down the executor by {@link ExtendedThreadPoolExecutor#shutdownNow()}, and removes tasks from local queues.
+     *
+     * @return tasks that never commenced execution, the ones from the executor's work queue first, then the ones from local queues
+     */
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = new ArrayList<>();
+        for (Runnable r : executor.shutdownNow()) {
+            if (r instanceof PartitionTask) {
+                PartitionTask partitionTask = (PartitionTask) r;
+                partitionTask.partition.release();
+                tasks.add(partitionTask.command);
+            } else {
+                tasks.add(r);
+            }
+        }
+        for (Partition partition : partitions) {
+            partition.drainLocalQueueTo(tasks);
+        }
+        return tasks;
+    }
+
+    private void drainAfterRelease(Partition partition) {
+        partition.drain();
+        if (!borrowing || totalInFlightCount.get() >= executor.getMaximumPoolSize()) {
+            return;
+        }
+        for (Partition other : partitions) {
+            if (other != partition && other.queuedCount.get() > 0) {
+                other.drain();
+            }
+        }
+    }
+
+}
@@ -17,7 +17,6 @@
 package org.sandynz.sdcommons.concurrent;
 
 import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import javax.validation.constraints.Min;
@@ -42,6 +41,10 @@ public class ExecutorConstructionCfg {
     @ToString
     public static class Builder {
 
+        /**
+         * Name of executor, carried by {@link ExecutorEvents} events. Default name is generated if it's null.
+         */
+        private String name;
         @Min(0)
         private int corePoolSize;
         @Min(1)
@@ -52,11 +55,26 @@ public class ExecutorConstructionCfg {
         private TimeUnit unit = TimeUnit.SECONDS;
         //@NotNull nullable
         private BlockingQueue<Runnable> workQueue;
+        /**
+         * Capacity of {@link ResizableBlockingQueue}, 0 means not set.
+         * If {@code workQueue} is null, every executor constructed from this configuration creates its own
+         * {@link ResizableBlockingQueue} with this capacity, so that the configuration could be reused.
+         */
+        @Min(0)
+        private int workQueueCapacity;
 
+        /**
+         * {@link java.util.concurrent.Executors#defaultThreadFactory()} is used if it's null.
+         */
         private ThreadFactory threadFactory;
+        /**
+         * {@link ThreadPoolExecutor.AbortPolicy} is used if it's null.
+         */
         private RejectedExecutionHandler handler;
 
         private ExecutorAddWorkerStrategy addWorkerStrategy;
+        private ExecutorWorkerIdleStrategy workerIdleStrategy;
+        private WorkerRetirementPolicy workerRetirementPolicy;
 
         public ExecutorConstructionCfg build() {
             return new ExecutorConstructionCfg(this);
@@ -67,16 +85,20 @@ public class ExecutorConstructionCfg {
         return new Builder();
     }
 
+    private final String name;
     private final int corePoolSize;
     private final int maxPoolSize;
     private final long keepAliveTime;
     private final TimeUnit unit;
     private final BlockingQueue<Runnable> workQueue;
+    private final int workQueueCapacity;
 
     private final ThreadFactory threadFactory;
     private final RejectedExecutionHandler handler;
 
     private final ExecutorAddWorkerStrategy addWorkerStrategy;
+    private final ExecutorWorkerIdleStrategy workerIdleStrategy;
+    private final WorkerRetirementPolicy workerRetirementPolicy;
 
     private ExecutorConstructionCfg(Builder builder) {
         boolean validateRet = Validations.validateBean(builder);
@@ -84,32 +106,30 @@ public class ExecutorConstructionCfg {
             throw new IllegalArgumentException("invalid settings");
         }
 
+        this.name = builder.name;
         this.corePoolSize = builder.corePoolSize;
         this.maxPoolSize = builder.maxPoolSize;
         this.keepAliveTime = builder.keepAliveTime;
         this.unit = builder.unit;
         this.workQueue = builder.workQueue;
+        this.workQueueCapacity = builder.workQueueCapacity;
 
-        if (builder.threadFactory != null) {
-            this.threadFactory = builder.threadFactory;
-        } else {
-            this.threadFactory = Executors.defaultThreadFactory();
-        }
-        if (builder.handler != null) {
-            this.handler = builder.handler;
-        } else {
-            this.handler = new ExtendedThreadPoolExecutor.AbortPolicy();
-        }
+        this.threadFactory = builder.threadFactory;
+        this.handler = builder.handler;
         this.addWorkerStrategy = builder.addWorkerStrategy;
+        this.workerIdleStrategy = builder.workerIdleStrategy;
+        this.workerRetirementPolicy = builder.workerRetirementPolicy;
     }
 
     public Builder toBuilder() {
-        return new Builder()
+        return new Builder().setName(name)
                 .setCorePoolSize(corePoolSize).setMaxPoolSize(maxPoolSize)
                 .setKeepAliveTime(keepAliveTime).setUnit(unit)
-                .setWorkQueue(workQueue)
+                .setWorkQueue(workQueue).setWorkQueueCapacity(workQueueCapacity)
                 .setThreadFactory(threadFactory).setHandler(handler)
-                .setAddWorkerStrategy(addWorkerStrategy);
+                .setAddWorkerStrategy(addWorkerStrategy)
+                .setWorkerIdleStrategy(workerIdleStrategy)
+                .setWorkerRetirementPolicy(workerRetirementPolicy);
     }
 
 }
@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+/**
+ * Executor events emitter. It's no-op on Java 8, and emits JFR events on Java 11 or later,
+ * by the multi-release class in {@code META-INF/versions/11}.
+ * <p>
+ * Event types are named {@code org.sandynz.sdcommons.concurrent.WorkerAdded}, {@code WorkerExited}, {@code TaskRejected},
+ * {@code QueueFull} and {@code TaskSampled} in the same package, each could be enabled in JFR settings, e.g.
+ * {@code jcmd <pid> JFR.start settings=custom.jfc}. {@code QueueFull} and {@code TaskSampled} are disabled by default.
+ * Nothing is recorded if they're disabled.
+ * <p>
+ * Methods take the executor instead of event fields, so that fields are read only if the event is enabled.
+ *
+ * @author sandynz
+ */
+final class ExecutorEvents {
+
+    private ExecutorEvents() {
+    }
+
+    static void workerAdded(ExtendedThreadPoolExecutor executor, Thread thread) {
+    }
+
+    static void workerExited(ExtendedThreadPoolExecutor executor, Thread thread, boolean completedAbruptly) {
+    }
+
+    static void taskRejected(ExtendedThreadPoolExecutor executor, RejectedExecutionCause cause) {
+    }
+
+    static void queueFull(ExtendedThreadPoolExecutor executor) {
+    }
+
+    static void taskSampled(ExtendedThreadPoolExecutor executor, long waitNanos, long runNanos) {
+    }
+
+}
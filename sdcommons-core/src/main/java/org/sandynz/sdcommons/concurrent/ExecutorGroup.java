@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Executor group, includes K shards of {@linkplain ExtendedThreadPoolExecutor} created from configurations of the same supplier.
+ * <p>
+ * Every shard owns its work queue, so queue contention falls by about K times compared with one big pool.
+ * Task is dispatched by power-of-two-choices: the less loaded one of two randomly chosen shards,
+ * load is active count plus approximate queue size. If it's rejected by both shards,
+ * it's submitted to the less loaded shard by {@linkplain ThreadPoolExecutor#execute(Runnable)},
+ * so that shard's rejected execution handler decides.
+ *
+ * @author sandynz
+ */
+public class ExecutorGroup extends AbstractExecutorService {
+
+    private final ExtendedThreadPoolExecutor[] shards;
+
+    /**
+     * @param shardCount  shard count
+     * @param cfgSupplier supplier of configuration, invoked once for every shard. Every configuration must own its work queue,
+     *                    strategies and rejected execution handler, since any of them may be stateful; thread factory may be shared.
+     *                    If name of configuration is not null, shard index is appended to it, e.g. {@code name-0}
+     * @throws NullPointerException     if {@code cfgSupplier} is null, or it supplies null
+     * @throws IllegalArgumentException if {@code shardCount} less than 1, or supplied configurations share work queue, strategy or handler
+     */
+    public ExecutorGroup(int shardCount, Supplier<ExecutorConstructionCfg> cfgSupplier) {
+        if (cfgSupplier == null) {
+            throw new NullPointerException("cfgSupplier null");
+        }
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("shardCount lt 1");
+        }
+        Set<Object> owned = Collections.newSetFromMap(new IdentityHashMap<>());
+        ExtendedThreadPoolExecutor[] shards = new ExtendedThreadPoolExecutor[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            ExecutorConstructionCfg cfg = cfgSupplier.get();
+            if (cfg == null) {
+                throw new NullPointerException("cfg null");
+            }
+            if (!own(owned, cfg.getWorkQueue()) || !own(owned, cfg.getAddWorkerStrategy()) || !own(owned, cfg.getWorkerIdleStrategy())
+                    || !own(owned, cfg.getWorkerRetirementPolicy()) || !own(owned, cfg.getHandler())) {
+                for (int j = 0; j < i; j++) {
+                    shards[j].shutdown();
+                }
+                throw new IllegalArgumentException("work queue, strategy or handler shared between shards");
+            }
+            if (cfg.getName() != null) {
+                cfg = cfg.toBuilder().setName(cfg.getName() + "-" + i).build();
+            }
+            shards[i] = new ExtendedThreadPoolExecutor(cfg);
+        }
+        this.shards = shards;
+    }
+
+    private static boolean own(Set<Object> owned, Object o) {
+        return o == null || owned.add(o);
+    }
+
+    public List<ExtendedThreadPoolExecutor> getShards() {
+        List<ExtendedThreadPoolExecutor> result = new ArrayList<>(shards.length);
+        Collections.addAll(result, shards);
+        return Collections.unmodifiableList(result);
+    }
+
+    private static int loadOf(ExtendedThreadPoolExecutor shard) {
+        return shard.getActiveCount() + shard.getExecutorExtContext().getApproximateQueueSize();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException("command is null");
+        }
+        ExtendedThreadPoolExecutor[] shards = this.shards;
+        int n = shards.length;
+        if (n == 1) {
+            shards[0].execute(command);
+            return;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(n);
+        int j = random.nextInt(n - 1);
+        if (j >= i) {
+            j++;
+        }
+        ExtendedThreadPoolExecutor first = shards[i];
+        ExtendedThreadPoolExecutor second = shards[j];
+        if (loadOf(second) < loadOf(first)) {
+            ExtendedThreadPoolExecutor tmp = first;
+            first = second;
+            second = tmp;
+        }
+        if (first.tryExecute(command) || second.tryExecute(command)) {
+            return;
+        }
+        first.execute(command);
+    }
+
+    @Override
+    public void shutdown() {
+        for (ExtendedThreadPoolExecutor shard : shards) {
+            shard.shutdown();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> result = new ArrayList<>();
+        for (ExtendedThreadPoolExecutor shard : shards) {
+            result.addAll(shard.shutdownNow());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        for (ExtendedThreadPoolExecutor shard : shards) {
+            if (!shard.isShutdown()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        for (ExtendedThreadPoolExecutor shard : shards) {
+            if (!shard.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wait for all shards to terminate, all shards share one deadline.
+     */
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ExtendedThreadPoolExecutor shard : shards) {
+            if (!shard.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /* Statistics, aggregated across shards */
+
+    public int getPoolSize() {
+        int n = 0;
+        for (ExtendedThreadPoolExecutor shard : shards) {
+            n += shard.getPoolSize();
+        }
+        return n;
+    }
+
+    public int getActiveCount() {
+        int n = 0;
+        for (ExtendedThreadPoolExecutor shard : shards) {
+            n += shard.getActiveCount();
+        }
+        return n;
+    }
+
+    public int getLargestPoolSize() {
+        int n = 0;
+        for (ExtendedThreadPoolExecutor shard : shards) {
+            n += shard.getLargestPoolSize();
+        }
+        return n;
+    }
+
+    /**
+     * @return approximate count of queued tasks
+     */
+    public int getQueueSize() {
+        int n = 0;
+        for (ExtendedThreadPoolExecutor shard : shards) {
+            n += shard.getExecutorExtContext().getApproximateQueueSize();
+        }
+        return n;
+    }
+
+    public long getTaskCount() {
+        long n = 0;
+        for (ExtendedThreadPoolExecutor shard : shards) {
+            n += shard.getTaskCount();
+        }
+        return n;
+    }
+
+    public long getCompletedTaskCount() {
+        long n = 0;
+        for (ExtendedThreadPoolExecutor shard : shards) {
+            n += shard.getCompletedTaskCount();
+        }
+        return n;
+    }
+
+}
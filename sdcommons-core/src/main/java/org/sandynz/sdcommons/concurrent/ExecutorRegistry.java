@@ -0,0 +1,363 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Registry of named {@link ExtendedThreadPoolExecutor}s, built from a properties file, and reconfigured live when the file changes.
+ * <p>
+ * Properties of executor {@code name}, only {@code corePoolSize} and {@code maxPoolSize} are required:
+ * <pre>
+ * executor.name.corePoolSize=4
+ * executor.name.maxPoolSize=16
+ * executor.name.keepAliveTime=60
+ * executor.name.unit=SECONDS
+ * executor.name.workQueueCapacity=1000
+ * executor.name.addWorkerStrategy=eager
+ * </pre>
+ * {@code addWorkerStrategy} could be {@code original}, {@code eager}, or class name of {@link ExecutorAddWorkerStrategy} with no-arg constructor.
+ * Work queue is a {@link ResizableBlockingQueue}, unbounded if {@code workQueueCapacity} is not set.
+ * Thread name prefix is {@code name-}.
+ * <p>
+ * On {@link #reload()}, executors are reconfigured by {@link ExtendedThreadPoolExecutor#reconfigure(ExecutorConstructionCfg)}, changes are logged.
+ * An add-worker strategy instance is kept if its name is unchanged.
+ * New executors are created, executors removed from file are kept running, since they may still be referenced.
+ * Invalid settings of an executor are logged and skipped, other executors are still reloaded.
+ * <p>
+ * YAML is not supported, there's no YAML parser in dependencies.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class ExecutorRegistry implements Closeable {
+
+    private static final String KEY_PREFIX = "executor.";
+
+    private final Path file;
+    private final Map<String, ExtendedThreadPoolExecutor> executors = new ConcurrentHashMap<>();
+    /**
+     * Executor name to add-worker strategy name, only accessed under lock of this, i.e. by constructor and {@link #reload()}.
+     */
+    private final Map<String, String> strategyNames = new HashMap<>();
+
+    private volatile WatchService watchService;
+
+    /**
+     * Loads the file and creates executors.
+     *
+     * @throws IOException              if failed to read the file
+     * @throws IllegalArgumentException if settings are invalid
+     */
+    public ExecutorRegistry(Path file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file null");
+        }
+        this.file = file.toAbsolutePath();
+        Map<String, Map<String, String>> settings = load();
+        synchronized (this) {
+            for (Map.Entry<String, Map<String, String>> entry : settings.entrySet()) {
+                String name = entry.getKey();
+                ExecutorConstructionCfg cfg = toCfg(name, entry.getValue(), null);
+                executors.put(name, new ExtendedThreadPoolExecutor(cfg));
+                strategyNames.put(name, strategyNameOf(entry.getValue()));
+                log.info("executor created, name={}, cfg={}", name, cfg);
+            }
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * @return executor, or null if there's no executor with this name
+     */
+    public ExtendedThreadPoolExecutor get(String name) {
+        return executors.get(name);
+    }
+
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(new TreeSet<>(executors.keySet()));
+    }
+
+    /**
+     * Reloads the file and applies changes.
+     *
+     * @throws IOException if failed to read the file, nothing is applied in this case
+     */
+    public synchronized void reload() throws IOException {
+        Map<String, Map<String, String>> settings = load();
+        for (Map.Entry<String, Map<String, String>> entry : settings.entrySet()) {
+            String name = entry.getKey();
+            try {
+                ExtendedThreadPoolExecutor executor = executors.get(name);
+                if (executor == null) {
+                    ExecutorConstructionCfg cfg = toCfg(name, entry.getValue(), null);
+                    executors.put(name, new ExtendedThreadPoolExecutor(cfg));
+                    strategyNames.put(name, strategyNameOf(entry.getValue()));
+                    log.info("executor created, name={}, cfg={}", name, cfg);
+                    continue;
+                }
+                ExecutorConstructionCfg oldCfg = executor.getConstructionCfg();
+                ExecutorConstructionCfg newCfg = toCfg(name, entry.getValue(), oldCfg);
+                List<String> diff = diff(oldCfg, newCfg);
+                if (diff.isEmpty()) {
+                    log.debug("executor unchanged, name={}", name);
+                    continue;
+                }
+                executor.reconfigure(newCfg);
+                strategyNames.put(name, strategyNameOf(entry.getValue()));
+                log.info("executor reconfigured, name={}, changes={}", name, diff);
+            } catch (RuntimeException e) {
+                log.error("executor reload failed, skipped, name={}, settings={}", name, entry.getValue(), e);
+            }
+        }
+        for (String name : executors.keySet()) {
+            if (!settings.containsKey(name)) {
+                log.warn("executor removed from file, kept running, name={}", name);
+            }
+        }
+    }
+
+    /**
+     * Starts a daemon thread watching the file, it's reloaded on changes.
+     *
+     * @throws IOException           if failed to create watch service
+     * @throws IllegalStateException if it's already watching
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watchService != null) {
+            throw new IllegalStateException("already watching");
+        }
+        WatchService watchService = file.getFileSystem().newWatchService();
+        file.getParent().register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(() -> watch(watchService), "executor-registry-watcher");
+        thread.setDaemon(true);
+        this.watchService = watchService;
+        thread.start();
+    }
+
+    private void watch(WatchService watchService) {
+        Path fileName = file.getFileName();
+        for (; ; ) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                log.info("watching stopped, file={}", file);
+                return;
+            }
+            boolean changed = false;
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || fileName.equals(event.context())) {
+                    changed = true;
+                }
+            }
+            if (changed) {
+                try {
+                    reload();
+                } catch (Exception e) {
+                    log.error("reload failed, file={}", file, e);
+                }
+            }
+            if (!key.reset()) {
+                log.warn("watch key invalid, watching stopped, file={}", file);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops watching, executors are not shut down.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        WatchService watchService = this.watchService;
+        if (watchService != null) {
+            watchService.close();
+            this.watchService = null;
+        }
+    }
+
+    /**
+     * Stops watching, and shuts down all executors.
+     */
+    public void shutdown() throws IOException {
+        close();
+        for (ExtendedThreadPoolExecutor executor : executors.values()) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Wait for all executors to terminate, they share one deadline.
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (ExtendedThreadPoolExecutor executor : executors.values()) {
+            if (!executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return executor name to its settings, in file order of first appearance
+     */
+    private Map<String, Map<String, String>> load() throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        Map<String, Map<String, String>> result = new LinkedHashMap<>();
+        for (String key : new TreeSet<>(properties.stringPropertyNames())) {
+            if (!key.startsWith(KEY_PREFIX)) {
+                continue;
+            }
+            int index = key.lastIndexOf('.');
+            if (index <= KEY_PREFIX.length()) {
+                log.warn("invalid key ignored, key={}", key);
+                continue;
+            }
+            String name = key.substring(KEY_PREFIX.length(), index);
+            String property = key.substring(index + 1);
+            result.computeIfAbsent(name, k -> new LinkedHashMap<>()).put(property, properties.getProperty(key).trim());
+        }
+        return result;
+    }
+
+    /**
+     * Invoked under lock of this.
+     *
+     * @param oldCfg current cfg of the executor, null if it's a new executor
+     */
+    private ExecutorConstructionCfg toCfg(String name, Map<String, String> settings, ExecutorConstructionCfg oldCfg) {
+        ExecutorConstructionCfg.Builder builder;
+        if (oldCfg != null) {
+            builder = oldCfg.toBuilder();
+        } else {
+            builder = ExecutorConstructionCfg.builder().setName(name)
+                    .setThreadFactory(new ThreadFactoryImpl(name + "-"));
+        }
+        builder.setCorePoolSize(requiredInt(settings, "corePoolSize"))
+                .setMaxPoolSize(requiredInt(settings, "maxPoolSize"));
+        String keepAliveTime = settings.get("keepAliveTime");
+        builder.setKeepAliveTime(keepAliveTime != null ? parseLong("keepAliveTime", keepAliveTime) : 60L);
+        String unit = settings.get("unit");
+        builder.setUnit(unit != null ? TimeUnit.valueOf(unit) : TimeUnit.SECONDS);
+        String workQueueCapacity = settings.get("workQueueCapacity");
+        builder.setWorkQueueCapacity(workQueueCapacity != null ? parseInt("workQueueCapacity", workQueueCapacity) : Integer.MAX_VALUE);
+
+        String strategyName = strategyNameOf(settings);
+        if (oldCfg == null || !Objects.equals(strategyName, strategyNames.get(name))) {
+            builder.setAddWorkerStrategy(newAddWorkerStrategy(strategyName));
+        }
+        return builder.build();
+    }
+
+    private static String strategyNameOf(Map<String, String> settings) {
+        String strategyName = settings.get("addWorkerStrategy");
+        return strategyName != null ? strategyName : "original";
+    }
+
+    private static ExecutorAddWorkerStrategy newAddWorkerStrategy(String strategyName) {
+        switch (strategyName) {
+            case "original":
+                return null;
+            case "eager":
+                return new ExecutorAddWorkerEagerStrategy();
+            default:
+                try {
+                    Class<?> clazz = Class.forName(strategyName);
+                    return (ExecutorAddWorkerStrategy) clazz.getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new IllegalArgumentException("invalid addWorkerStrategy " + strategyName, e);
+                }
+        }
+    }
+
+    private static int requiredInt(Map<String, String> settings, String property) {
+        String value = settings.get(property);
+        if (value == null) {
+            throw new IllegalArgumentException(property + " required");
+        }
+        return parseInt(property, value);
+    }
+
+    private static int parseInt(String property, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + property + " " + value, e);
+        }
+    }
+
+    private static long parseLong(String property, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid " + property + " " + value, e);
+        }
+    }
+
+    private static List<String> diff(ExecutorConstructionCfg oldCfg, ExecutorConstructionCfg newCfg) {
+        List<String> diff = new ArrayList<>();
+        diffProperty(diff, "corePoolSize", oldCfg.getCorePoolSize(), newCfg.getCorePoolSize());
+        diffProperty(diff, "maxPoolSize", oldCfg.getMaxPoolSize(), newCfg.getMaxPoolSize());
+        diffProperty(diff, "keepAliveTime", oldCfg.getUnit().toNanos(oldCfg.getKeepAliveTime()), newCfg.getUnit().toNanos(newCfg.getKeepAliveTime()));
+        diffProperty(diff, "workQueueCapacity", oldCfg.getWorkQueueCapacity(), newCfg.getWorkQueueCapacity());
+        diffProperty(diff, "addWorkerStrategy", classNameOf(oldCfg.getAddWorkerStrategy()), classNameOf(newCfg.getAddWorkerStrategy()));
+        return diff;
+    }
+
+    private static void diffProperty(List<String> diff, String property, Object oldValue, Object newValue) {
+        if (!Objects.equals(oldValue, newValue)) {
+            diff.add(property + ": " + oldValue + " -> " + newValue);
+        }
+    }
+
+    private static String classNameOf(Object object) {
+        return object != null ? object.getClass().getSimpleName() : null;
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import lombok.Data;
+
+/**
+ * Statistics of {@link ThreadPoolExecutor}, returned by {@link ThreadPoolExecutor#snapshot()}.
+ * <p>
+ * Values are read one by one without locking, they're approximations and not an atomic snapshot.
+ *
+ * @author sandynz
+ */
+@Data
+public class ExecutorStatistics {
+
+    /**
+     * current number of threads in the pool
+     */
+    private final int poolSize;
+    /**
+     * number of threads that are actively executing tasks
+     */
+    private final int activeCount;
+    /**
+     * largest number of threads that have ever simultaneously been in the pool
+     */
+    private final int largestPoolSize;
+    /**
+     * number of tasks in the work queue
+     */
+    private final int queueSize;
+    /**
+     * total number of tasks that have ever been scheduled for execution
+     */
+    private final long taskCount;
+    /**
+     * total number of tasks that have completed execution
+     */
+    private final long completedTaskCount;
+    /**
+     * number of tasks rejected since executor is not running
+     */
+    private final long shutdownRejectedCount;
+    /**
+     * number of tasks rejected since work queue is full
+     */
+    private final long queueFullRejectedCount;
+    /**
+     * number of tasks rejected since maximum pool size is reached
+     */
+    private final long maxThreadsRejectedCount;
+
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import org.sandynz.sdcommons.concurrent.ThreadPoolExecutor.ExecutorExtContext;
+
+/**
+ * Idle step abstraction of worker threads, invoked before an idle worker parks on the work queue.
+ *
+ * @author sandynz
+ */
+public interface ExecutorWorkerIdleStrategy {
+
+    /**
+     * Try to get a task before parking, e.g. by spinning or yielding for a bounded time.
+     * Must not block, and tasks must be taken by {@linkplain ExecutorExtContext#pollTask()}.
+     *
+     * @param ctx {@code ThreadPoolExecutor} extension context
+     * @return task taken from work queue, or null if worker should park on the work queue
+     */
+    Runnable awaitTask(ExecutorExtContext ctx);
+
+    /**
+     * Invoked after worker parked on the work queue, and then a task arrived or waiting timed out.
+     *
+     * @param parkNanos the time parked, in nanoseconds
+     */
+    default void afterPark(long parkNanos) {
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.sandynz.sdcommons.concurrent.ThreadPoolExecutor.ExecutorExtContext;
+
+/**
+ * Idle strategy implementation which spins, then yields, then parks.
+ * <p>
+ * Spinning avoids the futex wakeup of a parked worker when tasks arrive close together.
+ * Spin budget adapts to observed idle gaps (time from becoming idle to receiving a task):
+ * if recent gaps are shorter than {@code maxSpinTime}, budget is about twice the average gap,
+ * else it decays to {@code minSpinTime}, so CPU is not burned when traffic is sparse.
+ * <p>
+ * Spinning checks {@linkplain ExecutorExtContext#getApproximateQueueSize()},
+ * so it does not contend on the work queue's lock.
+ * At most {@code maxSpinningWorkers} workers spin at the same time, others park directly.
+ * <p>
+ * Workers don't spin on a zero capacity work queue, e.g. {@link java.util.concurrent.SynchronousQueue}:
+ * offers only succeed to a worker blocked in poll or take, so a spinning worker would never find a task,
+ * while submitters would add workers or reject tasks meanwhile.
+ * <p>
+ * It's stateful, don't share it between executors.
+ *
+ * @author sandynz
+ */
+public class ExecutorWorkerSpinIdleStrategy implements ExecutorWorkerIdleStrategy {
+
+    /**
+     * Weight of the newest observation in average idle gap is 1 / 2^EWMA_SHIFT.
+     */
+    private static final int EWMA_SHIFT = 3;
+
+    private final long minSpinNanos;
+    private final long maxSpinNanos;
+    private final int yieldCount;
+    private final int maxSpinningWorkers;
+
+    private final AtomicInteger spinningWorkers = new AtomicInteger();
+
+    /**
+     * Exponentially weighted moving average of idle gaps, racy updates are acceptable.
+     */
+    private volatile long avgIdleNanos;
+
+    /**
+     * Spin 1 to 50 microseconds, yield 2 times, at most 1 spinning worker.
+     */
+    public ExecutorWorkerSpinIdleStrategy() {
+        this(1, 50, TimeUnit.MICROSECONDS, 2, 1);
+    }
+
+    /**
+     * @param minSpinTime        min spin time, used when traffic is sparse
+     * @param maxSpinTime        max spin time
+     * @param unit               time unit of {@code minSpinTime} and {@code maxSpinTime}
+     * @param yieldCount         yield count after spinning and before parking
+     * @param maxSpinningWorkers max count of workers spinning at the same time
+     * @throws IllegalArgumentException if any time or count is negative, or {@code minSpinTime > maxSpinTime}, or {@code maxSpinningWorkers < 1}
+     * @throws NullPointerException     if {@code unit} is null
+     */
+    public ExecutorWorkerSpinIdleStrategy(long minSpinTime, long maxSpinTime, TimeUnit unit, int yieldCount, int maxSpinningWorkers) {
+        if (unit == null) {
+            throw new NullPointerException("unit null");
+        }
+        if (minSpinTime < 0 || maxSpinTime < minSpinTime || yieldCount < 0 || maxSpinningWorkers < 1) {
+            throw new IllegalArgumentException("invalid settings");
+        }
+        this.minSpinNanos = unit.toNanos(minSpinTime);
+        this.maxSpinNanos = unit.toNanos(maxSpinTime);
+        this.yieldCount = yieldCount;
+        this.maxSpinningWorkers = maxSpinningWorkers;
+        this.avgIdleNanos = this.maxSpinNanos;
+    }
+
+    @Override
+    public Runnable awaitTask(ExecutorExtContext ctx) {
+        if (ctx.getApproximateQueueSize() <= 0 && ctx.getWorkQueue().remainingCapacity() == 0) {
+            return null;
+        }
+        AtomicInteger spinningWorkers = this.spinningWorkers;
+        if (spinningWorkers.incrementAndGet() > maxSpinningWorkers) {
+            spinningWorkers.decrementAndGet();
+            return null;
+        }
+        try {
+            long start = System.nanoTime();
+            long spinNanos = getSpinNanos();
+            // Thread.onSpinWait() is not available on Java 8
+            while (true) {
+                Runnable task = pollTask(ctx);
+                if (task != null) {
+                    recordIdle(System.nanoTime() - start);
+                    return task;
+                }
+                if (System.nanoTime() - start >= spinNanos) {
+                    break;
+                }
+            }
+            for (int i = 0; i < yieldCount; i++) {
+                Thread.yield();
+                Runnable task = pollTask(ctx);
+                if (task != null) {
+                    recordIdle(System.nanoTime() - start);
+                    return task;
+                }
+            }
+            return null;
+        } finally {
+            spinningWorkers.decrementAndGet();
+        }
+    }
+
+    private static Runnable pollTask(ExecutorExtContext ctx) {
+        if (ctx.getApproximateQueueSize() > 0) {
+            return ctx.pollTask();
+        }
+        return null;
+    }
+
+    @Override
+    public void afterPark(long parkNanos) {
+        // spinning and yielding time before parking is approximated by current spin budget
+        recordIdle(parkNanos + getSpinNanos());
+    }
+
+    private void recordIdle(long idleNanos) {
+        // clamp so that one long idle gap could not dominate the average for long
+        idleNanos = Math.min(idleNanos, maxSpinNanos << 1);
+        long avg = this.avgIdleNanos;
+        this.avgIdleNanos = avg + ((idleNanos - avg) >> EWMA_SHIFT);
+    }
+
+    /**
+     * Returns current spin budget in nanoseconds.
+     */
+    public long getSpinNanos() {
+        long avg = this.avgIdleNanos;
+        if (avg > maxSpinNanos) {
+            return minSpinNanos;
+        }
+        return Math.max(minSpinNanos, Math.min(maxSpinNanos, avg << 1));
+    }
+
+}
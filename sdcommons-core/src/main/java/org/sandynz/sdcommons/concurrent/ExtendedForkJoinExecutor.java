@@ -0,0 +1,371 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link ForkJoinPool} backed executor, constructed by {@link ExecutorConstructionCfg} like {@link ExtendedThreadPoolExecutor},
+ * so that a pool could be switched to work stealing by configuration.
+ * <p>
+ * Configuration is mapped as follows:
+ * <ul>
+ * <li>{@code maxPoolSize} is parallelism of the pool, {@code corePoolSize} and {@code keepAliveTime} are ignored,
+ * idle workers are managed by {@link ForkJoinPool}.</li>
+ * <li>External submissions are bounded: at most {@code maxPoolSize + workQueueCapacity} tasks could be pending (submitted but not completed),
+ * unbounded if {@code workQueueCapacity} is not set. Subtasks forked inside the pool are not bounded. {@code workQueue} is ignored.</li>
+ * <li>Thread name prefix and daemon flag are taken from {@link ThreadFactoryImpl}, other thread factories are ignored
+ * since they could not create {@link ForkJoinWorkerThread}, {@code name-} prefix is used in this case.</li>
+ * <li>Rejected execution handlers {@link ThreadPoolExecutor.AbortPolicy}, {@link ThreadPoolExecutor.CallerRunsPolicy},
+ * {@link ThreadPoolExecutor.DiscardPolicy} and {@link LightweightAbortPolicy} are supported, matched by exact class. Others, including
+ * subclasses of them which could override {@code rejectedExecution}, depend on {@link ThreadPoolExecutor} internals,
+ * {@link IllegalArgumentException} is thrown for them. Recursive tasks by {@link #submit(ForkJoinTask)} don't go through the handler.</li>
+ * <li>Add-worker strategy, worker idle strategy and worker retirement policy are ignored, work stealing replaces them.</li>
+ * </ul>
+ * {@link RunnableListener}s could be registered, they're invoked around external submissions, not forked subtasks.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class ExtendedForkJoinExecutor extends AbstractExecutorService {
+
+    private final String name;
+    private final ForkJoinPool pool;
+    private final RejectedExecutionHandler handler;
+    /**
+     * Max count of pending external submissions.
+     */
+    private final int maxPendingCount;
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final LongAdder[] rejectedTaskCounts = new LongAdder[RejectedExecutionCause.values().length];
+
+    private static final RunnableListener[] EMPTY_LISTENERS = new RunnableListener[0];
+
+    /**
+     * Copy-on-write listeners array.
+     */
+    private volatile RunnableListener[] runnableListeners = EMPTY_LISTENERS;
+
+    /**
+     * @throws IllegalArgumentException if rejected execution handler is not supported
+     */
+    public ExtendedForkJoinExecutor(ExecutorConstructionCfg cfg) {
+        if (cfg == null) {
+            throw new NullPointerException("cfg null");
+        }
+        RejectedExecutionHandler handler = cfg.getHandler() != null ? cfg.getHandler() : new ThreadPoolExecutor.AbortPolicy();
+        Class<?> handlerClass = handler.getClass();
+        if (handlerClass != ThreadPoolExecutor.AbortPolicy.class && handlerClass != ThreadPoolExecutor.CallerRunsPolicy.class
+                && handlerClass != ThreadPoolExecutor.DiscardPolicy.class && handlerClass != LightweightAbortPolicy.class) {
+            throw new IllegalArgumentException("handler not supported, handler=" + handler);
+        }
+        this.name = cfg.getName() != null ? cfg.getName() : getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(this));
+        this.handler = handler;
+        int maxPoolSize = cfg.getMaxPoolSize();
+        this.maxPendingCount = cfg.getWorkQueueCapacity() > 0 ? (int) Math.min(Integer.MAX_VALUE, (long) maxPoolSize + cfg.getWorkQueueCapacity()) : Integer.MAX_VALUE;
+        for (int i = 0; i < rejectedTaskCounts.length; i++) {
+            rejectedTaskCounts[i] = new LongAdder();
+        }
+
+        ThreadFactory threadFactory = cfg.getThreadFactory();
+        String namePrefix = name + "-";
+        boolean daemon = true;
+        if (threadFactory instanceof ThreadFactoryImpl) {
+            namePrefix = ((ThreadFactoryImpl) threadFactory).getNamePrefix();
+            daemon = ((ThreadFactoryImpl) threadFactory).isDaemon();
+        }
+        this.pool = new ForkJoinPool(maxPoolSize, newWorkerThreadFactory(namePrefix, daemon), null, false);
+    }
+
+    private static ForkJoinPool.ForkJoinWorkerThreadFactory newWorkerThreadFactory(String namePrefix, boolean daemon) {
+        AtomicInteger threadNumber = new AtomicInteger(1);
+        return pool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setDaemon(daemon);
+            thread.setName(namePrefix + threadNumber.getAndIncrement());
+            return thread;
+        };
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Registers listener, it's invoked for tasks started after registration.
+     *
+     * @throws NullPointerException if {@code listener} is null
+     */
+    public synchronized void addRunnableListener(RunnableListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener null");
+        }
+        RunnableListener[] listeners = this.runnableListeners;
+        RunnableListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+        newListeners[listeners.length] = listener;
+        this.runnableListeners = newListeners;
+    }
+
+    /**
+     * Unregisters listener, it's still invoked on tasks started before.
+     *
+     * @return true if listener was registered
+     */
+    public synchronized boolean removeRunnableListener(RunnableListener listener) {
+        RunnableListener[] listeners = this.runnableListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                RunnableListener[] newListeners = new RunnableListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                this.runnableListeners = newListeners.length == 0 ? EMPTY_LISTENERS : newListeners;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public RunnableListener[] getRunnableListeners() {
+        return runnableListeners.clone();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Task is rejected if this executor is shut down, or pending submissions reach the bound.
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException("command is null");
+        }
+        RejectedExecutionCause cause = admit(command);
+        if (cause != null) {
+            reject(command, cause);
+        }
+    }
+
+    /**
+     * @return null if admitted, or the rejection cause
+     */
+    private RejectedExecutionCause admit(Runnable command) {
+        if (pool.isShutdown()) {
+            return RejectedExecutionCause.SHUTDOWN;
+        }
+        if (pendingCount.incrementAndGet() > maxPendingCount) {
+            pendingCount.decrementAndGet();
+            return RejectedExecutionCause.QUEUE_FULL;
+        }
+        try {
+            pool.execute(new AdmittedTask(command));
+        } catch (RejectedExecutionException e) {
+            // shut down concurrently
+            pendingCount.decrementAndGet();
+            return RejectedExecutionCause.SHUTDOWN;
+        }
+        return null;
+    }
+
+    /**
+     * Submits a recursive task, it's admitted and listened the same as {@link #execute(Runnable)},
+     * and it's invoked in a worker thread, so that its subtasks are forked into this pool.
+     * <p>
+     * If it's rejected, rejected execution handler is not invoked, the task is completed exceptionally with
+     * {@link RejectedExecutionException} instead: running it in the caller thread would fork subtasks into the common pool,
+     * and discarding it would leave {@link ForkJoinTask#join()} waiting forever.
+     *
+     * @return the task
+     */
+    public <T> ForkJoinTask<T> submit(ForkJoinTask<T> task) {
+        if (task == null) {
+            throw new NullPointerException("task null");
+        }
+        RejectedExecutionCause cause = admit(new ForkJoinTaskRunner(task));
+        if (cause != null) {
+            rejectedTaskCounts[cause.ordinal()].increment();
+            task.completeExceptionally(new RejectedExecutionException("Task " + task + " rejected from " + this + ", cause=" + cause));
+        }
+        return task;
+    }
+
+    /**
+     * Submits a recursive task and waits for its result.
+     *
+     * @return the result of the task
+     * @throws RejectedExecutionException if the task is rejected
+     * @see #submit(ForkJoinTask)
+     */
+    public <T> T invoke(ForkJoinTask<T> task) {
+        return submit(task).join();
+    }
+
+    private void reject(Runnable command, RejectedExecutionCause cause) {
+        rejectedTaskCounts[cause.ordinal()].increment();
+        RejectedExecutionHandler handler = this.handler;
+        Class<?> handlerClass = handler.getClass();
+        if (handlerClass == ThreadPoolExecutor.CallerRunsPolicy.class) {
+            if (!pool.isShutdown()) {
+                command.run();
+            }
+        } else if (handlerClass == ThreadPoolExecutor.DiscardPolicy.class) {
+            log.debug("task discarded, task={}, cause={}", command, cause);
+        } else if (handlerClass == LightweightAbortPolicy.class) {
+            throw ((LightweightAbortPolicy) handler).newException(command, this, cause);
+        } else {
+            throw new RejectedExecutionException("Task " + command + " rejected from " + this + ", cause=" + cause);
+        }
+    }
+
+    /**
+     * Returns the approximate number of tasks rejected by this executor for the given cause.
+     *
+     * @throws NullPointerException if {@code cause} is null
+     */
+    public long getRejectedTaskCount(RejectedExecutionCause cause) {
+        return rejectedTaskCounts[cause.ordinal()].sum();
+    }
+
+    /**
+     * @return number of external submissions which are submitted but not completed
+     */
+    public int getPendingCount() {
+        return pendingCount.get();
+    }
+
+    /**
+     * @return max number of pending external submissions, {@link Integer#MAX_VALUE} if unbounded
+     */
+    public int getMaxPendingCount() {
+        return maxPendingCount;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public int getPoolSize() {
+        return pool.getPoolSize();
+    }
+
+    public int getActiveCount() {
+        return pool.getActiveThreadCount();
+    }
+
+    public long getStealCount() {
+        return pool.getStealCount();
+    }
+
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Cancels running and queued tasks, queued tasks are not returned, since they're held by {@link ForkJoinPool}.
+     *
+     * @return empty list
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        return pool.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return pool.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return pool.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + "[name=" + name + ", pending=" + pendingCount.get() + ", " + pool + "]";
+    }
+
+    /**
+     * Admitted external submission, invokes listeners and releases the pending count on completion.
+     */
+    private final class AdmittedTask implements Runnable {
+
+        private final Runnable command;
+
+        AdmittedTask(Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            try {
+                RunnableListener[] listeners = runnableListeners;
+                if (listeners.length == 0) {
+                    command.run();
+                } else {
+                    new RunnableListenSupport(command, listeners).run();
+                }
+            } finally {
+                pendingCount.decrementAndGet();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return command.toString();
+        }
+    }
+
+    /**
+     * Runs a {@link ForkJoinTask} in a worker thread, exceptions are held by the task.
+     */
+    private static final class ForkJoinTaskRunner implements Runnable {
+
+        private final ForkJoinTask<?> task;
+
+        ForkJoinTaskRunner(ForkJoinTask<?> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.quietlyInvoke();
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+
+}
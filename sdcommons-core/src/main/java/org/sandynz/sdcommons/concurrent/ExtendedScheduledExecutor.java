@@ -0,0 +1,508 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * {@link ScheduledExecutorService} implementation based on a hashed timing wheel, schedule and cancel are O(1).
+ * <p>
+ * Timers are kept in the wheel by a single timer thread, submitters and cancellers hand timers over to it via lock-free queues.
+ * Expired timers are dispatched into {@code dispatchExecutor}, which is an {@link ExtendedThreadPoolExecutor}
+ * with its own add-worker strategy, listeners etc. The timer thread must not block, so {@code dispatchExecutor}
+ * should not use {@link ThreadPoolExecutor.CallerRunsPolicy} or {@link BlockingAdmissionPolicy},
+ * timer rejected by it completes exceptionally with {@link RejectedExecutionException}.
+ * <p>
+ * Timers expire at tick granularity, up to one {@code tickDuration} late.
+ * <p>
+ * {@code dispatchExecutor} is owned by this executor, it's shut down after the timer thread exits.
+ * On shutdown, timers which are not expired yet are cancelled, including periodic ones.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class ExtendedScheduledExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+
+    /**
+     * Max count of pending timers moved into the wheel per tick, so that the timer thread is not starved by submitters.
+     */
+    private static final int MAX_TRANSFERS_PER_TICK = 100_000;
+
+    private final ExtendedThreadPoolExecutor dispatchExecutor;
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startNanos;
+    private final Thread timerThread;
+
+    private final Queue<ScheduledTask<?>> pendingTasks = new ConcurrentLinkedQueue<>();
+    private final Queue<ScheduledTask<?>> cancelledTasks = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean shutdown;
+
+    /**
+     * Timers not expired on shutdown, set by timer thread before exit.
+     */
+    private volatile List<Runnable> unexpiredTasks;
+
+    /**
+     * Accessed only by timer thread.
+     */
+    private long tick;
+
+    /**
+     * Tick duration 10 milliseconds, 512 ticks per wheel, daemon timer thread.
+     */
+    public ExtendedScheduledExecutor(ExtendedThreadPoolExecutor dispatchExecutor) {
+        this(dispatchExecutor, 10, TimeUnit.MILLISECONDS, 512, new ThreadFactoryImpl("scheduled-timer-", true));
+    }
+
+    /**
+     * @param dispatchExecutor   executor to run expired timers
+     * @param tickDuration       duration between ticks
+     * @param unit               time unit of {@code tickDuration}
+     * @param ticksPerWheel      size of the wheel, rounded up to power of two
+     * @param timerThreadFactory factory to create the timer thread
+     * @throws NullPointerException     if {@code dispatchExecutor}, {@code unit} or {@code timerThreadFactory} is null
+     * @throws IllegalArgumentException if {@code tickDuration} less than 1, or {@code ticksPerWheel} not in [1, 2^30]
+     */
+    public ExtendedScheduledExecutor(ExtendedThreadPoolExecutor dispatchExecutor, long tickDuration, TimeUnit unit, int ticksPerWheel,
+            ThreadFactory timerThreadFactory) {
+        if (dispatchExecutor == null || unit == null || timerThreadFactory == null) {
+            throw new NullPointerException();
+        }
+        if (tickDuration < 1) {
+            throw new IllegalArgumentException("tickDuration lt 1");
+        }
+        if (ticksPerWheel < 1 || ticksPerWheel > 1 << 30) {
+            throw new IllegalArgumentException("ticksPerWheel out of range");
+        }
+        this.dispatchExecutor = dispatchExecutor;
+        this.tickNanos = unit.toNanos(tickDuration);
+        int wheelSize = Integer.highestOneBit(ticksPerWheel);
+        if (wheelSize < ticksPerWheel) {
+            wheelSize <<= 1;
+        }
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            this.wheel[i] = new Bucket();
+        }
+        this.mask = wheelSize - 1;
+        this.startNanos = System.nanoTime();
+        this.timerThread = timerThreadFactory.newThread(this::runTimer);
+        this.timerThread.start();
+    }
+
+    public ExtendedThreadPoolExecutor getDispatchExecutor() {
+        return dispatchExecutor;
+    }
+
+    /**
+     * @return nanoseconds elapsed since construction
+     */
+    private long relativeNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return relative deadline in nanoseconds, clamped to avoid overflow
+     */
+    private long deadlineOf(long delay, TimeUnit unit) {
+        long delayNanos = unit.toNanos(Math.max(delay, 0L));
+        long now = relativeNanos();
+        return delayNanos > Long.MAX_VALUE - now ? Long.MAX_VALUE : now + delayNanos;
+    }
+
+    private <V> ScheduledTask<V> enqueue(ScheduledTask<V> task) {
+        if (shutdown) {
+            throw new LightweightRejectedExecutionException("Executor shutdown");
+        }
+        pendingTasks.offer(task);
+        if (shutdown && pendingTasks.remove(task)) {
+            throw new LightweightRejectedExecutionException("Executor shutdown");
+        }
+        return task;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        if (command == null || unit == null) {
+            throw new NullPointerException();
+        }
+        return enqueue(new ScheduledTask<Void>(Executors.callable(command, null), deadlineOf(delay, unit), 0L));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        if (callable == null || unit == null) {
+            throw new NullPointerException();
+        }
+        return enqueue(new ScheduledTask<>(callable, deadlineOf(delay, unit), 0L));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        if (command == null || unit == null) {
+            throw new NullPointerException();
+        }
+        if (period <= 0L) {
+            throw new IllegalArgumentException("period le 0");
+        }
+        return enqueue(new ScheduledTask<Void>(Executors.callable(command, null), deadlineOf(initialDelay, unit), unit.toNanos(period)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        if (command == null || unit == null) {
+            throw new NullPointerException();
+        }
+        if (delay <= 0L) {
+            throw new IllegalArgumentException("delay le 0");
+        }
+        return enqueue(new ScheduledTask<Void>(Executors.callable(command, null), deadlineOf(initialDelay, unit), -unit.toNanos(delay)));
+    }
+
+    /**
+     * Executes command in {@code dispatchExecutor} immediately, bypassing the wheel.
+     */
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (shutdown) {
+            throw new LightweightRejectedExecutionException("Executor shutdown");
+        }
+        dispatchExecutor.execute(command);
+    }
+
+    private void runTimer() {
+        while (!shutdown) {
+            long now = waitForNextTick();
+            if (now < 0L) {
+                break;
+            }
+            processCancelledTasks();
+            transferPendingTasks();
+            wheel[(int) (tick & mask)].expire(now);
+            tick++;
+        }
+        List<Runnable> unexpired = new ArrayList<>();
+        for (Bucket bucket : wheel) {
+            bucket.clear(unexpired);
+        }
+        ScheduledTask<?> task;
+        while ((task = pendingTasks.poll()) != null) {
+            if (!task.isCancelled()) {
+                unexpired.add(task);
+            }
+        }
+        for (Runnable r : unexpired) {
+            ((ScheduledTask<?>) r).cancel(false);
+        }
+        cancelledTasks.clear();
+        unexpiredTasks = unexpired;
+        dispatchExecutor.shutdown();
+    }
+
+    /**
+     * @return relative time of current tick, or -1 if shutdown
+     */
+    private long waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        for (; ; ) {
+            long current = relativeNanos();
+            long sleepNanos = deadline - current;
+            if (sleepNanos <= 0L) {
+                return current;
+            }
+            LockSupport.parkNanos(this, sleepNanos);
+            if (shutdown) {
+                return -1L;
+            }
+        }
+    }
+
+    private void processCancelledTasks() {
+        ScheduledTask<?> task;
+        while ((task = cancelledTasks.poll()) != null) {
+            Bucket bucket = task.bucket;
+            if (bucket != null) {
+                bucket.remove(task);
+            }
+        }
+    }
+
+    private void transferPendingTasks() {
+        for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+            ScheduledTask<?> task = pendingTasks.poll();
+            if (task == null) {
+                break;
+            }
+            if (task.isCancelled()) {
+                continue;
+            }
+            long calculated = task.deadline / tickNanos;
+            task.remainingRounds = (calculated - tick) / wheel.length;
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(task);
+        }
+    }
+
+    private void dispatch(ScheduledTask<?> task) {
+        try {
+            dispatchExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            task.setRejected(e);
+        } catch (Throwable throwable) {
+            log.error("dispatch ex caught", throwable);
+            task.setRejected(throwable);
+        }
+    }
+
+    /**
+     * Stops the timer thread, cancels timers which are not expired yet, and then shuts down {@code dispatchExecutor}.
+     */
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        LockSupport.unpark(timerThread);
+    }
+
+    /**
+     * Stops the timer thread, and then shuts down {@code dispatchExecutor} now.
+     *
+     * @return cancelled timers which are not expired yet, and tasks never commenced in {@code dispatchExecutor}
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        if (Thread.currentThread() != timerThread) {
+            boolean interrupted = false;
+            while (timerThread.isAlive()) {
+                try {
+                    timerThread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Runnable> result = new ArrayList<>();
+        List<Runnable> unexpired = this.unexpiredTasks;
+        if (unexpired != null) {
+            result.addAll(unexpired);
+        }
+        result.addAll(dispatchExecutor.shutdownNow());
+        return result;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && !timerThread.isAlive() && dispatchExecutor.isTerminated();
+    }
+
+    /**
+     * Wait for the timer thread and {@code dispatchExecutor} to terminate, they share one deadline.
+     */
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remainingMillis > 0L) {
+            timerThread.join(remainingMillis);
+        }
+        if (timerThread.isAlive()) {
+            return false;
+        }
+        return dispatchExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Doubly linked list of timers in one slot of the wheel, accessed only by timer thread.
+     */
+    private final class Bucket {
+
+        private ScheduledTask<?> head;
+        private ScheduledTask<?> tail;
+
+        void add(ScheduledTask<?> task) {
+            task.bucket = this;
+            if (head == null) {
+                head = tail = task;
+            } else {
+                tail.next = task;
+                task.prev = tail;
+                tail = task;
+            }
+        }
+
+        ScheduledTask<?> remove(ScheduledTask<?> task) {
+            ScheduledTask<?> next = task.next;
+            if (task.prev != null) {
+                task.prev.next = next;
+            }
+            if (task.next != null) {
+                task.next.prev = task.prev;
+            }
+            if (task == head) {
+                head = next;
+            }
+            if (task == tail) {
+                tail = task.prev;
+            }
+            task.prev = null;
+            task.next = null;
+            task.bucket = null;
+            return next;
+        }
+
+        void expire(long now) {
+            ScheduledTask<?> task = head;
+            while (task != null) {
+                if (task.isCancelled()) {
+                    task = remove(task);
+                } else if (task.remainingRounds <= 0L) {
+                    ScheduledTask<?> next = remove(task);
+                    if (task.deadline <= now) {
+                        dispatch(task);
+                    } else {
+                        // should not happen, put it back with fresh rounds
+                        pendingTasks.offer(task);
+                    }
+                    task = next;
+                } else {
+                    task.remainingRounds--;
+                    task = task.next;
+                }
+            }
+        }
+
+        void clear(List<Runnable> unexpired) {
+            ScheduledTask<?> task = head;
+            while (task != null) {
+                ScheduledTask<?> next = remove(task);
+                if (!task.isCancelled()) {
+                    unexpired.add(task);
+                }
+                task = next;
+            }
+        }
+    }
+
+    /**
+     * Timer, it's a {@link FutureTask} dispatched into {@code dispatchExecutor} on expiration.
+     */
+    private final class ScheduledTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        /**
+         * Relative deadline in nanoseconds. Updated by worker before a periodic timer is handed over to timer thread again.
+         */
+        private volatile long deadline;
+        /**
+         * Positive for fixed-rate, negative for fixed-delay, 0 for one-shot.
+         */
+        private final long period;
+
+        // accessed only by timer thread
+        private long remainingRounds;
+        private Bucket bucket;
+        private ScheduledTask<?> prev;
+        private ScheduledTask<?> next;
+
+        ScheduledTask(Callable<V> callable, long deadline, long period) {
+            super(callable);
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return period != 0L;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadline - relativeNanos(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            if (other == this) {
+                return 0;
+            }
+            if (other instanceof ScheduledTask) {
+                return Long.compare(deadline, ((ScheduledTask<?>) other).deadline);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+
+        @Override
+        public void run() {
+            if (!isPeriodic()) {
+                super.run();
+            } else if (super.runAndReset()) {
+                long deadline = this.deadline;
+                this.deadline = period > 0L ? deadline + period : relativeNanos() - period;
+                pendingTasks.offer(this);
+                if (shutdown) {
+                    cancel(false);
+                }
+            }
+        }
+
+        /**
+         * Cancelled timer is removed from the wheel on next tick.
+         */
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                cancelledTasks.offer(this);
+            }
+            return cancelled;
+        }
+
+        void setRejected(Throwable throwable) {
+            setException(throwable);
+        }
+    }
+
+}
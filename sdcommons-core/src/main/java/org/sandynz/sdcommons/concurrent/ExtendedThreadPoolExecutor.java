@@ -16,36 +16,71 @@
  */
 package org.sandynz.sdcommons.concurrent;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * {@linkplain ThreadPoolExecutor} extension.
  * <p>
- * {@link ExecutorAddWorkerStrategy} abstraction added.
+ * {@link ExecutorAddWorkerStrategy}, {@link ExecutorWorkerIdleStrategy} and {@link WorkerRetirementPolicy} abstraction added.
+ * <p>
+ * {@link RunnableListener}s could be registered on executor, they're invoked in {@link #beforeExecute(Thread, Runnable)}
+ * and {@link #afterExecute(Runnable, Throwable)}, tasks are not wrapped. Subclasses overriding these hooks should invoke super.
+ * <p>
+ * {@link ContextPropagator}s could be registered to propagate thread context to workers. Tasks are wrapped only if some context is captured,
+ * the wrapper is visible in {@link #getQueue()}, but it's unwrapped for listeners, {@link #remove(Runnable)}, {@link #purge()} and {@link #shutdownNow()}.
  *
  * @author sandynz
  */
+@Slf4j
 public class ExtendedThreadPoolExecutor extends ThreadPoolExecutor {
 
     public ExtendedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue);
+        this.name = defaultName();
     }
 
     public ExtendedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory);
+        this.name = defaultName();
     }
 
     public ExtendedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue, RejectedExecutionHandler handler) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, handler);
+        this.name = defaultName();
     }
 
     public ExtendedThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit, BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory, RejectedExecutionHandler handler) {
         super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler);
+        this.name = defaultName();
+    }
+
+    /**
+     * Name of this executor, carried by events.
+     */
+    private final String name;
+
+    public String getName() {
+        return name;
     }
 
-    private ExecutorAddWorkerStrategy addWorkerStrategy;
+    private String defaultName() {
+        return getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(this));
+    }
+
+    /**
+     * Used if {@link #addWorkerStrategy} is not set, it's stateless and shared to avoid allocation on every submission.
+     */
+    private static final ExecutorAddWorkerStrategy DEFAULT_ADD_WORKER_STRATEGY = new ExecutorAddWorkerOriginalStrategy();
+
+    private volatile ExecutorAddWorkerStrategy addWorkerStrategy;
 
     public ExecutorAddWorkerStrategy getAddWorkerStrategy() {
         return addWorkerStrategy;
@@ -59,11 +94,151 @@ public class ExtendedThreadPoolExecutor extends ThreadPoolExecutor {
         return this;
     }
 
+    private volatile ExecutorWorkerIdleStrategy workerIdleStrategy;
+
+    public ExecutorWorkerIdleStrategy getWorkerIdleStrategy() {
+        return workerIdleStrategy;
+    }
+
+    public ExtendedThreadPoolExecutor setWorkerIdleStrategy(ExecutorWorkerIdleStrategy workerIdleStrategy) {
+        if (this.workerIdleStrategy != null) {
+            throw new IllegalStateException("workerIdleStrategy already set");
+        }
+        this.workerIdleStrategy = workerIdleStrategy;
+        return this;
+    }
+
+    private volatile WorkerRetirementPolicy workerRetirementPolicy;
+
+    public WorkerRetirementPolicy getWorkerRetirementPolicy() {
+        return workerRetirementPolicy;
+    }
+
+    public ExtendedThreadPoolExecutor setWorkerRetirementPolicy(WorkerRetirementPolicy workerRetirementPolicy) {
+        if (this.workerRetirementPolicy != null) {
+            throw new IllegalStateException("workerRetirementPolicy already set");
+        }
+        this.workerRetirementPolicy = workerRetirementPolicy;
+        return this;
+    }
+
     public ExtendedThreadPoolExecutor(ExecutorConstructionCfg cfg) {
-        super(cfg.getCorePoolSize(), cfg.getMaxPoolSize(), cfg.getKeepAliveTime(), cfg.getUnit(), cfg.getWorkQueue(), cfg.getThreadFactory(), cfg.getHandler());
+        super(cfg.getCorePoolSize(), cfg.getMaxPoolSize(), cfg.getKeepAliveTime(), cfg.getUnit(), workQueueOf(cfg),
+                cfg.getThreadFactory() != null ? cfg.getThreadFactory() : Executors.defaultThreadFactory(),
+                cfg.getHandler() != null ? cfg.getHandler() : new AbortPolicy());
+        this.name = cfg.getName() != null ? cfg.getName() : defaultName();
         if (cfg.getAddWorkerStrategy() != null) {
             this.setAddWorkerStrategy(cfg.getAddWorkerStrategy());
         }
+        if (cfg.getWorkerIdleStrategy() != null) {
+            this.setWorkerIdleStrategy(cfg.getWorkerIdleStrategy());
+        }
+        if (cfg.getWorkerRetirementPolicy() != null) {
+            this.setWorkerRetirementPolicy(cfg.getWorkerRetirementPolicy());
+        }
+        applyWorkQueueCapacity(cfg.getWorkQueueCapacity());
+        this.constructionCfg = cfg;
+    }
+
+    /**
+     * @return work queue of {@code cfg}, or a new {@link ResizableBlockingQueue} if only {@code workQueueCapacity} is set
+     */
+    private static BlockingQueue<Runnable> workQueueOf(ExecutorConstructionCfg cfg) {
+        if (cfg.getWorkQueue() == null && cfg.getWorkQueueCapacity() > 0) {
+            return new ResizableBlockingQueue<>(cfg.getWorkQueueCapacity());
+        }
+        return cfg.getWorkQueue();
+    }
+
+    /**
+     * Configuration last applied by constructor or {@link #reconfigure(ExecutorConstructionCfg)}.
+     */
+    private volatile ExecutorConstructionCfg constructionCfg;
+
+    /**
+     * @return configuration last applied, null if the executor is not constructed by {@link ExecutorConstructionCfg}.
+     * Strategies and thread factory etc could be changed by setters after that.
+     */
+    public ExecutorConstructionCfg getConstructionCfg() {
+        return constructionCfg;
+    }
+
+    /**
+     * Applies pool sizes, keep-alive time, strategies, thread factory, rejected execution handler and work queue capacity of {@code cfg}
+     * without restarting, queued tasks and running workers are kept.
+     * Strategies which are null in {@code cfg} are unset, while thread factory and handler which are null are kept.
+     * Work queue and name could not be replaced.
+     * <p>
+     * It's recommended to build {@code cfg} from {@code getConstructionCfg().toBuilder()}.
+     *
+     * @throws NullPointerException     if {@code cfg} or its {@code unit} is null
+     * @throws IllegalArgumentException if {@code cfg} has another work queue, or {@code corePoolSize} less than 0,
+     *                                  or {@code maxPoolSize} less than 1 or {@code corePoolSize}, or keep-alive time less than 0,
+     *                                  or {@code workQueueCapacity} is set but work queue is not {@link ResizableBlockingQueue},
+     *                                  or keep-alive time is 0 while core threads are allowed to time out.
+     *                                  Nothing is applied in this case.
+     */
+    public synchronized void reconfigure(ExecutorConstructionCfg cfg) {
+        if (cfg == null) {
+            throw new NullPointerException("cfg null");
+        }
+        if (cfg.getUnit() == null) {
+            throw new NullPointerException("unit null");
+        }
+        if (cfg.getWorkQueue() != null && cfg.getWorkQueue() != getQueue()) {
+            throw new IllegalArgumentException("work queue could not be replaced");
+        }
+        if (cfg.getCorePoolSize() < 0) {
+            throw new IllegalArgumentException("corePoolSize lt 0");
+        }
+        if (cfg.getMaxPoolSize() < 1) {
+            throw new IllegalArgumentException("maxPoolSize lt 1");
+        }
+        if (cfg.getKeepAliveTime() < 0) {
+            throw new IllegalArgumentException("keepAliveTime lt 0");
+        }
+        if (cfg.getMaxPoolSize() < cfg.getCorePoolSize()) {
+            throw new IllegalArgumentException("maxPoolSize lt corePoolSize");
+        }
+        if (cfg.getWorkQueueCapacity() > 0 && !(getQueue() instanceof ResizableBlockingQueue)) {
+            throw new IllegalArgumentException("workQueueCapacity set but work queue is not resizable");
+        }
+        if (cfg.getKeepAliveTime() == 0 && allowsCoreThreadTimeOut()) {
+            throw new IllegalArgumentException("Core threads must have nonzero keep alive times");
+        }
+
+        // keep corePoolSize le maximumPoolSize during changes
+        if (cfg.getCorePoolSize() > getMaximumPoolSize()) {
+            setMaximumPoolSize(cfg.getMaxPoolSize());
+            setCorePoolSize(cfg.getCorePoolSize());
+        } else {
+            setCorePoolSize(cfg.getCorePoolSize());
+            setMaximumPoolSize(cfg.getMaxPoolSize());
+        }
+        setKeepAliveTime(cfg.getKeepAliveTime(), cfg.getUnit());
+        this.addWorkerStrategy = cfg.getAddWorkerStrategy();
+        this.workerIdleStrategy = cfg.getWorkerIdleStrategy();
+        this.workerRetirementPolicy = cfg.getWorkerRetirementPolicy();
+        if (cfg.getThreadFactory() != null) {
+            setThreadFactory(cfg.getThreadFactory());
+        }
+        if (cfg.getHandler() != null) {
+            setRejectedExecutionHandler(cfg.getHandler());
+        }
+        applyWorkQueueCapacity(cfg.getWorkQueueCapacity());
+        log.info("reconfigured, cfg={}", cfg);
+        this.constructionCfg = cfg;
+    }
+
+    private void applyWorkQueueCapacity(int workQueueCapacity) {
+        if (workQueueCapacity <= 0) {
+            return;
+        }
+        BlockingQueue<Runnable> workQueue = getQueue();
+        if (!(workQueue instanceof ResizableBlockingQueue)) {
+            throw new IllegalArgumentException("workQueueCapacity set but work queue is not resizable");
+        }
+        ((ResizableBlockingQueue<Runnable>) workQueue).setCapacity(workQueueCapacity);
     }
 
     /**
@@ -76,9 +251,434 @@ public class ExtendedThreadPoolExecutor extends ThreadPoolExecutor {
         }
         ExecutorAddWorkerStrategy addWorkerStrategy = this.addWorkerStrategy;
         if (addWorkerStrategy == null) {
-            addWorkerStrategy = new ExecutorAddWorkerOriginalStrategy();
+            addWorkerStrategy = DEFAULT_ADD_WORKER_STRATEGY;
+        }
+        ContextPropagator<?>[] contextPropagators = this.contextPropagators;
+        if (contextPropagators.length > 0) {
+            command = ContextCarrier.wrap(command, contextPropagators);
         }
         addWorkerStrategy.addWorker(command, super.getExecutorExtContext());
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean tryExecute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException("command is null");
+        }
+        ExecutorAddWorkerStrategy addWorkerStrategy = this.addWorkerStrategy;
+        if (addWorkerStrategy == null) {
+            addWorkerStrategy = DEFAULT_ADD_WORKER_STRATEGY;
+        }
+        ContextPropagator<?>[] contextPropagators = this.contextPropagators;
+        if (contextPropagators.length > 0) {
+            command = ContextCarrier.wrap(command, contextPropagators);
+        }
+        if (!addWorkerStrategy.tryAddWorker(command, super.getExecutorExtContext())) {
+            super.recordRejection(command);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Executes tasks in a batch, with costs amortized:
+     * <ol>
+     * <li>Add-worker strategy decides once how many workers to add by
+     * {@link ExecutorAddWorkerStrategy#getBatchWorkerCount(int, ExecutorExtContext)}, they start with the first tasks,
+     * as core or non-core workers by {@link ExecutorAddWorkerStrategy#isBatchWorkerCore(ExecutorExtContext)}.</li>
+     * <li>The following tasks are queued at once, with one lock acquisition if work queue is a {@link ResizableBlockingQueue}.</li>
+     * <li>Tasks which work queue could not hold are handed to new workers up to maximum pool size, the others are rejected.</li>
+     * </ol>
+     * Like {@link #tryExecute(Runnable)}, rejected execution handler is not invoked, rejected tasks are reported by result.
+     * Contexts of {@link ContextPropagator}s are captured once for all tasks.
+     *
+     * @param commands tasks to execute
+     * @return accepted count and rejected tasks
+     * @throws NullPointerException if {@code commands} or any of its elements is null, nothing is executed in this case
+     */
+    public ExecuteAllResult executeAll(Collection<? extends Runnable> commands) {
+        if (commands == null) {
+            throw new NullPointerException("commands null");
+        }
+        List<Runnable> originals = new ArrayList<>(commands);
+        for (Runnable command : originals) {
+            if (command == null) {
+                throw new NullPointerException("command is null");
+            }
+        }
+        int taskCount = originals.size();
+        List<Runnable> tasks = originals;
+        ContextPropagator<?>[] contextPropagators = this.contextPropagators;
+        if (contextPropagators.length > 0) {
+            tasks = ContextCarrier.wrapAll(originals, contextPropagators);
+        }
+        ExecutorAddWorkerStrategy addWorkerStrategy = this.addWorkerStrategy;
+        if (addWorkerStrategy == null) {
+            addWorkerStrategy = DEFAULT_ADD_WORKER_STRATEGY;
+        }
+        ExecutorExtContext ctx = super.getExecutorExtContext();
+
+        int index = 0;
+        List<Runnable> rejectedTasks = new ArrayList<>();
+        if (ctx.isRunning()) {
+            // Step 1, workers with first tasks
+            int workerCount = Math.min(taskCount, addWorkerStrategy.getBatchWorkerCount(taskCount, ctx));
+            boolean core = addWorkerStrategy.isBatchWorkerCore(ctx);
+            while (index < workerCount && ctx.addWorker(tasks.get(index), core)) {
+                index++;
+            }
+            // Step 2, queue at once, and recheck the same way as execute
+            int queueFrom = index;
+            index += ctx.offerTasks(tasks, index);
+            if (index > queueFrom) {
+                if (!ctx.isRunning()) {
+                    for (int i = queueFrom; i < index; i++) {
+                        if (ctx.removeTask(tasks.get(i))) {
+                            super.recordRejection(tasks.get(i));
+                            rejectedTasks.add(originals.get(i));
+                        }
+                    }
+                } else if (ctx.getWorkerCount() == 0) {
+                    ctx.addWorker(null, false);
+                }
+            }
+            // Step 3, overflow to new workers
+            while (index < taskCount && ctx.addWorker(tasks.get(index), false)) {
+                index++;
+            }
+        }
+        for (int i = index; i < taskCount; i++) {
+            super.recordRejection(tasks.get(i));
+            rejectedTasks.add(originals.get(i));
+        }
+        return new ExecuteAllResult(taskCount - rejectedTasks.size(), rejectedTasks);
+    }
+
+    /**
+     * Delegates to {@link ExecutorWorkerIdleStrategy} if set.
+     */
+    @Override
+    protected Runnable pollTaskBeforeWait() {
+        ExecutorWorkerIdleStrategy workerIdleStrategy = this.workerIdleStrategy;
+        if (workerIdleStrategy == null) {
+            return null;
+        }
+        return workerIdleStrategy.awaitTask(super.getExecutorExtContext());
+    }
+
+    @Override
+    protected boolean isWaitTimed() {
+        return this.workerIdleStrategy != null;
+    }
+
+    @Override
+    protected void afterWait(long waitNanos) {
+        ExecutorWorkerIdleStrategy workerIdleStrategy = this.workerIdleStrategy;
+        if (workerIdleStrategy != null) {
+            workerIdleStrategy.afterPark(waitNanos);
+        }
+    }
+
+    /**
+     * Emits {@link ExecutorEvents} event.
+     */
+    @Override
+    protected void workerAdded(Thread t) {
+        ExecutorEvents.workerAdded(this, t);
+    }
+
+    /**
+     * Emits {@link ExecutorEvents} event.
+     */
+    @Override
+    protected void workerExited(Thread t, boolean completedAbruptly) {
+        ExecutorEvents.workerExited(this, t, completedAbruptly);
+    }
+
+    /**
+     * Emits {@link ExecutorEvents} event.
+     */
+    @Override
+    protected void taskRejected(Runnable r, RejectedExecutionCause cause) {
+        ExecutorEvents.taskRejected(this, cause);
+    }
+
+    /**
+     * Emits {@link ExecutorEvents} event.
+     */
+    @Override
+    protected void queueFull(Runnable r) {
+        ExecutorEvents.queueFull(this);
+    }
+
+    /**
+     * Emits {@link ExecutorEvents} event.
+     */
+    @Override
+    protected void taskSampled(Runnable r, long waitNanos, long runNanos) {
+        ExecutorEvents.taskSampled(this, waitNanos, runNanos);
+    }
+
+    /**
+     * Delegates to {@link WorkerRetirementPolicy} if set.
+     */
+    @Override
+    protected long idleTimeoutNanos() {
+        WorkerRetirementPolicy workerRetirementPolicy = this.workerRetirementPolicy;
+        if (workerRetirementPolicy == null) {
+            return super.idleTimeoutNanos();
+        }
+        return workerRetirementPolicy.getIdleTimeoutNanos(super.getExecutorExtContext());
+    }
+
+    /**
+     * Delegates to {@link WorkerRetirementPolicy} if set.
+     */
+    @Override
+    protected boolean retireIdleWorker(int workerCount) {
+        WorkerRetirementPolicy workerRetirementPolicy = this.workerRetirementPolicy;
+        if (workerRetirementPolicy == null) {
+            return super.retireIdleWorker(workerCount);
+        }
+        return workerRetirementPolicy.retire(super.getExecutorExtContext());
+    }
+
+    private static final RunnableListener[] EMPTY_LISTENERS = new RunnableListener[0];
+
+    /**
+     * Copy-on-write listeners array.
+     */
+    private volatile RunnableListener[] runnableListeners = EMPTY_LISTENERS;
+
+    /**
+     * Set once the first listener added, worker frames are not looked up before that.
+     */
+    private volatile boolean listenerEverAdded;
+
+    /**
+     * Per-worker listener frame, reused across tasks.
+     */
+    private final ThreadLocal<ListenerFrame> listenerFrames = ThreadLocal.withInitial(ListenerFrame::new);
+
+    /**
+     * Registers listener, it's invoked for tasks started after registration.
+     *
+     * @throws NullPointerException if {@code listener} is null
+     */
+    public synchronized void addRunnableListener(RunnableListener listener) {
+        if (listener == null) {
+            throw new NullPointerException("listener null");
+        }
+        RunnableListener[] listeners = this.runnableListeners;
+        RunnableListener[] newListeners = Arrays.copyOf(listeners, listeners.length + 1);
+        newListeners[listeners.length] = listener;
+        this.listenerEverAdded = true;
+        this.runnableListeners = newListeners;
+    }
+
+    /**
+     * Unregisters listener, it's still invoked on tasks started before.
+     *
+     * @return true if listener was registered
+     */
+    public synchronized boolean removeRunnableListener(RunnableListener listener) {
+        RunnableListener[] listeners = this.runnableListeners;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                RunnableListener[] newListeners = new RunnableListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, newListeners, 0, i);
+                System.arraycopy(listeners, i + 1, newListeners, i, listeners.length - i - 1);
+                this.runnableListeners = newListeners.length == 0 ? EMPTY_LISTENERS : newListeners;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public RunnableListener[] getRunnableListeners() {
+        return runnableListeners.clone();
+    }
+
+    /**
+     * Samples for {@link WorkerRetirementPolicy}, restores contexts, and invokes {@link RunnableListener#beforeExecute(Thread, Runnable)}
+     * of registered listeners, attachments are kept in per-worker frame.
+     */
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        WorkerRetirementPolicy workerRetirementPolicy = this.workerRetirementPolicy;
+        if (workerRetirementPolicy != null) {
+            workerRetirementPolicy.taskStarted(super.getExecutorExtContext());
+        }
+        if (r instanceof ContextCarrier) {
+            ContextCarrier carrier = (ContextCarrier) r;
+            carrier.restore();
+            r = carrier.getTask();
+        }
+        if (!listenerEverAdded) {
+            return;
+        }
+        RunnableListener[] listeners = this.runnableListeners;
+        if (listeners.length == 0) {
+            return;
+        }
+        ListenerFrame frame = listenerFrames.get();
+        Object[] attachments = frame.prepare(listeners);
+        for (int i = 0; i < listeners.length; i++) {
+            Object beforeRet;
+            try {
+                beforeRet = listeners[i].beforeExecute(t, r);
+            } catch (Throwable throwable) {
+                beforeRet = throwable;
+            }
+            attachments[i] = beforeRet;
+        }
+    }
+
+    /**
+     * Invokes {@link RunnableListener#afterExecute(Runnable, Throwable, Object)} of listeners which are invoked in
+     * {@link #beforeExecute(Thread, Runnable)}, exceptions thrown by listeners are logged and ignored.
+     */
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        ContextCarrier carrier = null;
+        if (r instanceof ContextCarrier) {
+            carrier = (ContextCarrier) r;
+            r = carrier.getTask();
+        }
+        if (listenerEverAdded) {
+            invokeAfterExecute(r, t);
+        }
+        if (carrier != null) {
+            carrier.reset();
+        }
+    }
+
+    private void invokeAfterExecute(Runnable r, Throwable t) {
+        ListenerFrame frame = listenerFrames.get();
+        RunnableListener[] listeners = frame.listeners;
+        if (listeners == null) {
+            return;
+        }
+        Object[] attachments = frame.attachments;
+        for (int i = 0; i < listeners.length; i++) {
+            try {
+                listeners[i].afterExecute(r, t, attachments[i]);
+            } catch (Throwable throwable) {
+                log.error("afterExecute ex caught", throwable);
+                // ignore
+            }
+        }
+        frame.clear();
+    }
+
+    private static final ContextPropagator<?>[] EMPTY_PROPAGATORS = new ContextPropagator<?>[0];
+
+    /**
+     * Copy-on-write propagators array.
+     */
+    private volatile ContextPropagator<?>[] contextPropagators = EMPTY_PROPAGATORS;
+
+    /**
+     * Registers context propagator, it's applied to tasks submitted after registration.
+     *
+     * @throws NullPointerException if {@code propagator} is null
+     */
+    public synchronized void addContextPropagator(ContextPropagator<?> propagator) {
+        if (propagator == null) {
+            throw new NullPointerException("propagator null");
+        }
+        ContextPropagator<?>[] propagators = this.contextPropagators;
+        ContextPropagator<?>[] newPropagators = Arrays.copyOf(propagators, propagators.length + 1);
+        newPropagators[propagators.length] = propagator;
+        this.contextPropagators = newPropagators;
+    }
+
+    /**
+     * Unregisters context propagator, tasks submitted before are still restored and reset by it.
+     *
+     * @return true if propagator was registered
+     */
+    public synchronized boolean removeContextPropagator(ContextPropagator<?> propagator) {
+        ContextPropagator<?>[] propagators = this.contextPropagators;
+        for (int i = 0; i < propagators.length; i++) {
+            if (propagators[i] == propagator) {
+                ContextPropagator<?>[] newPropagators = new ContextPropagator<?>[propagators.length - 1];
+                System.arraycopy(propagators, 0, newPropagators, 0, i);
+                System.arraycopy(propagators, i + 1, newPropagators, i, propagators.length - i - 1);
+                this.contextPropagators = newPropagators.length == 0 ? EMPTY_PROPAGATORS : newPropagators;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public ContextPropagator<?>[] getContextPropagators() {
+        return contextPropagators.clone();
+    }
+
+    /**
+     * Removes the task, or its context wrapper, from the work queue.
+     */
+    @Override
+    public boolean remove(Runnable task) {
+        if (super.remove(task)) {
+            return true;
+        }
+        if (contextPropagators.length == 0) {
+            return false;
+        }
+        for (Runnable r : getQueue()) {
+            if (r instanceof ContextCarrier && ((ContextCarrier) r).getTask() == task) {
+                return super.remove(r);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Context wrappers of returned tasks are unwrapped.
+     */
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> tasks = super.shutdownNow();
+        tasks.replaceAll(ContextCarrier::unwrap);
+        return tasks;
+    }
+
+    @Override
+    protected Runnable unwrapTask(Runnable r) {
+        return ContextCarrier.unwrap(r);
+    }
+
+    @Override
+    protected Runnable wrapTask(Runnable r) {
+        ContextPropagator<?>[] contextPropagators = this.contextPropagators;
+        return contextPropagators.length > 0 ? ContextCarrier.wrap(r, contextPropagators) : r;
+    }
+
+    /**
+     * Listeners snapshot and attachments of the running task of a worker.
+     */
+    private static final class ListenerFrame {
+
+        private RunnableListener[] listeners;
+        private Object[] attachments = new Object[4];
+
+        Object[] prepare(RunnableListener[] listeners) {
+            this.listeners = listeners;
+            if (attachments.length < listeners.length) {
+                attachments = new Object[listeners.length];
+            }
+            return attachments;
+        }
+
+        void clear() {
+            Arrays.fill(attachments, 0, listeners.length, null);
+            listeners = null;
+        }
+    }
+
 }
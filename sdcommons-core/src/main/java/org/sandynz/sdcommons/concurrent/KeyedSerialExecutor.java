@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Key-affinity executor on top of {@linkplain ExtendedThreadPoolExecutor},
+ * tasks of the same key are executed serially in submission order, tasks of different keys are executed in parallel.
+ * <p>
+ * Every key owns a lazily created lock-free mailbox, at most one task per key is in flight.
+ * A mailbox is submitted to the executor as one task, which runs at most {@code throughput} tasks of the key
+ * and then resubmits itself, so no worker blocks waiting for another key's task.
+ * Mailbox is reclaimed when it's empty.
+ * <p>
+ * Mailboxes are submitted by {@linkplain ThreadPoolExecutor#tryExecute(Runnable)}, the executor's rejected execution handler is not used.
+ * If a new mailbox is rejected, the submitted task is removed and {@linkplain LightweightRejectedExecutionException} is thrown.
+ * Tasks which other submitters enqueued into that mailbox meanwhile were already accepted, so the mailbox is submitted once more for them;
+ * if it's still rejected, they're rejected too: {@link Future} tasks, e.g. returned by {@code submit}, are cancelled,
+ * and all of them are counted in {@linkplain #getRejectedTaskCount()}.
+ * If a running mailbox could not be resubmitted, it keeps running in the current worker.
+ * <p>
+ * Exceptions thrown by tasks are logged and ignored.
+ *
+ * @param <K> type of key
+ * @author sandynz
+ */
+@Slf4j
+public class KeyedSerialExecutor<K> {
+
+    /**
+     * Mailbox state after it's reclaimed, no more tasks could be enqueued.
+     */
+    private static final int DEAD = -1;
+
+    private final ExtendedThreadPoolExecutor executor;
+    private final int throughput;
+
+    private final ConcurrentHashMap<K, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private final Function<K, Mailbox> mailboxFactory = Mailbox::new;
+
+    private final LongAdder rejectedTaskCount = new LongAdder();
+
+    /**
+     * Run at most 8 tasks of a key before resubmitting the mailbox.
+     */
+    public KeyedSerialExecutor(ExtendedThreadPoolExecutor executor) {
+        this(executor, 8);
+    }
+
+    /**
+     * @param executor   executor to run tasks
+     * @param throughput max count of tasks of one key run in a row before yielding the worker to other tasks
+     * @throws NullPointerException     if {@code executor} is null
+     * @throws IllegalArgumentException if {@code throughput} less than 1
+     */
+    public KeyedSerialExecutor(ExtendedThreadPoolExecutor executor, int throughput) {
+        if (executor == null) {
+            throw new NullPointerException("executor null");
+        }
+        if (throughput < 1) {
+            throw new IllegalArgumentException("throughput lt 1");
+        }
+        this.executor = executor;
+        this.throughput = throughput;
+    }
+
+    public ExtendedThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return count of rejected tasks, including tasks rejected after being enqueued, see {@linkplain KeyedSerialExecutor}
+     */
+    public long getRejectedTaskCount() {
+        return rejectedTaskCount.sum();
+    }
+
+    /**
+     * @return count of mailboxes which are not reclaimed yet
+     */
+    public int getMailboxCount() {
+        return mailboxes.size();
+    }
+
+    /**
+     * Executes the given task after all tasks of the same key submitted before it.
+     *
+     * @throws NullPointerException                  if {@code key} or {@code task} is null
+     * @throws LightweightRejectedExecutionException if the mailbox of the key could not be submitted to executor
+     */
+    public void execute(K key, Runnable task) {
+        if (key == null || task == null) {
+            throw new NullPointerException();
+        }
+        for (; ; ) {
+            Mailbox mailbox = mailboxes.get(key);
+            if (mailbox == null) {
+                mailbox = mailboxes.computeIfAbsent(key, mailboxFactory);
+            }
+            int prev = mailbox.incrementPending();
+            if (prev == DEAD) {
+                // reclaimed, help to remove it, and retry with a new one
+                mailboxes.remove(key, mailbox);
+                continue;
+            }
+            mailbox.queue.offer(task);
+            if (prev == 0 && !executor.tryExecute(mailbox)) {
+                int cancelled = mailbox.abandon(task);
+                if (cancelled > 0) {
+                    log.warn("mailbox rejected, tasks of other submitters rejected, key={}, rejected={}", key, cancelled);
+                }
+                rejectedTaskCount.add(cancelled + 1);
+                throw new LightweightRejectedExecutionException("mailbox of key " + key + " rejected");
+            }
+            return;
+        }
+    }
+
+    /**
+     * Submits a value-returning task, executed after all tasks of the same key submitted before it.
+     *
+     * @see #execute(Object, Runnable)
+     */
+    public <T> Future<T> submit(K key, Callable<T> task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        FutureTask<T> futureTask = new FutureTask<>(task);
+        execute(key, futureTask);
+        return futureTask;
+    }
+
+    /**
+     * Submits a task, executed after all tasks of the same key submitted before it.
+     *
+     * @see #execute(Object, Runnable)
+     */
+    public Future<?> submit(K key, Runnable task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        FutureTask<Void> futureTask = new FutureTask<>(task, null);
+        execute(key, futureTask);
+        return futureTask;
+    }
+
+    /**
+     * Mailbox of a key.
+     * <p>
+     * {@code pending} is the count of tasks enqueued and not finished, or {@link #DEAD}.
+     * The submitter which increases it from 0 owns the mailbox and submits it to executor,
+     * the owner gives up ownership when it decreases it to 0.
+     */
+    private final class Mailbox implements Runnable {
+
+        private final K key;
+        private final ConcurrentLinkedQueue<Runnable> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        Mailbox(K key) {
+            this.key = key;
+        }
+
+        /**
+         * @return previous pending count, or {@link #DEAD} if it's reclaimed
+         */
+        int incrementPending() {
+            AtomicInteger pending = this.pending;
+            for (; ; ) {
+                int c = pending.get();
+                if (c == DEAD) {
+                    return DEAD;
+                }
+                if (pending.compareAndSet(c, c + 1)) {
+                    return c;
+                }
+            }
+        }
+
+        /**
+         * Give up ownership after the last pending task finished, reclaim mailbox if no more tasks.
+         *
+         * @return true if more tasks are pending and ownership is kept
+         */
+        private boolean finishOne() {
+            if (pending.decrementAndGet() != 0) {
+                return true;
+            }
+            if (pending.compareAndSet(0, DEAD)) {
+                mailboxes.remove(key, this);
+            }
+            return false;
+        }
+
+        /**
+         * Remove the owner's rejected task, then submit the mailbox again for tasks of other submitters,
+         * or reject them if it's still rejected. Called by owner after the mailbox is rejected.
+         *
+         * @param ownTask task of the owner, it's in the queue
+         * @return count of rejected tasks of other submitters
+         */
+        int abandon(Runnable ownTask) {
+            for (Iterator<Runnable> iterator = queue.iterator(); iterator.hasNext(); ) {
+                if (iterator.next() == ownTask) {
+                    iterator.remove();
+                    break;
+                }
+            }
+            if (!finishOne() || executor.tryExecute(this)) {
+                return 0;
+            }
+            int rejected = 0;
+            do {
+                Runnable task;
+                while ((task = queue.poll()) == null) {
+                    // pending increased but task not enqueued yet
+                    Thread.yield();
+                }
+                if (task instanceof Future) {
+                    ((Future<?>) task).cancel(false);
+                }
+                rejected++;
+            } while (finishOne());
+            return rejected;
+        }
+
+        @Override
+        public void run() {
+            int count = 0;
+            for (; ; ) {
+                Runnable task = queue.poll();
+                if (task == null) {
+                    // pending increased but task not enqueued yet, don't wait for it in this worker
+                    if (executor.tryExecute(this)) {
+                        return;
+                    }
+                    Thread.yield();
+                    continue;
+                }
+                try {
+                    task.run();
+                } catch (Throwable throwable) {
+                    log.error("task ex caught, key={}", key, throwable);
+                    // ignore
+                }
+                if (!finishOne()) {
+                    return;
+                }
+                if (++count >= throughput) {
+                    if (executor.tryExecute(this)) {
+                        return;
+                    }
+                    // saturated or shutdown, keep running in current worker
+                    count = 0;
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Mailbox{" +
+                    "key=" + key +
+                    ", pending=" + pending +
+                    '}';
+        }
+    }
+
+}
@@ -16,15 +16,48 @@
  */
 package org.sandynz.sdcommons.concurrent;
 
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Rejected task handler implementation that throws {@link RejectedExecutionException}.
+ * <p>
+ * By default, exception message contains the task and the executor, {@code executor.toString()} acquires the executor's main lock.
+ * In preallocated mode, a shared stackless exception of the rejection cause is thrown, nothing is allocated and no lock is acquired,
+ * so rejection storms are cheap. Preallocated exceptions should not be modified, e.g. by {@link Throwable#addSuppressed(Throwable)}.
  *
  * @author sandynz
  */
 public class LightweightAbortPolicy implements RejectedExecutionHandler {
 
+    private static final Map<RejectedExecutionCause, LightweightRejectedExecutionException> PREALLOCATED_EXCEPTIONS;
+
+    static {
+        Map<RejectedExecutionCause, LightweightRejectedExecutionException> exceptions = new EnumMap<>(RejectedExecutionCause.class);
+        for (RejectedExecutionCause cause : RejectedExecutionCause.values()) {
+            exceptions.put(cause, new LightweightRejectedExecutionException("Task rejected, cause=" + cause, cause));
+        }
+        PREALLOCATED_EXCEPTIONS = exceptions;
+    }
+
+    private final boolean preallocated;
+
+    public LightweightAbortPolicy() {
+        this(false);
+    }
+
+    /**
+     * @param preallocated whether to throw preallocated exceptions or not
+     */
+    public LightweightAbortPolicy(boolean preallocated) {
+        this.preallocated = preallocated;
+    }
+
+    public boolean isPreallocated() {
+        return preallocated;
+    }
+
     /**
      * Always throw RejectedExecutionException.
      *
@@ -35,4 +68,25 @@ public class LightweightAbortPolicy implements RejectedExecutionHandler {
         throw new LightweightRejectedExecutionException("Task " + r + " rejected by " + executor);
     }
 
+    /**
+     * Always throw RejectedExecutionException, preallocated one of {@code cause} in preallocated mode.
+     *
+     * @throws LightweightRejectedExecutionException always
+     */
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor, RejectedExecutionCause cause) {
+        throw newException(r, executor, cause);
+    }
+
+    /**
+     * @param executor the executor rejecting the task, it's only used in exception message
+     * @return exception to throw, preallocated one in preallocated mode
+     */
+    LightweightRejectedExecutionException newException(Runnable r, Object executor, RejectedExecutionCause cause) {
+        if (preallocated) {
+            return PREALLOCATED_EXCEPTIONS.get(cause);
+        }
+        return new LightweightRejectedExecutionException("Task " + r + " rejected by " + executor, cause);
+    }
+
 }
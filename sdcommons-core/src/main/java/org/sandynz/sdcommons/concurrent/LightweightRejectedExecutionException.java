@@ -27,19 +27,37 @@ public class LightweightRejectedExecutionException extends RejectedExecutionExce
 
     private static final long serialVersionUID = 1;
 
+    /**
+     * Cause of the rejection, null if unknown.
+     */
+    private final RejectedExecutionCause rejectionCause;
+
     public LightweightRejectedExecutionException() {
+        this.rejectionCause = null;
     }
 
     public LightweightRejectedExecutionException(String message) {
         super(message);
+        this.rejectionCause = null;
+    }
+
+    public LightweightRejectedExecutionException(String message, RejectedExecutionCause rejectionCause) {
+        super(message);
+        this.rejectionCause = rejectionCause;
     }
 
     public LightweightRejectedExecutionException(String message, Throwable cause) {
         super(message, cause);
+        this.rejectionCause = null;
     }
 
     public LightweightRejectedExecutionException(Throwable cause) {
         super(cause);
+        this.rejectionCause = null;
+    }
+
+    public RejectedExecutionCause getRejectionCause() {
+        return rejectionCause;
     }
 
     @Override
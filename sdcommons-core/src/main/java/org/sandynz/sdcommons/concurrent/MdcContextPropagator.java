@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.slf4j.spi.MDCAdapter;
+
+/**
+ * {@link ContextPropagator} of SLF4J {@link MDC}.
+ * <p>
+ * Empty MDC is not propagated. With logback, MDC map is copy-on-write, so the map reference is captured without copying,
+ * and tasks submitted while MDC is unchanged share the same map; with other MDC adapters, MDC is copied once per submission.
+ * Previous MDC of the worker thread is restored after the task.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class MdcContextPropagator implements ContextPropagator<Map<String, String>> {
+
+    private static final String LOGBACK_MDC_ADAPTER = "ch.qos.logback.classic.util.LogbackMDCAdapter";
+
+    /**
+     * {@code LogbackMDCAdapter#getPropertyMap()} bound to the adapter, or null if the adapter is not logback's.
+     * The returned map is never modified after it's read, following modification copies it.
+     */
+    private static final MethodHandle PROPERTY_MAP = propertyMapHandle();
+
+    private static MethodHandle propertyMapHandle() {
+        MDCAdapter adapter = MDC.getMDCAdapter();
+        if (adapter == null || !LOGBACK_MDC_ADAPTER.equals(adapter.getClass().getName())) {
+            return null;
+        }
+        try {
+            return MethodHandles.publicLookup()
+                    .findVirtual(adapter.getClass(), "getPropertyMap", MethodType.methodType(Map.class))
+                    .bindTo(adapter);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("getPropertyMap not found, MDC is copied on capture, adapter={}", adapter.getClass().getName(), e);
+            return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> currentContextMap() {
+        MethodHandle propertyMap = PROPERTY_MAP;
+        if (propertyMap == null) {
+            return MDC.getCopyOfContextMap();
+        }
+        try {
+            return (Map<String, String>) propertyMap.invokeExact();
+        } catch (Throwable throwable) {
+            return MDC.getCopyOfContextMap();
+        }
+    }
+
+    @Override
+    public Map<String, String> capture() {
+        Map<String, String> contextMap = currentContextMap();
+        return contextMap == null || contextMap.isEmpty() ? null : contextMap;
+    }
+
+    @Override
+    public Map<String, String> restore(Map<String, String> context) {
+        Map<String, String> previous = currentContextMap();
+        MDC.setContextMap(context);
+        return previous;
+    }
+
+    @Override
+    public void reset(Map<String, String> context, Map<String, String> previous) {
+        if (previous == null || previous.isEmpty()) {
+            MDC.clear();
+        } else {
+            MDC.setContextMap(previous);
+        }
+    }
+
+}
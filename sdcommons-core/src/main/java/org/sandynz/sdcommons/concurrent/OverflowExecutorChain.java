@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cascading overflow executor, includes an ordered list of {@linkplain Tier}.
+ * <p>
+ * Task is submitted to the first tier which admits it, i.e. its {@linkplain ExecutorAdmissionPredicate} passed and
+ * {@linkplain ThreadPoolExecutor#tryExecute(Runnable)} succeeded, otherwise it overflows to next tier.
+ * The last tier is not tried, a task which overflowed from all previous tiers is submitted to it by
+ * {@linkplain ThreadPoolExecutor#execute(Runnable)} once, so the last tier's rejected execution handler decides,
+ * and the last tier's admission predicate is ignored.
+ * <p>
+ * It's a generalization of {@linkplain DualExecutor}.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class OverflowExecutorChain extends AbstractExecutorService {
+
+    /**
+     * Tier of {@linkplain OverflowExecutorChain}.
+     */
+    public static class Tier {
+
+        private final String name;
+        private final ThreadPoolExecutor executor;
+        private final ExecutorAdmissionPredicate admissionPredicate;
+
+        private final LongAdder admittedCount = new LongAdder();
+        private final LongAdder overflowCount = new LongAdder();
+
+        /**
+         * @param name               tier name
+         * @param executor           executor of this tier
+         * @param admissionPredicate admission predicate, null means admit all tasks if executor accepts, ignored for the last tier of a chain
+         * @throws NullPointerException if {@code name} or {@code executor} is null
+         */
+        public Tier(String name, ThreadPoolExecutor executor, ExecutorAdmissionPredicate admissionPredicate) {
+            if (name == null || executor == null) {
+                throw new NullPointerException();
+            }
+            this.name = name;
+            this.executor = executor;
+            this.admissionPredicate = admissionPredicate;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ThreadPoolExecutor getExecutor() {
+            return executor;
+        }
+
+        public ExecutorAdmissionPredicate getAdmissionPredicate() {
+            return admissionPredicate;
+        }
+
+        /**
+         * @return count of tasks admitted by this tier
+         */
+        public long getAdmittedCount() {
+            return admittedCount.sum();
+        }
+
+        /**
+         * @return count of tasks not admitted by this tier, which overflowed to next tier;
+         * for the last tier, count of tasks its rejected execution handler threw {@link RejectedExecutionException} for
+         */
+        public long getOverflowCount() {
+            return overflowCount.sum();
+        }
+
+        boolean tryExecute(Runnable command) {
+            ExecutorAdmissionPredicate admissionPredicate = this.admissionPredicate;
+            if ((admissionPredicate == null || admissionPredicate.admit(command, executor)) && executor.tryExecute(command)) {
+                admittedCount.increment();
+                return true;
+            }
+            overflowCount.increment();
+            return false;
+        }
+
+        void execute(Runnable command) {
+            try {
+                executor.execute(command);
+            } catch (RejectedExecutionException e) {
+                overflowCount.increment();
+                throw e;
+            }
+            admittedCount.increment();
+        }
+
+        @Override
+        public String toString() {
+            return "Tier{" +
+                    "name='" + name + '\'' +
+                    ", admittedCount=" + admittedCount +
+                    ", overflowCount=" + overflowCount +
+                    '}';
+        }
+    }
+
+    private final Tier[] tiers;
+
+    /**
+     * @param tiers ordered tiers, the first one has the highest priority
+     * @throws NullPointerException     if {@code tiers} or any tier is null
+     * @throws IllegalArgumentException if {@code tiers} is empty
+     */
+    public OverflowExecutorChain(List<Tier> tiers) {
+        if (tiers == null) {
+            throw new NullPointerException("tiers null");
+        }
+        if (tiers.isEmpty()) {
+            throw new IllegalArgumentException("tiers empty");
+        }
+        Tier[] array = tiers.toArray(new Tier[0]);
+        for (Tier tier : array) {
+            if (tier == null) {
+                throw new NullPointerException("tier null");
+            }
+        }
+        this.tiers = array;
+    }
+
+    public List<Tier> getTiers() {
+        List<Tier> result = new ArrayList<>(tiers.length);
+        Collections.addAll(result, tiers);
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException("command is null");
+        }
+        Tier[] tiers = this.tiers;
+        int last = tiers.length - 1;
+        for (int i = 0; i < last; i++) {
+            if (tiers[i].tryExecute(command)) {
+                return;
+            }
+        }
+        if (log.isDebugEnabled() && last > 0) {
+            log.debug("command overflowed to the last tier, command={}", command);
+        }
+        tiers[last].execute(command);
+    }
+
+    @Override
+    public void shutdown() {
+        for (Tier tier : tiers) {
+            tier.executor.shutdown();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> result = new ArrayList<>();
+        for (Tier tier : tiers) {
+            result.addAll(tier.executor.shutdownNow());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        for (Tier tier : tiers) {
+            if (!tier.executor.isShutdown()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        for (Tier tier : tiers) {
+            if (!tier.executor.isTerminated()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wait for all tiers to terminate, all tiers share one deadline.
+     */
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Tier tier : tiers) {
+            if (!tier.executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Fan-out helper with bounded parallelism per call, over a shared {@link ExtendedThreadPoolExecutor}.
+ * <p>
+ * Unlike {@link java.util.concurrent.ExecutorService#invokeAll(java.util.Collection)}, at most {@code maxInFlight} subtasks of a call
+ * are submitted at a time, the next one is submitted by the calling thread when one completes, so one large call could not flood the shared queue.
+ * Once the outcome is decided (first failure, quorum reached, or timeout), the rest are not submitted, and in-flight ones are cancelled
+ * with interruption and removed from work queue.
+ * <p>
+ * Subtasks are submitted by {@link ExtendedThreadPoolExecutor#execute(Runnable)}, if one is rejected, in-flight ones are cancelled and
+ * {@link java.util.concurrent.RejectedExecutionException} is thrown. Subtasks discarded by the rejected execution handler never complete,
+ * use timed methods with discarding handlers.
+ *
+ * @author sandynz
+ */
+public class ParallelFanOut {
+
+    private final ExtendedThreadPoolExecutor executor;
+    private final int maxInFlight;
+
+    /**
+     * @param executor    executor running subtasks
+     * @param maxInFlight max number of subtasks of one call, submitted but not completed
+     */
+    public ParallelFanOut(ExtendedThreadPoolExecutor executor, int maxInFlight) {
+        if (executor == null) {
+            throw new NullPointerException("executor null");
+        }
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight lt 1");
+        }
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public ExtendedThreadPoolExecutor getExecutor() {
+        return executor;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Executes all tasks, fails fast on the first failure.
+     *
+     * @return results in the order of {@code tasks}
+     * @throws ExecutionException   of the first failed task, others are cancelled
+     * @throws InterruptedException if interrupted while waiting, tasks are cancelled
+     */
+    public <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+        try {
+            return invoke(tasks, tasks.size(), true, Long.MAX_VALUE);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("unexpected timeout", e);
+        }
+    }
+
+    /**
+     * Executes all tasks, fails fast on the first failure or timeout.
+     *
+     * @return results in the order of {@code tasks}
+     * @throws ExecutionException   of the first failed task, others are cancelled
+     * @throws TimeoutException     if timeout expires before all tasks complete, tasks are cancelled
+     * @throws InterruptedException if interrupted while waiting, tasks are cancelled
+     */
+    public <T> List<T> invokeAll(List<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        return invoke(tasks, tasks.size(), true, unit.toNanos(timeout));
+    }
+
+    /**
+     * Executes tasks until {@code quorum} of them succeed, failures are tolerated while the quorum is still reachable.
+     *
+     * @return {@code quorum} results in completion order
+     * @throws ExecutionException   of the first failed task, if the quorum becomes unreachable
+     * @throws InterruptedException if interrupted while waiting, tasks are cancelled
+     */
+    public <T> List<T> invokeQuorum(List<? extends Callable<T>> tasks, int quorum) throws InterruptedException, ExecutionException {
+        try {
+            return invokeQuorum(tasks, quorum, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("unexpected timeout", e);
+        }
+    }
+
+    /**
+     * Executes tasks until {@code quorum} of them succeed, failures are tolerated while the quorum is still reachable.
+     *
+     * @return {@code quorum} results in completion order
+     * @throws IllegalArgumentException if {@code quorum} is less than 1 or greater than number of tasks
+     * @throws ExecutionException       of the first failed task, if the quorum becomes unreachable
+     * @throws TimeoutException         if timeout expires before the quorum is reached, tasks are cancelled
+     * @throws InterruptedException     if interrupted while waiting, tasks are cancelled
+     */
+    public <T> List<T> invokeQuorum(List<? extends Callable<T>> tasks, int quorum, long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        if (quorum < 1 || quorum > tasks.size()) {
+            throw new IllegalArgumentException("quorum out of range, quorum=" + quorum + ", taskCount=" + tasks.size());
+        }
+        return invoke(tasks, quorum, false, unit.toNanos(timeout));
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> invoke(List<? extends Callable<T>> tasks, int quorum, boolean inOrder, long timeoutNanos)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        for (Callable<T> task : tasks) {
+            if (task == null) {
+                throw new NullPointerException("task null");
+            }
+        }
+        int taskCount = tasks.size();
+        if (taskCount == 0) {
+            return Collections.emptyList();
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        BlockingQueue<Subtask<T>> completedQueue = new LinkedBlockingQueue<>();
+        List<Subtask<T>> submitted = new ArrayList<>(Math.min(taskCount, maxInFlight));
+        Object[] results = inOrder ? new Object[taskCount] : null;
+        List<T> quorumResults = inOrder ? null : new ArrayList<>(quorum);
+        int next = 0;
+        int successCount = 0;
+        int failureCount = 0;
+        ExecutionException firstFailure = null;
+        try {
+            while (next < taskCount && next < maxInFlight) {
+                submit(tasks.get(next), next, completedQueue, submitted);
+                next++;
+            }
+            while (successCount < quorum) {
+                Subtask<T> subtask;
+                if (timeoutNanos == Long.MAX_VALUE) {
+                    subtask = completedQueue.take();
+                } else {
+                    subtask = completedQueue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (subtask == null) {
+                        throw new TimeoutException("fan-out timeout, succeeded " + successCount + " of " + quorum);
+                    }
+                }
+                try {
+                    T result = subtask.get();
+                    successCount++;
+                    if (inOrder) {
+                        results[subtask.index] = result;
+                    } else {
+                        quorumResults.add(result);
+                    }
+                } catch (ExecutionException e) {
+                    failureCount++;
+                    if (firstFailure == null) {
+                        firstFailure = e;
+                    }
+                    if (inOrder || taskCount - failureCount < quorum) {
+                        throw firstFailure;
+                    }
+                }
+                if (successCount < quorum && next < taskCount) {
+                    submit(tasks.get(next), next, completedQueue, submitted);
+                    next++;
+                }
+            }
+        } finally {
+            if (successCount < quorum || !inOrder) {
+                cancel(submitted);
+            }
+        }
+        return inOrder ? (List<T>) Arrays.asList(results) : quorumResults;
+    }
+
+    private <T> void submit(Callable<T> task, int index, BlockingQueue<Subtask<T>> completedQueue, List<Subtask<T>> submitted) {
+        Subtask<T> subtask = new Subtask<>(task, index, completedQueue);
+        submitted.add(subtask);
+        executor.execute(subtask);
+    }
+
+    private void cancel(List<? extends Subtask<?>> submitted) {
+        for (Subtask<?> subtask : submitted) {
+            if (!subtask.isDone() && subtask.cancel(true)) {
+                executor.remove(subtask);
+            }
+        }
+    }
+
+    private static final class Subtask<T> extends FutureTask<T> {
+
+        private final int index;
+        private final BlockingQueue<Subtask<T>> completedQueue;
+
+        Subtask(Callable<T> callable, int index, BlockingQueue<Subtask<T>> completedQueue) {
+            super(callable);
+            this.index = index;
+            this.completedQueue = completedQueue;
+        }
+
+        @Override
+        protected void done() {
+            if (!isCancelled()) {
+                completedQueue.add(this);
+            }
+        }
+    }
+
+}
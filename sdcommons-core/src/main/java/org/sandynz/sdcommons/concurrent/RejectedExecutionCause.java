@@ -0,0 +1,41 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+/**
+ * Cause of task rejection, classified by {@link ThreadPoolExecutor} from its state at rejection time, without locking.
+ *
+ * @author sandynz
+ */
+public enum RejectedExecutionCause {
+
+    /**
+     * Executor is not running.
+     */
+    SHUTDOWN,
+    /**
+     * Work queue is full and there're tasks buffered in it, no more thread could be added.
+     */
+    QUEUE_FULL,
+    /**
+     * No task is buffered in work queue (e.g. {@link java.util.concurrent.SynchronousQueue}),
+     * and no more thread could be added.
+     */
+    MAX_THREADS,
+    ;
+
+}
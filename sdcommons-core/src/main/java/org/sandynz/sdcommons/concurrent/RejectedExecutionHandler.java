@@ -32,4 +32,34 @@ public interface RejectedExecutionHandler {
      * @throws RejectedExecutionException if there is no remedy
      */
     void rejectedExecution(Runnable r, ThreadPoolExecutor executor);
+
+    /**
+     * Tries to admit the task instead of rejecting it, e.g. by waiting
+     * for queue space. Invoked by {@link ThreadPoolExecutor} before the
+     * rejection is counted; if it returns true, the task is not counted
+     * as rejected and {@code rejectedExecution} is not invoked.
+     * Returns false by default.
+     *
+     * @param r        the runnable task requested to be executed
+     * @param executor the executor attempting to execute this task
+     * @return true if the task is accepted by the executor
+     */
+    default boolean tryAdmit(Runnable r, ThreadPoolExecutor executor) {
+        return false;
+    }
+
+    /**
+     * The same as {@link #rejectedExecution(Runnable, ThreadPoolExecutor)},
+     * with the cause classified and counted by the executor. It's the
+     * method invoked by {@link ThreadPoolExecutor}, and delegates to the
+     * two-argument one by default.
+     *
+     * @param r        the runnable task requested to be executed
+     * @param executor the executor attempting to execute this task
+     * @param cause    the rejection cause
+     * @throws RejectedExecutionException if there is no remedy
+     */
+    default void rejectedExecution(Runnable r, ThreadPoolExecutor executor, RejectedExecutionCause cause) {
+        rejectedExecution(r, executor);
+    }
 }
@@ -0,0 +1,720 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded blocking queue based on linked nodes, which capacity could be changed at runtime.
+ * <p>
+ * It's a two-lock queue like {@link java.util.concurrent.LinkedBlockingQueue}, producers and consumers don't contend on the same lock.
+ * If capacity is lowered below current size, queued elements are kept, and insertions fail or block until size drops below new capacity.
+ * <p>
+ * Iterator is a snapshot of elements, {@link Iterator#remove()} removes the element from queue.
+ *
+ * @param <E> the type of elements held in this queue
+ * @author sandynz
+ */
+public class ResizableBlockingQueue<E> extends AbstractQueue<E> implements BlockingQueue<E> {
+
+    /**
+     * Linked list node class
+     */
+    static class Node<E> {
+        E item;
+
+        /**
+         * One of:
+         * - the real successor Node
+         * - this Node, meaning the successor is head.next
+         * - null, meaning there is no successor (this is the last node)
+         */
+        Node<E> next;
+
+        /**
+         * {@link System#nanoTime()} when the node was created, right before it's linked
+         */
+        final long enqueueNanos;
+
+        Node(E x) {
+            this(x, System.nanoTime());
+        }
+
+        Node(E x, long enqueueNanos) {
+            item = x;
+            this.enqueueNanos = enqueueNanos;
+        }
+    }
+
+    /**
+     * The capacity bound, changed by {@link #setCapacity(int)}
+     */
+    private volatile int capacity;
+
+    /**
+     * Current number of elements
+     */
+    private final AtomicInteger count = new AtomicInteger();
+
+    /**
+     * Head of linked list.
+     * Invariant: head.item == null
+     * Written under takeLock, volatile so that {@link #getHeadWaitNanos()} could read it without locking.
+     */
+    private volatile Node<E> head;
+
+    /**
+     * Tail of linked list.
+     * Invariant: last.next == null
+     */
+    private Node<E> last;
+
+    /**
+     * Lock held by take, poll, etc
+     */
+    private final ReentrantLock takeLock = new ReentrantLock();
+
+    /**
+     * Wait queue for waiting takes
+     */
+    private final Condition notEmpty = takeLock.newCondition();
+
+    /**
+     * Lock held by put, offer, etc
+     */
+    private final ReentrantLock putLock = new ReentrantLock();
+
+    /**
+     * Wait queue for waiting puts
+     */
+    private final Condition notFull = putLock.newCondition();
+
+    /**
+     * @param capacity initial capacity of this queue
+     * @throws IllegalArgumentException if {@code capacity} is not greater than zero
+     */
+    public ResizableBlockingQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity le 0");
+        }
+        this.capacity = capacity;
+        last = head = new Node<>(null);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns how long the head element has been waiting in this queue, without locking.
+     * <p>
+     * It's exact in quiescent state, while racing with takes it may briefly report the wait of the element just taken.
+     *
+     * @return wait of the head element in nanoseconds, 0 if the queue is empty
+     */
+    public long getHeadWaitNanos() {
+        if (count.get() == 0) {
+            return 0L;
+        }
+        // racing with a take, it may be a taken node linking to itself, which enqueueNanos is of an element already taken
+        Node<E> first = head.next;
+        if (first == null) {
+            return 0L;
+        }
+        long waitNanos = System.nanoTime() - first.enqueueNanos;
+        return waitNanos > 0L ? waitNanos : 0L;
+    }
+
+    /**
+     * Changes capacity, waiting producers are woken up if capacity is raised.
+     *
+     * @throws IllegalArgumentException if {@code capacity} is not greater than zero
+     */
+    public void setCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity le 0");
+        }
+        int oldCapacity = this.capacity;
+        this.capacity = capacity;
+        if (capacity > oldCapacity) {
+            final ReentrantLock putLock = this.putLock;
+            putLock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                putLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Signals a waiting take. Called only from put/offer (which do not
+     * otherwise ordinarily lock takeLock.)
+     */
+    private void signalNotEmpty() {
+        final ReentrantLock takeLock = this.takeLock;
+        takeLock.lock();
+        try {
+            notEmpty.signal();
+        } finally {
+            takeLock.unlock();
+        }
+    }
+
+    /**
+     * Signals a waiting put. Called only from take/poll.
+     */
+    private void signalNotFull() {
+        final ReentrantLock putLock = this.putLock;
+        putLock.lock();
+        try {
+            notFull.signal();
+        } finally {
+            putLock.unlock();
+        }
+    }
+
+    /**
+     * Links node at end of queue.
+     *
+     * @param node the node
+     */
+    private void enqueue(Node<E> node) {
+        // assert putLock.isHeldByCurrentThread();
+        // assert last.next == null;
+        last = last.next = node;
+    }
+
+    /**
+     * Removes a node from head of queue.
+     *
+     * @return the node
+     */
+    private E dequeue() {
+        // assert takeLock.isHeldByCurrentThread();
+        // assert head.item == null;
+        Node<E> h = head;
+        Node<E> first = h.next;
+        h.next = h; // help GC
+        head = first;
+        E x = first.item;
+        first.item = null;
+        return x;
+    }
+
+    /**
+     * Locks to prevent both puts and takes.
+     */
+    private void fullyLock() {
+        putLock.lock();
+        takeLock.lock();
+    }
+
+    /**
+     * Unlocks to allow both puts and takes.
+     */
+    private void fullyUnlock() {
+        takeLock.unlock();
+        putLock.unlock();
+    }
+
+    @Override
+    public int size() {
+        return count.get();
+    }
+
+    /**
+     * @return capacity minus current size, or 0 if capacity is lowered below current size
+     */
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, capacity - count.get());
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        final int c;
+        final Node<E> node = new Node<>(e);
+        final ReentrantLock putLock = this.putLock;
+        final AtomicInteger count = this.count;
+        putLock.lockInterruptibly();
+        try {
+            while (count.get() >= capacity) {
+                notFull.await();
+            }
+            enqueue(node);
+            c = count.getAndIncrement();
+            if (c + 1 < capacity) {
+                notFull.signal();
+            }
+        } finally {
+            putLock.unlock();
+        }
+        if (c == 0) {
+            signalNotEmpty();
+        }
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long nanos = unit.toNanos(timeout);
+        final int c;
+        final ReentrantLock putLock = this.putLock;
+        final AtomicInteger count = this.count;
+        putLock.lockInterruptibly();
+        try {
+            while (count.get() >= capacity) {
+                if (nanos <= 0L) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(new Node<>(e));
+            c = count.getAndIncrement();
+            if (c + 1 < capacity) {
+                notFull.signal();
+            }
+        } finally {
+            putLock.unlock();
+        }
+        if (c == 0) {
+            signalNotEmpty();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        final AtomicInteger count = this.count;
+        if (count.get() >= capacity) {
+            return false;
+        }
+        final int c;
+        final Node<E> node = new Node<>(e);
+        final ReentrantLock putLock = this.putLock;
+        putLock.lock();
+        try {
+            if (count.get() >= capacity) {
+                return false;
+            }
+            enqueue(node);
+            c = count.getAndIncrement();
+            if (c + 1 < capacity) {
+                notFull.signal();
+            }
+        } finally {
+            putLock.unlock();
+        }
+        if (c == 0) {
+            signalNotEmpty();
+        }
+        return true;
+    }
+
+    /**
+     * Inserts elements of {@code elements} from {@code fromIndex} in order, while there's remaining capacity,
+     * with one acquisition of the put lock.
+     *
+     * @return number of elements inserted, the first ones from {@code fromIndex}
+     * @throws NullPointerException if {@code elements} or its element is null, nothing is inserted in this case
+     */
+    public int offerAll(List<? extends E> elements, int fromIndex) {
+        int size = elements.size();
+        if (fromIndex >= size) {
+            return 0;
+        }
+        final AtomicInteger count = this.count;
+        int n = Math.min(size - fromIndex, capacity - count.get());
+        if (n <= 0) {
+            return 0;
+        }
+        // link nodes before locking
+        long enqueueNanos = System.nanoTime();
+        Node<E> head = new Node<>(null, enqueueNanos);
+        Node<E> tail = head;
+        for (int i = 0; i < n; i++) {
+            E e = elements.get(fromIndex + i);
+            if (e == null) {
+                throw new NullPointerException();
+            }
+            tail = tail.next = new Node<>(e, enqueueNanos);
+        }
+        final int c;
+        final ReentrantLock putLock = this.putLock;
+        putLock.lock();
+        try {
+            // capacity may be reached or shrunk since the read above
+            int available = capacity - count.get();
+            if (available <= 0) {
+                return 0;
+            }
+            if (available < n) {
+                n = available;
+                tail = head;
+                for (int i = 0; i < n; i++) {
+                    tail = tail.next;
+                }
+                tail.next = null;
+            }
+            last.next = head.next;
+            last = tail;
+            c = count.getAndAdd(n);
+            if (c + n < capacity) {
+                notFull.signal();
+            }
+        } finally {
+            putLock.unlock();
+        }
+        if (c == 0) {
+            // takers cascade the signal while elements remain
+            signalNotEmpty();
+        }
+        return n;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        final E x;
+        final int c;
+        final AtomicInteger count = this.count;
+        final ReentrantLock takeLock = this.takeLock;
+        takeLock.lockInterruptibly();
+        try {
+            while (count.get() == 0) {
+                notEmpty.await();
+            }
+            x = dequeue();
+            c = count.getAndDecrement();
+            if (c > 1) {
+                notEmpty.signal();
+            }
+        } finally {
+            takeLock.unlock();
+        }
+        if (c >= capacity) {
+            signalNotFull();
+        }
+        return x;
+    }
+
+    @Override
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        final E x;
+        final int c;
+        long nanos = unit.toNanos(timeout);
+        final AtomicInteger count = this.count;
+        final ReentrantLock takeLock = this.takeLock;
+        takeLock.lockInterruptibly();
+        try {
+            while (count.get() == 0) {
+                if (nanos <= 0L) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            x = dequeue();
+            c = count.getAndDecrement();
+            if (c > 1) {
+                notEmpty.signal();
+            }
+        } finally {
+            takeLock.unlock();
+        }
+        if (c >= capacity) {
+            signalNotFull();
+        }
+        return x;
+    }
+
+    @Override
+    public E poll() {
+        final AtomicInteger count = this.count;
+        if (count.get() == 0) {
+            return null;
+        }
+        final E x;
+        final int c;
+        final ReentrantLock takeLock = this.takeLock;
+        takeLock.lock();
+        try {
+            if (count.get() == 0) {
+                return null;
+            }
+            x = dequeue();
+            c = count.getAndDecrement();
+            if (c > 1) {
+                notEmpty.signal();
+            }
+        } finally {
+            takeLock.unlock();
+        }
+        if (c >= capacity) {
+            signalNotFull();
+        }
+        return x;
+    }
+
+    @Override
+    public E peek() {
+        if (count.get() == 0) {
+            return null;
+        }
+        final ReentrantLock takeLock = this.takeLock;
+        takeLock.lock();
+        try {
+            return (count.get() > 0) ? head.next.item : null;
+        } finally {
+            takeLock.unlock();
+        }
+    }
+
+    /**
+     * Unlinks interior Node p with predecessor trail.
+     */
+    private void unlink(Node<E> p, Node<E> trail) {
+        // assert putLock.isHeldByCurrentThread();
+        // assert takeLock.isHeldByCurrentThread();
+        p.item = null;
+        trail.next = p.next;
+        if (last == p) {
+            last = trail;
+        }
+        if (count.getAndDecrement() >= capacity) {
+            notFull.signal();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        fullyLock();
+        try {
+            for (Node<E> trail = head, p = trail.next;
+                    p != null;
+                    trail = p, p = p.next) {
+                if (o.equals(p.item)) {
+                    unlink(p, trail);
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            fullyUnlock();
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        fullyLock();
+        try {
+            for (Node<E> p = head.next; p != null; p = p.next) {
+                if (o.equals(p.item)) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            fullyUnlock();
+        }
+    }
+
+    @Override
+    public Object[] toArray() {
+        fullyLock();
+        try {
+            int size = count.get();
+            Object[] a = new Object[size];
+            int k = 0;
+            for (Node<E> p = head.next; p != null; p = p.next) {
+                a[k++] = p.item;
+            }
+            return a;
+        } finally {
+            fullyUnlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(T[] a) {
+        fullyLock();
+        try {
+            int size = count.get();
+            if (a.length < size) {
+                a = (T[]) java.lang.reflect.Array.newInstance(a.getClass().getComponentType(), size);
+            }
+            int k = 0;
+            for (Node<E> p = head.next; p != null; p = p.next) {
+                a[k++] = (T) p.item;
+            }
+            if (a.length > k) {
+                a[k] = null;
+            }
+            return a;
+        } finally {
+            fullyUnlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    @Override
+    public void clear() {
+        fullyLock();
+        try {
+            for (Node<E> p, h = head; (p = h.next) != null; h = p) {
+                h.next = h;
+                p.item = null;
+            }
+            head = last;
+            // assert head.item == null && head.next == null;
+            if (count.getAndSet(0) >= capacity) {
+                notFull.signalAll();
+            }
+        } finally {
+            fullyUnlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        if (maxElements <= 0) {
+            return 0;
+        }
+        boolean signalNotFull = false;
+        final ReentrantLock takeLock = this.takeLock;
+        takeLock.lock();
+        try {
+            int n = Math.min(maxElements, count.get());
+            // count.get provides visibility to first n Nodes
+            Node<E> h = head;
+            int i = 0;
+            try {
+                while (i < n) {
+                    Node<E> p = h.next;
+                    c.add(p.item);
+                    p.item = null;
+                    h.next = h;
+                    h = p;
+                    ++i;
+                }
+                return n;
+            } finally {
+                // Restore invariants even if c.add() threw
+                if (i > 0) {
+                    // assert h.item == null;
+                    head = h;
+                    signalNotFull = (count.getAndAdd(-i) >= capacity);
+                }
+            }
+        } finally {
+            takeLock.unlock();
+            if (signalNotFull) {
+                signalNotFull();
+            }
+        }
+    }
+
+    /**
+     * Returns an iterator over a snapshot of elements in this queue, in proper sequence.
+     * {@link Iterator#remove()} removes the last returned element from this queue, if it's still present.
+     */
+    @Override
+    public Iterator<E> iterator() {
+        return new SnapshotIterator();
+    }
+
+    private class SnapshotIterator implements Iterator<E> {
+
+        private final List<E> snapshot;
+        private int cursor;
+        private E lastRet;
+
+        @SuppressWarnings("unchecked")
+        SnapshotIterator() {
+            Object[] elements = toArray();
+            List<E> list = new ArrayList<>(elements.length);
+            for (Object element : elements) {
+                list.add((E) element);
+            }
+            this.snapshot = list;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cursor < snapshot.size();
+        }
+
+        @Override
+        public E next() {
+            if (cursor >= snapshot.size()) {
+                throw new NoSuchElementException();
+            }
+            lastRet = snapshot.get(cursor++);
+            return lastRet;
+        }
+
+        @Override
+        public void remove() {
+            if (lastRet == null) {
+                throw new IllegalStateException();
+            }
+            ResizableBlockingQueue.this.remove(lastRet);
+            lastRet = null;
+        }
+    }
+
+}
@@ -20,6 +20,9 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * {@link Runnable} wrapper, listenable.
+ * <p>
+ * To listen all tasks of an executor, prefer {@link ExtendedThreadPoolExecutor#addRunnableListener(RunnableListener)},
+ * which doesn't wrap tasks.
  *
  * @author sandynz
  */
@@ -41,6 +44,14 @@ public class RunnableListenSupport implements Runnable {
     @Override
     public void run() {
         RunnableListener[] runnableListeners = this.runnableListeners;
+        if (runnableListeners.length == 0) {
+            this.runnable.run();
+            return;
+        }
+        if (runnableListeners.length == 1) {
+            runSingle(runnableListeners[0]);
+            return;
+        }
         Object[] attachments = new Object[runnableListeners.length];
         int index = 0;
         final Thread currentThread = Thread.currentThread();
@@ -78,4 +89,33 @@ public class RunnableListenSupport implements Runnable {
         }
     }
 
+    /**
+     * The same as {@link #run()}, but keep the attachment in local variable, no attachments array allocated.
+     */
+    private void runSingle(RunnableListener listener) {
+        Object attachment;
+        try {
+            attachment = listener.beforeExecute(Thread.currentThread(), this.runnable);
+        } catch (Throwable throwable) {
+            attachment = throwable;
+        }
+        try {
+            this.runnable.run();
+        } catch (Throwable throwable) {
+            try {
+                listener.afterExecute(this.runnable, throwable, attachment);
+            } catch (Throwable e) {
+                log.error("afterExecute ex caught", e);
+                // ignore
+            }
+            throw throwable;
+        }
+        try {
+            listener.afterExecute(this.runnable, null, attachment);
+        } catch (Throwable throwable) {
+            log.error("afterExecute ex caught 2", throwable);
+            // ignore
+        }
+    }
+
 }
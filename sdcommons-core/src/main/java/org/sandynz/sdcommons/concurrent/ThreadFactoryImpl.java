@@ -42,6 +42,14 @@ public class ThreadFactoryImpl implements ThreadFactory {
         this.daemon = daemon;
     }
 
+    public String getNamePrefix() {
+        return namePrefix;
+    }
+
+    public boolean isDaemon() {
+        return daemon;
+    }
+
     @Override
     public Thread newThread(Runnable r) {
         Thread thread = this.defaultThreadFactory.newThread(r);
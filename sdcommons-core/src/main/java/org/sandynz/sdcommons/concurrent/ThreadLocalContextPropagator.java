@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+/**
+ * {@link ContextPropagator} of a {@link ThreadLocal}.
+ * <p>
+ * Value is propagated by reference without copying, it should be immutable.
+ * Null value is not propagated. Previous value of the worker thread is restored after the task.
+ *
+ * @param <T> type of value
+ * @author sandynz
+ */
+public class ThreadLocalContextPropagator<T> implements ContextPropagator<T> {
+
+    private final ThreadLocal<T> threadLocal;
+
+    /**
+     * @throws NullPointerException if {@code threadLocal} is null
+     */
+    public ThreadLocalContextPropagator(ThreadLocal<T> threadLocal) {
+        if (threadLocal == null) {
+            throw new NullPointerException("threadLocal null");
+        }
+        this.threadLocal = threadLocal;
+    }
+
+    @Override
+    public T capture() {
+        return threadLocal.get();
+    }
+
+    @Override
+    public T restore(T context) {
+        ThreadLocal<T> threadLocal = this.threadLocal;
+        T previous = threadLocal.get();
+        threadLocal.set(context);
+        return previous;
+    }
+
+    @Override
+    public void reset(T context, T previous) {
+        if (previous == null) {
+            threadLocal.remove();
+        } else {
+            threadLocal.set(previous);
+        }
+    }
+
+}
@@ -8,11 +8,12 @@ package org.sandynz.sdcommons.concurrent;
 
 import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.AbstractExecutorService;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -21,6 +22,8 @@ import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.AbstractQueuedSynchronizer;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.ReentrantLock;
@@ -437,25 +440,51 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
     private final BlockingQueue<Runnable> workQueue;
 
     /**
-     * Lock held on access to workers set and related bookkeeping.
-     * While we could use a concurrent set of some sort, it turns out
-     * to be generally preferable to use a lock. Among the reasons is
-     * that this serializes interruptIdleWorkers, which avoids
-     * unnecessary interrupt storms, especially during shutdown.
-     * Otherwise exiting threads would concurrently interrupt those
-     * that have not yet interrupted. It also simplifies some of the
-     * associated statistics bookkeeping of largestPoolSize etc. We
-     * also hold mainLock on shutdown and shutdownNow, for the sake of
-     * ensuring workers set is stable while separately checking
-     * permission to interrupt and actually interrupting.
+     * Approximate number of tasks held in workQueue. Incremented after
+     * a successful offer and decremented after a successful poll or
+     * removal, so that add worker strategies can read the queue depth
+     * without acquiring the queue's lock (e.g. ArrayBlockingQueue.size).
+     * A striped adder is used since both submitters and workers update
+     * it. The value may be transiently off (even negative) while
+     * offers and polls race, and drifts if the queue is modified
+     * directly through {@link #getQueue()}.
+     */
+    private final LongAdder queuedTaskCount = new LongAdder();
+
+    /**
+     * Queue wait sampler. At most one queued task is sampled at a
+     * time: a submitter claims the empty slot before offering its
+     * task (so that the worker taking it always sees the claim), and
+     * the slot is released when the task leaves the queue. The age of
+     * the sample is a cheap lower bound of the head-of-queue wait,
+     * since the sample is the oldest queued task or newer.
+     * waitSampleNanos is written right before the claim, and may be
+     * transiently off when submitters race for the slot.
+     */
+    private final AtomicReference<Runnable> waitSampleTask = new AtomicReference<>();
+    private volatile long waitSampleNanos;
+
+    /**
+     * Lock held on shutdown and termination transitions. Unlike the
+     * original implementation, workers set is a concurrent set and is
+     * mutated without this lock, so that bursts of addWorker and
+     * processWorkerExit don't serialize submitters on it. The lock
+     * still serializes interruptIdleWorkers, which avoids unnecessary
+     * interrupt storms, especially during shutdown. Otherwise exiting
+     * threads would concurrently interrupt those that have not yet
+     * interrupted. We also hold mainLock on shutdown and shutdownNow,
+     * for the sake of checking permission to interrupt and actually
+     * interrupting in one pass.
      */
     private final ReentrantLock mainLock = new ReentrantLock();
 
     /**
-     * Set containing all worker threads in pool. Accessed only when
-     * holding mainLock.
+     * Set containing all worker threads in pool. Mutated without
+     * mainLock. A worker is added before addWorker rechecks run state,
+     * and shutdown advances run state before iterating the set, so
+     * either addWorker backs out or shutdown sees the new worker.
      */
-    private final HashSet<Worker> workers = new HashSet<>();
+    private final Set<Worker> workers = ConcurrentHashMap.newKeySet();
 
     /**
      * Wait condition to support awaitTermination.
@@ -463,16 +492,29 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
     private final Condition termination = mainLock.newCondition();
 
     /**
-     * Tracks largest attained pool size. Accessed only under
-     * mainLock.
+     * Tracks largest attained pool size. Updated under mainLock,
+     * read without locking.
      */
-    private int largestPoolSize;
+    private final AtomicInteger largestPoolSize = new AtomicInteger();
 
     /**
-     * Counter for completed tasks. Updated only on termination of
-     * worker threads. Accessed only under mainLock.
+     * Counter for completed tasks, updated by workers after each task.
+     * Striped so that statistics could be read without mainLock.
      */
-    private long completedTaskCount;
+    private final LongAdder completedTaskCount = new LongAdder();
+
+    /**
+     * Counter for workers running tasks, updated by workers while
+     * holding their own lock around each task.
+     */
+    private final LongAdder activeTaskCount = new LongAdder();
+
+    /**
+     * Counters of rejected tasks, indexed by ordinal of
+     * RejectedExecutionCause. Striped since rejections come in
+     * storms from many submitters at once.
+     */
+    private final LongAdder[] rejectedTaskCounts = newRejectedTaskCounts();
 
     /*
      * All user control parameters are declared as volatiles so that
@@ -607,13 +649,10 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
          */
         Runnable firstTask;
         /**
-         * Per-thread task counter
+         * Queue wait of the task just taken by getTask if it's the
+         * queue wait sample, else -1. Accessed only by the worker thread.
          */
-        volatile long completedTasks;
-
-        // TODO: switch to AbstractQueuedLongSynchronizer and move
-        // completedTasks into the lock word.
-
+        long sampledWaitNanos = -1L;
         /**
          * Creates with given first task and thread from ThreadFactory.
          *
@@ -838,11 +877,67 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      */
 
     /**
-     * Invokes the rejected execution handler for the given command.
+     * Invokes the rejected execution handler for the given command,
+     * the rejection is counted only if the handler does not admit it.
+     * The handler is given the task submitted by user, see
+     * {@link #unwrapTask(Runnable)}.
      * Package-protected for use by ScheduledThreadPoolExecutor.
      */
     final void reject(Runnable command) {
-        handler.rejectedExecution(command, this);
+        Runnable task = unwrapTask(command);
+        RejectedExecutionHandler handler = this.handler;
+        if (handler.tryAdmit(task, this)) {
+            return;
+        }
+        handler.rejectedExecution(task, this, recordRejection(task));
+    }
+
+    private static LongAdder[] newRejectedTaskCounts() {
+        LongAdder[] counts = new LongAdder[RejectedExecutionCause.values().length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+        return counts;
+    }
+
+    /**
+     * Classifies why a task is rejected from current state, and counts
+     * the rejection. Invoked on rejection by execute, if the rejected
+     * execution handler does not admit the task, and by tryExecute,
+     * subclasses overriding tryExecute should invoke it when returning
+     * false. Reads run state and striped counters only, so it does not
+     * contend with other submitters.
+     *
+     * @param command the rejected task
+     * @return cause of the rejection
+     */
+    protected final RejectedExecutionCause recordRejection(Runnable command) {
+        RejectedExecutionCause cause;
+        if (!isRunning(ctl.get())) {
+            cause = RejectedExecutionCause.SHUTDOWN;
+        } else if (queuedTaskCount.sum() > 0L) {
+            cause = RejectedExecutionCause.QUEUE_FULL;
+        } else {
+            cause = RejectedExecutionCause.MAX_THREADS;
+        }
+        rejectedTaskCounts[cause.ordinal()].increment();
+        taskRejected(unwrapTask(command), cause);
+        return cause;
+    }
+
+    /**
+     * Returns the approximate number of tasks rejected by this
+     * executor for the given cause, including tasks handed to the
+     * rejected execution handler, except the ones it admitted by
+     * {@link RejectedExecutionHandler#tryAdmit(Runnable, ThreadPoolExecutor)},
+     * and tasks refused by {@link #tryExecute(Runnable)}.
+     *
+     * @param cause the rejection cause
+     * @return the number of rejected tasks
+     * @throws NullPointerException if {@code cause} is null
+     */
+    public long getRejectedTaskCount(RejectedExecutionCause cause) {
+        return rejectedTaskCounts[cause.ordinal()].sum();
     }
 
     /**
@@ -870,9 +965,143 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                 }
             }
         }
+        queuedTaskCount.add(-taskList.size());
+        waitSampleTask.set(null);
         return taskList;
     }
 
+    /**
+     * Offers the task to workQueue, keeping queuedTaskCount in step.
+     */
+    private boolean offerTask(Runnable task) {
+        boolean sampled = false;
+        if (waitSampleTask.get() == null) {
+            waitSampleNanos = System.nanoTime();
+            sampled = waitSampleTask.compareAndSet(null, task);
+        }
+        if (workQueue.offer(task)) {
+            queuedTaskCount.increment();
+            return true;
+        }
+        if (sampled) {
+            waitSampleTask.compareAndSet(task, null);
+        }
+        queueFull(unwrapTask(task));
+        return false;
+    }
+
+    /**
+     * Offers tasks from fromIndex in order to workQueue until it's
+     * full, keeping queuedTaskCount in step. A ResizableBlockingQueue
+     * takes them with one lock acquisition, other queues one by one.
+     * Only the first task is a candidate of the queue wait sample.
+     *
+     * @return number of tasks queued, the first ones from fromIndex
+     */
+    private int offerTasks(List<? extends Runnable> tasks, int fromIndex) {
+        if (fromIndex >= tasks.size()) {
+            return 0;
+        }
+        Runnable first = tasks.get(fromIndex);
+        boolean sampled = false;
+        if (waitSampleTask.get() == null) {
+            waitSampleNanos = System.nanoTime();
+            sampled = waitSampleTask.compareAndSet(null, first);
+        }
+        int n;
+        BlockingQueue<Runnable> q = workQueue;
+        if (q instanceof ResizableBlockingQueue) {
+            n = ((ResizableBlockingQueue<Runnable>) q).offerAll(tasks, fromIndex);
+        } else {
+            n = 0;
+            for (int i = fromIndex, size = tasks.size(); i < size && q.offer(tasks.get(i)); i++) {
+                n++;
+            }
+        }
+        if (n > 0) {
+            queuedTaskCount.add(n);
+        } else if (sampled) {
+            waitSampleTask.compareAndSet(first, null);
+        }
+        if (fromIndex + n < tasks.size()) {
+            queueFull(unwrapTask(tasks.get(fromIndex + n)));
+        }
+        return n;
+    }
+
+    /**
+     * Offers the task to workQueue, waiting up to the specified wait time
+     * for space to become available, keeping queuedTaskCount in step.
+     * The task is not sampled for queue wait, since the sample would
+     * include the time blocked in offer.
+     */
+    private boolean offerTask(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+        if (workQueue.offer(task, timeout, unit)) {
+            queuedTaskCount.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Retrieves and removes the head of workQueue without waiting,
+     * keeping queuedTaskCount in step. Used by DiscardOldestPolicy.
+     */
+    Runnable pollTask() {
+        Runnable r = workQueue.poll();
+        if (r != null) {
+            taskDequeued(r);
+        }
+        return r;
+    }
+
+    /**
+     * Keeps queuedTaskCount and queue wait sample in step after the
+     * task is taken or removed from workQueue.
+     *
+     * @return true if the task was the queue wait sample
+     */
+    private boolean taskDequeued(Runnable r) {
+        queuedTaskCount.decrement();
+        return waitSampleTask.get() == r && waitSampleTask.compareAndSet(r, null);
+    }
+
+    /**
+     * Returns the head-of-queue wait. A ResizableBlockingQueue stamps
+     * its nodes on insertion, so the age of the head is read directly.
+     * Other queues fall back to the age of the sampled queued task, a
+     * lower bound which lags after the sample is taken until the next
+     * sample is queued. Returns 0 if there's no sample or the queue
+     * looks empty, the latter also guards against a sample stuck by a
+     * task removed through {@link #getQueue()}.
+     */
+    private long queueWaitNanos() {
+        BlockingQueue<Runnable> q = workQueue;
+        if (q instanceof ResizableBlockingQueue) {
+            return ((ResizableBlockingQueue<Runnable>) q).getHeadWaitNanos();
+        }
+        if (waitSampleTask.get() == null || queuedTaskCount.sum() <= 0L) {
+            return 0L;
+        }
+        long waitNanos = System.nanoTime() - waitSampleNanos;
+        return waitNanos > 0L ? waitNanos : 0L;
+    }
+
+    /**
+     * Returns the approximate number of queued tasks, never negative.
+     */
+    private int approximateQueueSize() {
+        return clampToInt(queuedTaskCount.sum());
+    }
+
+    /**
+     * Clamps a striped counter sum, which could be transiently out of
+     * range under concurrent updates, to 0..Integer.MAX_VALUE.
+     */
+    private static int clampToInt(long n) {
+        return n <= 0L ? 0 : (n >= Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) n);
+    }
+
     /*
      * Methods for creating, running and cleaning up after workers
      */
@@ -936,28 +1165,19 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             w = new Worker(firstTask);
             final Thread t = w.thread;
             if (t != null) {
-                final ReentrantLock mainLock = this.mainLock;
-                mainLock.lock();
-                try {
-                    // Recheck while holding lock.
-                    // Back out on ThreadFactory failure or if
-                    // shut down before lock acquired.
-                    int c = ctl.get();
-
-                    if (isRunning(c) ||
-                            (runStateLessThan(c, STOP) && firstTask == null)) {
-                        if (t.getState() != Thread.State.NEW) {
-                            throw new IllegalThreadStateException();
-                        }
-                        workers.add(w);
-                        workerAdded = true;
-                        int s = workers.size();
-                        if (s > largestPoolSize) {
-                            largestPoolSize = s;
-                        }
-                    }
-                } finally {
-                    mainLock.unlock();
+                if (t.getState() != Thread.State.NEW) {
+                    throw new IllegalThreadStateException();
+                }
+                // Publish before recheck.
+                // Back out on ThreadFactory failure or if
+                // shut down before the worker is published.
+                workers.add(w);
+                int c = ctl.get();
+
+                if (isRunning(c) ||
+                        (runStateLessThan(c, STOP) && firstTask == null)) {
+                    workerAdded = true;
+                    largestPoolSize.accumulateAndGet(workers.size(), Math::max);
                 }
                 if (workerAdded) {
                     t.start();
@@ -969,6 +1189,9 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                 addWorkerFailed(w);
             }
         }
+        if (workerStarted) {
+            workerAdded(w.thread);
+        }
         return workerStarted;
     }
 
@@ -980,17 +1203,11 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * worker was holding up termination
      */
     private void addWorkerFailed(Worker w) {
-        final ReentrantLock mainLock = this.mainLock;
-        mainLock.lock();
-        try {
-            if (w != null) {
-                workers.remove(w);
-            }
-            decrementWorkerCount();
-            tryTerminate();
-        } finally {
-            mainLock.unlock();
+        if (w != null) {
+            workers.remove(w);
         }
+        decrementWorkerCount();
+        tryTerminate();
     }
 
     /**
@@ -1012,14 +1229,8 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             decrementWorkerCount();
         }
 
-        final ReentrantLock mainLock = this.mainLock;
-        mainLock.lock();
-        try {
-            completedTaskCount += w.completedTasks;
-            workers.remove(w);
-        } finally {
-            mainLock.unlock();
-        }
+        workers.remove(w);
+        workerExited(w.thread, completedAbruptly);
 
         tryTerminate();
 
@@ -1049,13 +1260,16 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * 4. This worker timed out waiting for a task, and timed-out
      * workers are subject to termination (that is,
      * {@code allowCoreThreadTimeOut || workerCount > corePoolSize})
-     * both before and after the timed wait, and if the queue is
+     * both before and after the timed wait, and
+     * {@link #retireIdleWorker(int)} agrees, and if the queue is
      * non-empty, this worker is not the last thread in the pool.
      *
+     * @param w the worker, its sampledWaitNanos is set if the task is
+     *          the queue wait sample
      * @return task, or null if the worker must exit, in which case
      * workerCount is decremented
      */
-    private Runnable getTask() {
+    private Runnable getTask(Worker w) {
         boolean timedOut = false; // Did the last poll() time out?
 
         for (; ; ) {
@@ -1073,7 +1287,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             // Are workers subject to culling?
             boolean timed = allowCoreThreadTimeOut || wc > corePoolSize;
 
-            if ((wc > maximumPoolSize || (timed && timedOut))
+            if ((wc > maximumPoolSize || (timed && timedOut && retireIdleWorker(wc)))
                     && (wc > 1 || workQueue.isEmpty())) {
                 if (compareAndDecrementWorkerCount(c)) {
                     return null;
@@ -1082,10 +1296,25 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             }
 
             try {
-                Runnable r = timed ?
-                        workQueue.poll(keepAliveTime, TimeUnit.NANOSECONDS) :
+                Runnable r = pollTaskBeforeWait();
+                if (r != null) {
+                    return r;
+                }
+                boolean waitTimed = isWaitTimed();
+                long waitStart = waitTimed ? System.nanoTime() : 0L;
+                r = timed ?
+                        workQueue.poll(idleTimeoutNanos(), TimeUnit.NANOSECONDS) :
                         workQueue.take();
+                long waitEnd = 0L;
+                if (waitTimed) {
+                    waitEnd = System.nanoTime();
+                    afterWait(waitEnd - waitStart);
+                }
                 if (r != null) {
+                    long sampleNanos = waitSampleNanos;
+                    if (taskDequeued(r)) {
+                        w.sampledWaitNanos = (waitTimed ? waitEnd : System.nanoTime()) - sampleNanos;
+                    }
                     return r;
                 }
                 timedOut = true;
@@ -1145,8 +1374,12 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         w.unlock(); // allow interrupts
         boolean completedAbruptly = true;
         try {
-            while (task != null || (task = getTask()) != null) {
+            while (task != null || (task = getTask(w)) != null) {
+                long sampledWaitNanos = w.sampledWaitNanos;
+                w.sampledWaitNanos = -1L;
+                long runStart = sampledWaitNanos >= 0L ? System.nanoTime() : 0L;
                 w.lock();
+                activeTaskCount.increment();
                 // If pool is stopping, ensure thread is interrupted;
                 // if not, ensure thread is not interrupted.  This
                 // requires a recheck in second case to deal with
@@ -1167,9 +1400,14 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                         throw ex;
                     }
                 } finally {
+                    Runnable completedTask = task;
                     task = null;
-                    w.completedTasks++;
+                    completedTaskCount.increment();
+                    activeTaskCount.decrement();
                     w.unlock();
+                    if (sampledWaitNanos >= 0L) {
+                        taskSampled(completedTask, sampledWaitNanos, System.nanoTime() - runStart);
+                    }
                 }
             }
             completedAbruptly = false;
@@ -1383,7 +1621,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             }
             c = ctl.get();
         }
-        if (isRunning(c) && workQueue.offer(command)) {
+        if (isRunning(c) && offerTask(command)) {
             int recheck = ctl.get();
             if (!isRunning(recheck) && remove(command)) {
                 reject(command);
@@ -1395,6 +1633,47 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
         }
     }
 
+    /**
+     * Tries to execute the given task sometime in the future, the same
+     * as {@link #execute(Runnable)}, except that the rejected execution
+     * handler is not invoked if the task cannot be accepted. Rejection
+     * is reported by return value instead, so that callers with a
+     * fallback (e.g. an overflow executor) do not pay for building and
+     * throwing an exception.
+     *
+     * @param command the task to execute
+     * @return {@code true} if the task is accepted, {@code false} if
+     * this executor has been shutdown or its capacity has been reached
+     * @throws NullPointerException if {@code command} is null
+     */
+    public boolean tryExecute(Runnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        int c = ctl.get();
+        if (workerCountOf(c) < corePoolSize) {
+            if (addWorker(command, true)) {
+                return true;
+            }
+            c = ctl.get();
+        }
+        if (isRunning(c) && offerTask(command)) {
+            int recheck = ctl.get();
+            if (!isRunning(recheck) && remove(command)) {
+                recordRejection(command);
+                return false;
+            } else if (workerCountOf(recheck) == 0) {
+                addWorker(null, false);
+            }
+            return true;
+        }
+        if (!addWorker(command, false)) {
+            recordRejection(command);
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Initiates an orderly shutdown in which previously submitted
      * tasks are executed, but no new tasks will be accepted.
@@ -1804,6 +2083,9 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      */
     public boolean remove(Runnable task) {
         boolean removed = workQueue.remove(task);
+        if (removed) {
+            taskDequeued(task);
+        }
         tryTerminate(); // In case SHUTDOWN and now empty
         return removed;
     }
@@ -1824,8 +2106,10 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             Iterator<Runnable> it = q.iterator();
             while (it.hasNext()) {
                 Runnable r = it.next();
-                if (r instanceof Future<?> && ((Future<?>) r).isCancelled()) {
+                Runnable task = unwrapTask(r);
+                if (task instanceof Future<?> && ((Future<?>) task).isCancelled()) {
                     it.remove();
+                    taskDequeued(r);
                 }
             }
         } catch (ConcurrentModificationException fallThrough) {
@@ -1833,8 +2117,10 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             // Make copy for traversal and call remove for cancelled entries.
             // The slow path is more likely to be O(N*N).
             for (Object r : q.toArray()) {
-                if (r instanceof Future<?> && ((Future<?>) r).isCancelled()) {
-                    q.remove(r);
+                Runnable task = unwrapTask((Runnable) r);
+                if (task instanceof Future<?> && ((Future<?>) task).isCancelled()
+                        && q.remove(r)) {
+                    taskDequeued((Runnable) r);
                 }
             }
         }
@@ -1850,16 +2136,10 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * @return the number of threads
      */
     public int getPoolSize() {
-        final ReentrantLock mainLock = this.mainLock;
-        mainLock.lock();
-        try {
-            // Remove rare and surprising possibility of
-            // isTerminated() && getPoolSize() > 0
-            return runStateAtLeast(ctl.get(), TIDYING) ? 0
-                    : workers.size();
-        } finally {
-            mainLock.unlock();
-        }
+        // Remove rare and surprising possibility of
+        // isTerminated() && getPoolSize() > 0
+        return runStateAtLeast(ctl.get(), TIDYING) ? 0
+                : workers.size();
     }
 
     /**
@@ -1869,19 +2149,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * @return the number of threads
      */
     public int getActiveCount() {
-        final ReentrantLock mainLock = this.mainLock;
-        mainLock.lock();
-        try {
-            int n = 0;
-            for (Worker w : workers) {
-                if (w.isLocked()) {
-                    ++n;
-                }
-            }
-            return n;
-        } finally {
-            mainLock.unlock();
-        }
+        return clampToInt(activeTaskCount.sum());
     }
 
     /**
@@ -1891,13 +2159,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * @return the number of threads
      */
     public int getLargestPoolSize() {
-        final ReentrantLock mainLock = this.mainLock;
-        mainLock.lock();
-        try {
-            return largestPoolSize;
-        } finally {
-            mainLock.unlock();
-        }
+        return largestPoolSize.get();
     }
 
     /**
@@ -1909,20 +2171,9 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * @return the number of tasks
      */
     public long getTaskCount() {
-        final ReentrantLock mainLock = this.mainLock;
-        mainLock.lock();
-        try {
-            long n = completedTaskCount;
-            for (Worker w : workers) {
-                n += w.completedTasks;
-                if (w.isLocked()) {
-                    ++n;
-                }
-            }
-            return n + workQueue.size();
-        } finally {
-            mainLock.unlock();
-        }
+        // read completed count first, so that a task moving from active to completed is not missed
+        long completed = completedTaskCount.sum();
+        return completed + getActiveCount() + approximateQueueSize();
     }
 
     /**
@@ -1935,17 +2186,26 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * @return the number of tasks
      */
     public long getCompletedTaskCount() {
-        final ReentrantLock mainLock = this.mainLock;
-        mainLock.lock();
-        try {
-            long n = completedTaskCount;
-            for (Worker w : workers) {
-                n += w.completedTasks;
-            }
-            return n;
-        } finally {
-            mainLock.unlock();
-        }
+        return completedTaskCount.sum();
+    }
+
+    /**
+     * Returns the statistics of this pool at once. All of them are read
+     * from striped counters without acquiring mainLock, so it's cheap
+     * enough to be scraped frequently, but values are not an atomic
+     * snapshot and only approximations.
+     *
+     * @return statistics of this pool
+     */
+    public ExecutorStatistics snapshot() {
+        long completed = completedTaskCount.sum();
+        int active = getActiveCount();
+        int queued = approximateQueueSize();
+        return new ExecutorStatistics(workerCountOf(ctl.get()), active,
+                largestPoolSize.get(), queued, completed + active + queued, completed,
+                getRejectedTaskCount(RejectedExecutionCause.SHUTDOWN),
+                getRejectedTaskCount(RejectedExecutionCause.QUEUE_FULL),
+                getRejectedTaskCount(RejectedExecutionCause.MAX_THREADS));
     }
 
     /**
@@ -1963,23 +2223,9 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
      * @return a string identifying this pool, as well as its state
      */
     public String toString() {
-        long ncompleted;
-        int nworkers, nactive;
-        final ReentrantLock mainLock = this.mainLock;
-        mainLock.lock();
-        try {
-            ncompleted = completedTaskCount;
-            nactive = 0;
-            nworkers = workers.size();
-            for (Worker w : workers) {
-                ncompleted += w.completedTasks;
-                if (w.isLocked()) {
-                    ++nactive;
-                }
-            }
-        } finally {
-            mainLock.unlock();
-        }
+        long ncompleted = completedTaskCount.sum();
+        int nworkers = workerCountOf(ctl.get());
+        int nactive = getActiveCount();
         int c = ctl.get();
         String runState =
                 isRunning(c) ? "Running" :
@@ -1989,7 +2235,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
                 "[" + runState +
                 ", pool size = " + nworkers +
                 ", active threads = " + nactive +
-                ", queued tasks = " + workQueue.size() +
+                ", queued tasks = " + approximateQueueSize() +
                 ", completed tasks = " + ncompleted +
                 "]";
     }
@@ -2065,6 +2311,173 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
     protected void afterExecute(Runnable r, Throwable t) {
     }
 
+    /**
+     * Method invoked by an idle worker thread before it blocks waiting
+     * on the work queue, e.g. to spin or yield for a short while so
+     * that a task arriving soon could be picked up without a full
+     * park and wakeup. Implementations must not block, and must take
+     * tasks via {@link ExecutorExtContext#pollTask()}.
+     *
+     * <p>This implementation does nothing and returns null.
+     *
+     * @return the task taken from the work queue, or null if the
+     * worker should block waiting on the work queue
+     */
+    protected Runnable pollTaskBeforeWait() {
+        return null;
+    }
+
+    /**
+     * Returns whether worker threads time their blocking waits on the
+     * work queue and report them to {@link #afterWait(long)}. Checked
+     * before every wait, so that pools which don't need it are spared
+     * the clock reads.
+     *
+     * <p>This implementation returns false.
+     *
+     * @return true if {@link #afterWait(long)} should be invoked
+     */
+    protected boolean isWaitTimed() {
+        return false;
+    }
+
+    /**
+     * Method invoked by a worker thread after it blocked waiting on
+     * the work queue, either because a task arrived or because it
+     * timed out. Not invoked if the wait is interrupted, or if
+     * {@link #isWaitTimed()} returns false.
+     *
+     * <p>This implementation does nothing.
+     *
+     * @param waitNanos the time blocked waiting, in nanoseconds
+     */
+    protected void afterWait(long waitNanos) {
+    }
+
+    /**
+     * Method invoked after a worker thread is started. Invoked by the
+     * thread adding the worker, which may be a submitter.
+     *
+     * <p>This implementation does nothing.
+     *
+     * @param t the worker thread
+     */
+    protected void workerAdded(Thread t) {
+    }
+
+    /**
+     * Method invoked by a worker thread when it's exiting, after it's
+     * removed from the pool.
+     *
+     * <p>This implementation does nothing.
+     *
+     * @param t                 the worker thread
+     * @param completedAbruptly if the worker died due to user exception
+     */
+    protected void workerExited(Thread t, boolean completedAbruptly) {
+    }
+
+    /**
+     * Method invoked when a task is rejected, by execute before the
+     * rejected execution handler is invoked, unless the handler
+     * admitted the task, or by tryExecute.
+     *
+     * <p>This implementation does nothing.
+     *
+     * @param r     the rejected task, unwrapped by {@link #unwrapTask(Runnable)}
+     * @param cause the rejection cause
+     */
+    protected void taskRejected(Runnable r, RejectedExecutionCause cause) {
+    }
+
+    /**
+     * Method invoked when the work queue refuses a task, before trying
+     * to add a worker for it. The task is rejected only if no worker
+     * could be added either.
+     *
+     * <p>This implementation does nothing.
+     *
+     * @param r the task refused by the work queue, unwrapped by
+     *          {@link #unwrapTask(Runnable)}
+     */
+    protected void queueFull(Runnable r) {
+    }
+
+    /**
+     * Method invoked by a worker thread after it ran the queue wait
+     * sample, so that at most one queued task at a time is timed.
+     * Invoked after {@link #afterExecute(Runnable, Throwable)}, whether
+     * the task completed normally or not.
+     *
+     * <p>This implementation does nothing.
+     *
+     * @param r         the task
+     * @param waitNanos time the task waited in the work queue
+     * @param runNanos  time spent in beforeExecute, run and afterExecute
+     */
+    protected void taskSampled(Runnable r, long waitNanos, long runNanos) {
+    }
+
+    /**
+     * Returns how long a worker subject to culling (that is,
+     * {@code allowCoreThreadTimeOut || workerCount > corePoolSize})
+     * waits for a task, before {@link #retireIdleWorker(int)} is
+     * consulted.
+     *
+     * <p>This implementation returns keepAliveTime.
+     *
+     * @return idle timeout in nanoseconds
+     */
+    protected long idleTimeoutNanos() {
+        return keepAliveTime;
+    }
+
+    /**
+     * Method invoked by a worker subject to culling after it timed out
+     * waiting for a task, to decide whether it exits. If it doesn't
+     * exit, it waits for another {@link #idleTimeoutNanos()}. The
+     * worker may still be kept if it's the last one and the queue is
+     * non-empty.
+     *
+     * <p>This implementation returns true.
+     *
+     * @param workerCount current worker count, including this worker
+     * @return true if the idle worker should exit
+     */
+    protected boolean retireIdleWorker(int workerCount) {
+        return true;
+    }
+
+    /**
+     * Returns the task submitted by user, if subclasses wrap tasks
+     * before queuing them. Used by {@link #purge} to find cancelled
+     * futures, and on rejection so that the rejected execution handler
+     * and hooks see the task submitted by user. Must return the given
+     * runnable if it's not wrapped.
+     *
+     * <p>This implementation returns the given runnable.
+     *
+     * @param r the runnable in the work queue
+     * @return the task submitted by user
+     */
+    protected Runnable unwrapTask(Runnable r) {
+        return r;
+    }
+
+    /**
+     * Counterpart of {@link #unwrapTask(Runnable)}, wraps a task which
+     * a rejected execution handler queues again, on the submitting
+     * thread. Must return an already wrapped task unchanged.
+     *
+     * <p>This implementation returns the given runnable.
+     *
+     * @param r the task submitted by user
+     * @return the runnable to put in the work queue
+     */
+    protected Runnable wrapTask(Runnable r) {
+        return r;
+    }
+
     /**
      * Method invoked when the Executor has terminated.  Default
      * implementation does nothing. Note: To properly nest multiple
@@ -2179,7 +2592,7 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
          */
         public void rejectedExecution(Runnable r, ThreadPoolExecutor e) {
             if (!e.isShutdown()) {
-                e.getQueue().poll();
+                e.pollTask();
                 e.execute(r);
             }
         }
@@ -2213,6 +2626,52 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             return ThreadPoolExecutor.this.addWorker(firstTask, core);
         }
 
+        /**
+         * Offers the task to the work queue. Strategies should prefer this
+         * to {@code getWorkQueue().offer(task)}, so that
+         * {@linkplain #getApproximateQueueSize()} stays accurate.
+         *
+         * @return true if the task was queued
+         */
+        public boolean offerTask(Runnable task) {
+            return ThreadPoolExecutor.this.offerTask(task);
+        }
+
+        /**
+         * Offers the task to the work queue, waiting up to the specified wait
+         * time if necessary for space to become available. Meant for
+         * rejected execution handlers, which are given unwrapped tasks, so
+         * the task is wrapped by {@link ThreadPoolExecutor#wrapTask(Runnable)}
+         * first.
+         *
+         * @return true if the task was queued, false if the specified waiting time elapses
+         * @throws InterruptedException if interrupted while waiting
+         */
+        public boolean offerTask(Runnable task, long timeout, TimeUnit unit) throws InterruptedException {
+            return ThreadPoolExecutor.this.offerTask(wrapTask(task), timeout, unit);
+        }
+
+        /**
+         * Offers tasks from {@code fromIndex} in order to the work queue
+         * until it's full. If the work queue is a
+         * {@link ResizableBlockingQueue}, tasks are queued with one lock
+         * acquisition.
+         *
+         * @return number of tasks queued, the first ones from {@code fromIndex}
+         */
+        public int offerTasks(List<? extends Runnable> tasks, int fromIndex) {
+            return ThreadPoolExecutor.this.offerTasks(tasks, fromIndex);
+        }
+
+        /**
+         * Retrieves and removes the head of the work queue without waiting.
+         *
+         * @return the head of the work queue, or null if it is empty
+         */
+        public Runnable pollTask() {
+            return ThreadPoolExecutor.this.pollTask();
+        }
+
         public boolean removeTask(Runnable task) {
             return ThreadPoolExecutor.this.remove(task);
         }
@@ -2233,9 +2692,49 @@ public class ThreadPoolExecutor extends AbstractExecutorService {
             return ThreadPoolExecutor.this.getMaximumPoolSize();
         }
 
+        /**
+         * @return approximate number of threads that are actively executing tasks, read without locking
+         */
         public int getActiveCount() {
             return ThreadPoolExecutor.this.getActiveCount();
         }
+
+        /**
+         * Returns the approximate number of queued tasks, which is maintained
+         * by striped counters on offer and poll, and could be read without
+         * acquiring the work queue's lock.
+         *
+         * @return approximate queue depth, never negative
+         */
+        public int getApproximateQueueSize() {
+            return ThreadPoolExecutor.this.approximateQueueSize();
+        }
+
+        /**
+         * Returns how long the head of the work queue has been waiting.
+         * It's exact if the work queue is a {@link ResizableBlockingQueue},
+         * including tasks removed through {@link #getQueue()}. For other
+         * queues it's the wait of a sampled queued task, a cheap lower
+         * bound which lags behind the head after the sample is taken,
+         * until the next task is queued. Tasks queued by
+         * {@linkplain #offerTask(Runnable, long, TimeUnit)} are not sampled.
+         *
+         * @return queue wait in nanoseconds, 0 if the queue is empty
+         */
+        public long getQueueWaitNanos() {
+            return ThreadPoolExecutor.this.queueWaitNanos();
+        }
+
+        /**
+         * Returns current time of the clock which the executor measures
+         * time by, strategies should prefer it to {@link System#nanoTime()},
+         * so that they could be replayed on virtual time.
+         *
+         * @return {@link System#nanoTime()}
+         */
+        public long nanoTime() {
+            return System.nanoTime();
+        }
     }
 
 }
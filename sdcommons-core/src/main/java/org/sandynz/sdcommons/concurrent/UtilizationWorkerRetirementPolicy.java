@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sandynz.sdcommons.base.statistic.LeapArrayCfg;
+import org.sandynz.sdcommons.base.statistic.StatisticLeapArray;
+import org.sandynz.sdcommons.concurrent.ThreadPoolExecutor.ExecutorExtContext;
+
+/**
+ * {@link WorkerRetirementPolicy} implementation driven by pool utilization.
+ * <p>
+ * Active worker count is sampled into a sliding window when tasks start and when idle workers time out.
+ * {@code ceil(maxActiveCount * headroom)} workers are kept warm, where {@code maxActiveCount} is the max in the window,
+ * so workers survive between bursts within the window. Surplus workers retire gradually, at most one per {@code retireInterval}.
+ * <p>
+ * It's stateful, don't share it between executors.
+ *
+ * @author sandynz
+ */
+public class UtilizationWorkerRetirementPolicy implements WorkerRetirementPolicy {
+
+    private final StatisticLeapArray<Object> activeCounts;
+    private final double headroom;
+    private final long idleTimeoutNanos;
+    private final long retireIntervalNanos;
+
+    /**
+     * Time of {@linkplain ExecutorExtContext#nanoTime()} when last worker retired, {@link #NEVER} if no worker retired yet.
+     */
+    private final AtomicLong lastRetireNanos = new AtomicLong(NEVER);
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    /**
+     * Keep 1.2 times of max active count in the last 60 seconds, check every second, retire at most one worker per second.
+     */
+    public UtilizationWorkerRetirementPolicy() {
+        this(new LeapArrayCfg(60, TimeUnit.SECONDS, 60), 1.2, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param windowCfg      sliding window of active count
+     * @param headroom       multiplier of max active count in the window, to calculate warm worker count
+     * @param idleTimeout    how long an idle worker waits before checking whether to retire
+     * @param retireInterval min interval between two retirements
+     * @param unit           time unit of {@code idleTimeout} and {@code retireInterval}
+     * @throws NullPointerException     if {@code windowCfg} or {@code unit} is null
+     * @throws IllegalArgumentException if {@code headroom} less than 1, or {@code idleTimeout} less than 1, or {@code retireInterval} less than 0
+     */
+    public UtilizationWorkerRetirementPolicy(LeapArrayCfg windowCfg, double headroom, long idleTimeout, long retireInterval, TimeUnit unit) {
+        if (windowCfg == null || unit == null) {
+            throw new NullPointerException();
+        }
+        if (!(headroom >= 1)) {
+            throw new IllegalArgumentException("headroom lt 1");
+        }
+        if (idleTimeout < 1) {
+            throw new IllegalArgumentException("idleTimeout lt 1");
+        }
+        if (retireInterval < 0) {
+            throw new IllegalArgumentException("retireInterval lt 0");
+        }
+        this.activeCounts = new StatisticLeapArray<>(windowCfg);
+        this.headroom = headroom;
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.retireIntervalNanos = unit.toNanos(retireInterval);
+    }
+
+    @Override
+    public void taskStarted(ExecutorExtContext ctx) {
+        activeCounts.add(ctx.getActiveCount());
+    }
+
+    @Override
+    public long getIdleTimeoutNanos(ExecutorExtContext ctx) {
+        return idleTimeoutNanos;
+    }
+
+    @Override
+    public boolean retire(ExecutorExtContext ctx) {
+        // long running tasks may not start in the window
+        activeCounts.add(ctx.getActiveCount());
+        if (ctx.getWorkerCount() <= getWarmWorkerCount()) {
+            return false;
+        }
+        long now = ctx.nanoTime();
+        long last = lastRetireNanos.get();
+        return (last == NEVER || now - last >= retireIntervalNanos) && lastRetireNanos.compareAndSet(last, now);
+    }
+
+    /**
+     * @return count of workers to keep warm, calculated from max active count in the window
+     */
+    public int getWarmWorkerCount() {
+        long maxActiveCount = Math.max(activeCounts.max(), 0L);
+        return (int) Math.min(Math.ceil(maxActiveCount * headroom), Integer.MAX_VALUE);
+    }
+
+}
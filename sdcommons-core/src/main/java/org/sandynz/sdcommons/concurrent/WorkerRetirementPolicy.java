@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import org.sandynz.sdcommons.concurrent.ThreadPoolExecutor.ExecutorExtContext;
+
+/**
+ * Decides when idle workers subject to culling (non-core workers, or all workers if core thread time out is allowed) exit,
+ * instead of exiting after a fixed {@code keepAliveTime}.
+ *
+ * @author sandynz
+ */
+public interface WorkerRetirementPolicy {
+
+    /**
+     * Invoked in worker thread before running a task, could be used to sample pool utilization.
+     */
+    default void taskStarted(ExecutorExtContext ctx) {
+    }
+
+    /**
+     * @return how long an idle worker subject to culling waits for a task, before {@link #retire(ExecutorExtContext)} is consulted
+     */
+    long getIdleTimeoutNanos(ExecutorExtContext ctx);
+
+    /**
+     * Invoked by an idle worker subject to culling after it timed out waiting for a task.
+     *
+     * @return true if the worker should exit, otherwise it waits for another {@link #getIdleTimeoutNanos(ExecutorExtContext)}
+     */
+    boolean retire(ExecutorExtContext ctx);
+
+}
@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent.simulation;
+
+import java.util.concurrent.BlockingQueue;
+import org.sandynz.sdcommons.concurrent.ExecutorAddWorkerOriginalStrategy;
+import org.sandynz.sdcommons.concurrent.ExecutorAddWorkerStrategy;
+import org.sandynz.sdcommons.concurrent.ExecutorConstructionCfg;
+
+/**
+ * Deterministic simulator of {@link ExecutorAddWorkerStrategy}, replays {@link SimulationTrace} on virtual time.
+ * No thread is started and no task is run, so a trace of minutes is replayed in milliseconds, and the same trace always gets the same report.
+ * <p>
+ * Pool sizes, keep-alive time, work queue capacity and add worker strategy are taken from {@link ExecutorConstructionCfg};
+ * other settings, e.g. thread factory and rejected execution handler, are ignored, rejected tasks are only counted.
+ * Strategies should read time from {@link org.sandynz.sdcommons.concurrent.ThreadPoolExecutor.ExecutorExtContext#nanoTime()}.
+ * Work queue is simulated without blocking: a queue of capacity 0, e.g. {@link java.util.concurrent.SynchronousQueue}, hands tasks to idle workers,
+ * and timed offer is an immediate offer.
+ * <p>
+ * Stateful strategies, e.g. {@link org.sandynz.sdcommons.concurrent.ExecutorAddWorkerLatencyStrategy}, keep state between runs,
+ * use a new instance for every run to compare results.
+ *
+ * @author sandynz
+ */
+public class ExecutorSimulator {
+
+    private final ExecutorAddWorkerStrategy strategy;
+    private final int corePoolSize;
+    private final int maximumPoolSize;
+    private final long keepAliveNanos;
+    private final int queueCapacity;
+
+    /**
+     * @throws NullPointerException     if {@code cfg} is null
+     * @throws IllegalArgumentException if {@code maxPoolSize} less than {@code corePoolSize}
+     */
+    public ExecutorSimulator(ExecutorConstructionCfg cfg) {
+        if (cfg == null) {
+            throw new NullPointerException("cfg null");
+        }
+        if (cfg.getMaxPoolSize() < cfg.getCorePoolSize()) {
+            throw new IllegalArgumentException("maxPoolSize lt corePoolSize");
+        }
+        this.strategy = cfg.getAddWorkerStrategy() != null ? cfg.getAddWorkerStrategy() : new ExecutorAddWorkerOriginalStrategy();
+        this.corePoolSize = cfg.getCorePoolSize();
+        this.maximumPoolSize = cfg.getMaxPoolSize();
+        this.keepAliveNanos = cfg.getUnit().toNanos(cfg.getKeepAliveTime());
+        BlockingQueue<Runnable> workQueue = cfg.getWorkQueue();
+        if (workQueue != null) {
+            this.queueCapacity = (int) Math.min(Integer.MAX_VALUE, (long) workQueue.remainingCapacity() + workQueue.size());
+        } else {
+            this.queueCapacity = cfg.getWorkQueueCapacity() > 0 ? cfg.getWorkQueueCapacity() : Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * @throws NullPointerException if {@code trace} is null
+     */
+    public SimulationReport run(SimulationTrace trace) {
+        if (trace == null) {
+            throw new NullPointerException("trace null");
+        }
+        return new VirtualExecutorContext(trace, strategy, corePoolSize, maximumPoolSize, keepAliveNanos, queueCapacity).run();
+    }
+
+    public ExecutorAddWorkerStrategy getStrategy() {
+        return strategy;
+    }
+
+}
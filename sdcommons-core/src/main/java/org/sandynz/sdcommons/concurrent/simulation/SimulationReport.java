@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent.simulation;
+
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Result of {@link ExecutorSimulator#run(SimulationTrace)}. Times are in nanoseconds of virtual time.
+ *
+ * @author sandynz
+ */
+@Getter
+@ToString
+public class SimulationReport {
+
+    private final int taskCount;
+    private final long completedTaskCount;
+    private final long rejectedTaskCount;
+
+    private final long queueWaitP50Nanos;
+    private final long queueWaitP90Nanos;
+    private final long queueWaitP99Nanos;
+    private final long queueWaitP999Nanos;
+    private final long queueWaitMaxNanos;
+    private final double queueWaitMeanNanos;
+
+    private final long workersAdded;
+    private final long workersRetired;
+    private final int largestWorkerCount;
+    /**
+     * Time-weighted average of worker count.
+     */
+    private final double averageWorkerCount;
+    private final int largestQueueSize;
+    /**
+     * Virtual time when the last task completed.
+     */
+    private final long durationNanos;
+
+    SimulationReport(int taskCount, long completedTaskCount, long rejectedTaskCount, long[] sortedQueueWaits,
+                     long workersAdded, long workersRetired, int largestWorkerCount, double averageWorkerCount,
+                     int largestQueueSize, long durationNanos) {
+        this.taskCount = taskCount;
+        this.completedTaskCount = completedTaskCount;
+        this.rejectedTaskCount = rejectedTaskCount;
+        this.queueWaitP50Nanos = percentile(sortedQueueWaits, 50D);
+        this.queueWaitP90Nanos = percentile(sortedQueueWaits, 90D);
+        this.queueWaitP99Nanos = percentile(sortedQueueWaits, 99D);
+        this.queueWaitP999Nanos = percentile(sortedQueueWaits, 99.9D);
+        this.queueWaitMaxNanos = sortedQueueWaits.length > 0 ? sortedQueueWaits[sortedQueueWaits.length - 1] : 0L;
+        double sum = 0;
+        for (long wait : sortedQueueWaits) {
+            sum += wait;
+        }
+        this.queueWaitMeanNanos = sortedQueueWaits.length > 0 ? sum / sortedQueueWaits.length : 0D;
+        this.workersAdded = workersAdded;
+        this.workersRetired = workersRetired;
+        this.largestWorkerCount = largestWorkerCount;
+        this.averageWorkerCount = averageWorkerCount;
+        this.largestQueueSize = largestQueueSize;
+        this.durationNanos = durationNanos;
+    }
+
+    /**
+     * Nearest-rank percentile.
+     */
+    static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+        int rank = (int) Math.ceil(percentile / 100D * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+
+    /**
+     * @return human readable table, times in microseconds
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append(String.format("tasks %d, completed %d, rejected %d, duration %.3f ms%n",
+                taskCount, completedTaskCount, rejectedTaskCount, durationNanos / 1_000_000D));
+        sb.append(String.format("queue wait (us): p50 %d, p90 %d, p99 %d, p99.9 %d, max %d, mean %.1f%n",
+                micros(queueWaitP50Nanos), micros(queueWaitP90Nanos), micros(queueWaitP99Nanos),
+                micros(queueWaitP999Nanos), micros(queueWaitMaxNanos), queueWaitMeanNanos / 1_000D));
+        sb.append(String.format("workers: largest %d, average %.2f, added %d, retired %d; largest queue size %d",
+                largestWorkerCount, averageWorkerCount, workersAdded, workersRetired, largestQueueSize));
+        return sb.toString();
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+}
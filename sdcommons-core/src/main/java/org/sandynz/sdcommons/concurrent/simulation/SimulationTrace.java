@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent.simulation;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Arrival and service time trace of tasks, replayed by {@link ExecutorSimulator}.
+ * Times are in nanoseconds of virtual time, arrivals are non-decreasing.
+ *
+ * @author sandynz
+ */
+public class SimulationTrace {
+
+    private long[] arrivalNanos = new long[16];
+    private long[] serviceNanos = new long[16];
+    private int size;
+
+    /**
+     * Generates a trace with Poisson arrivals and exponentially distributed service times.
+     *
+     * @param seed              random seed, the same seed generates the same trace
+     * @param taskCount         number of tasks
+     * @param arrivalsPerSecond mean arrival rate
+     * @param meanServiceNanos  mean service time
+     */
+    public static SimulationTrace poisson(long seed, int taskCount, double arrivalsPerSecond, long meanServiceNanos) {
+        if (taskCount < 0) {
+            throw new IllegalArgumentException("taskCount lt 0");
+        }
+        if (arrivalsPerSecond <= 0) {
+            throw new IllegalArgumentException("arrivalsPerSecond le 0");
+        }
+        Random random = new Random(seed);
+        double meanInterArrivalNanos = 1_000_000_000D / arrivalsPerSecond;
+        SimulationTrace trace = new SimulationTrace();
+        double arrival = 0;
+        for (int i = 0; i < taskCount; i++) {
+            arrival += exponential(random, meanInterArrivalNanos);
+            trace.add((long) arrival, Math.max(1L, (long) exponential(random, meanServiceNanos)));
+        }
+        return trace;
+    }
+
+    private static double exponential(Random random, double mean) {
+        return -mean * Math.log(1D - random.nextDouble());
+    }
+
+    /**
+     * Appends a task.
+     *
+     * @return this
+     * @throws IllegalArgumentException if {@code arrivalNanos} is less than the last one, or {@code serviceNanos} less than 0
+     */
+    public SimulationTrace add(long arrivalNanos, long serviceNanos) {
+        if (size > 0 && arrivalNanos < this.arrivalNanos[size - 1]) {
+            throw new IllegalArgumentException("arrivalNanos lt last arrival");
+        }
+        if (serviceNanos < 0) {
+            throw new IllegalArgumentException("serviceNanos lt 0");
+        }
+        if (size == this.arrivalNanos.length) {
+            this.arrivalNanos = Arrays.copyOf(this.arrivalNanos, size << 1);
+            this.serviceNanos = Arrays.copyOf(this.serviceNanos, size << 1);
+        }
+        this.arrivalNanos[size] = arrivalNanos;
+        this.serviceNanos[size] = serviceNanos;
+        size++;
+        return this;
+    }
+
+    /**
+     * Appends a burst of tasks arriving at the same time.
+     *
+     * @return this
+     */
+    public SimulationTrace addBurst(long arrivalNanos, int taskCount, long serviceNanos) {
+        for (int i = 0; i < taskCount; i++) {
+            add(arrivalNanos, serviceNanos);
+        }
+        return this;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getArrivalNanos(int index) {
+        checkIndex(index);
+        return arrivalNanos[index];
+    }
+
+    public long getServiceNanos(int index) {
+        checkIndex(index);
+        return serviceNanos[index];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+    }
+
+}
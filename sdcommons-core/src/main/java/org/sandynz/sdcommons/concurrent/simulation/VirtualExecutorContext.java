@@ -0,0 +1,446 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent.simulation;
+
+import java.util.AbstractQueue;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import org.sandynz.sdcommons.concurrent.ExecutorAddWorkerStrategy;
+import org.sandynz.sdcommons.concurrent.ThreadPoolExecutor;
+
+/**
+ * {@link ThreadPoolExecutor.ExecutorExtContext} of a virtual executor, driven by a discrete event loop on virtual time.
+ * Every public method is overridden, the enclosing executor is a placeholder which never starts a thread.
+ * Methods added to the context must be overridden here too, it's checked by test cases.
+ * <p>
+ * Workers are modelled the same as {@link ThreadPoolExecutor}: a worker starts with its first task or takes from work queue,
+ * an idle worker waits for queued tasks, and exits after keep-alive time if worker count is greater than core pool size.
+ * An offered task is handed to an idle worker at once, so a work queue of capacity 0 behaves like {@link SynchronousQueue}.
+ * Offering never blocks on virtual time, timed offer is simulated as an immediate offer.
+ * It's single threaded, and not reusable.
+ *
+ * @author sandynz
+ */
+class VirtualExecutorContext extends ThreadPoolExecutor.ExecutorExtContext {
+
+    private static final ThreadPoolExecutor PLACEHOLDER = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new SynchronousQueue<>());
+
+    private static final int ARRIVAL = 0;
+    private static final int COMPLETION = 1;
+    private static final int IDLE_TIMEOUT = 2;
+
+    private static final class Event {
+        final long time;
+        final long seq;
+        final int type;
+        final int taskIndex;
+        final Worker worker;
+        final int idleGeneration;
+
+        Event(long time, long seq, int type, int taskIndex, Worker worker, int idleGeneration) {
+            this.time = time;
+            this.seq = seq;
+            this.type = type;
+            this.taskIndex = taskIndex;
+            this.worker = worker;
+            this.idleGeneration = idleGeneration;
+        }
+    }
+
+    private static final class Worker {
+        Task task;
+        boolean idle;
+        int idleGeneration;
+    }
+
+    static final class Task implements Runnable {
+        final long arrivalNanos;
+        final long serviceNanos;
+
+        Task(long arrivalNanos, long serviceNanos) {
+            this.arrivalNanos = arrivalNanos;
+            this.serviceNanos = serviceNanos;
+        }
+
+        /**
+         * Tasks are never run, their service time is simulated.
+         */
+        @Override
+        public void run() {
+        }
+    }
+
+    private final SimulationTrace trace;
+    private final ExecutorAddWorkerStrategy strategy;
+    private final int corePoolSize;
+    private final int maximumPoolSize;
+    private final long keepAliveNanos;
+    private final int queueCapacity;
+
+    private final PriorityQueue<Event> events = new PriorityQueue<>((a, b) -> a.time != b.time ? Long.compare(a.time, b.time) : Long.compare(a.seq, b.seq));
+    private long eventSeq;
+    private long now;
+
+    private final ArrayDeque<Task> queue = new ArrayDeque<>();
+    private final ArrayDeque<Long> queueTimes = new ArrayDeque<>();
+    private final ArrayDeque<Worker> idleWorkers = new ArrayDeque<>();
+    private final VirtualWorkQueue workQueue = new VirtualWorkQueue();
+    private int workerCount;
+    private int activeCount;
+
+    // statistics
+    private long[] queueWaits = new long[16];
+    private int startedCount;
+    private long completedCount;
+    private long lastCompletionNanos;
+    private long rejectedCount;
+    private long workersAdded;
+    private long workersRetired;
+    private int largestWorkerCount;
+    private int largestQueueSize;
+    private double workerNanos;
+
+    VirtualExecutorContext(SimulationTrace trace, ExecutorAddWorkerStrategy strategy,
+                           int corePoolSize, int maximumPoolSize, long keepAliveNanos, int queueCapacity) {
+        PLACEHOLDER.super();
+        this.trace = trace;
+        this.strategy = strategy;
+        this.corePoolSize = corePoolSize;
+        this.maximumPoolSize = maximumPoolSize;
+        this.keepAliveNanos = keepAliveNanos;
+        this.queueCapacity = queueCapacity;
+    }
+
+    SimulationReport run() {
+        if (trace.size() > 0) {
+            schedule(trace.getArrivalNanos(0), ARRIVAL, 0, null, 0);
+        }
+        while (!events.isEmpty()) {
+            Event event = events.poll();
+            workerNanos += (double) workerCount * (event.time - now);
+            now = event.time;
+            switch (event.type) {
+                case ARRIVAL:
+                    int index = event.taskIndex;
+                    strategy.addWorker(new Task(now, trace.getServiceNanos(index)), this);
+                    if (index + 1 < trace.size()) {
+                        schedule(trace.getArrivalNanos(index + 1), ARRIVAL, index + 1, null, 0);
+                    }
+                    break;
+                case COMPLETION:
+                    event.worker.task = null;
+                    activeCount--;
+                    completedCount++;
+                    lastCompletionNanos = now;
+                    workerIdle(event.worker);
+                    break;
+                case IDLE_TIMEOUT:
+                    Worker worker = event.worker;
+                    if (worker.idle && worker.idleGeneration == event.idleGeneration && workerCount > corePoolSize) {
+                        idleWorkers.remove(worker);
+                        worker.idle = false;
+                        workerCount--;
+                        workersRetired++;
+                    }
+                    break;
+                default:
+                    throw new IllegalStateException("unknown event type " + event.type);
+            }
+            dispatch();
+        }
+        long[] waits = Arrays.copyOf(queueWaits, startedCount);
+        Arrays.sort(waits);
+        return new SimulationReport(trace.size(), completedCount, rejectedCount, waits,
+                workersAdded, workersRetired, largestWorkerCount, now > 0 ? workerNanos / now : workerCount, largestQueueSize, lastCompletionNanos);
+    }
+
+    private void schedule(long time, int type, int taskIndex, Worker worker, int idleGeneration) {
+        events.add(new Event(time, eventSeq++, type, taskIndex, worker, idleGeneration));
+    }
+
+    private void start(Worker worker, Task task) {
+        if (startedCount == queueWaits.length) {
+            queueWaits = Arrays.copyOf(queueWaits, startedCount << 1);
+        }
+        queueWaits[startedCount++] = now - task.arrivalNanos;
+        worker.task = task;
+        worker.idle = false;
+        activeCount++;
+        schedule(now + task.serviceNanos, COMPLETION, -1, worker, 0);
+    }
+
+    private void workerIdle(Worker worker) {
+        Task task = pollTask();
+        if (task != null) {
+            start(worker, task);
+            return;
+        }
+        worker.idle = true;
+        worker.idleGeneration++;
+        idleWorkers.add(worker);
+        if (workerCount > corePoolSize) {
+            schedule(now + keepAliveNanos, IDLE_TIMEOUT, -1, worker, worker.idleGeneration);
+        }
+    }
+
+    /**
+     * Idle workers take queued tasks, as they're blocked taking from work queue.
+     */
+    private void dispatch() {
+        while (!idleWorkers.isEmpty() && !queue.isEmpty()) {
+            start(idleWorkers.poll(), pollTask());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return true;
+    }
+
+    @Override
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    @Override
+    public boolean addWorker(Runnable firstTask, boolean core) {
+        if (workerCount >= (core ? corePoolSize : maximumPoolSize)) {
+            return false;
+        }
+        Worker worker = new Worker();
+        workerCount++;
+        workersAdded++;
+        largestWorkerCount = Math.max(largestWorkerCount, workerCount);
+        if (firstTask != null) {
+            start(worker, (Task) firstTask);
+        } else {
+            workerIdle(worker);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean offerTask(Runnable task) {
+        if (queue.isEmpty() && !idleWorkers.isEmpty()) {
+            // hand-off, an idle worker is blocked taking from work queue
+            start(idleWorkers.poll(), (Task) task);
+            return true;
+        }
+        if (queue.size() >= queueCapacity) {
+            return false;
+        }
+        queue.add((Task) task);
+        queueTimes.add(now);
+        largestQueueSize = Math.max(largestQueueSize, queue.size());
+        return true;
+    }
+
+    /**
+     * Offering never blocks on virtual time, it's the same as {@link #offerTask(Runnable)}.
+     */
+    @Override
+    public boolean offerTask(Runnable task, long timeout, TimeUnit unit) {
+        return offerTask(task);
+    }
+
+    @Override
+    public int offerTasks(List<? extends Runnable> tasks, int fromIndex) {
+        int n = 0;
+        for (int i = fromIndex; i < tasks.size() && offerTask(tasks.get(i)); i++) {
+            n++;
+        }
+        return n;
+    }
+
+    @Override
+    public Task pollTask() {
+        queueTimes.poll();
+        return queue.poll();
+    }
+
+    @Override
+    public boolean removeTask(Runnable task) {
+        Task[] tasks = queue.toArray(new Task[0]);
+        Long[] times = queueTimes.toArray(new Long[0]);
+        for (int i = 0; i < tasks.length; i++) {
+            if (tasks[i] == task) {
+                queue.clear();
+                queueTimes.clear();
+                for (int j = 0; j < tasks.length; j++) {
+                    if (j != i) {
+                        queue.add(tasks[j]);
+                        queueTimes.add(times[j]);
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void rejectTask(Runnable command) {
+        rejectedCount++;
+    }
+
+    /**
+     * @return view of the simulated work queue, it never blocks on virtual time
+     */
+    @Override
+    public BlockingQueue<Runnable> getWorkQueue() {
+        return workQueue;
+    }
+
+    @Override
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+    @Override
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    @Override
+    public int getActiveCount() {
+        return activeCount;
+    }
+
+    @Override
+    public int getApproximateQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * @return exact wait of the head of work queue
+     */
+    @Override
+    public long getQueueWaitNanos() {
+        Long head = queueTimes.peek();
+        return head != null ? now - head : 0L;
+    }
+
+    /**
+     * @return virtual time, starts from 0
+     */
+    @Override
+    public long nanoTime() {
+        return now;
+    }
+
+    /**
+     * Work queue view, operations are mapped to the context's offer, poll and remove methods.
+     * Blocking operations don't wait: {@code put} fails if the queue is full, {@code take} fails if it's empty.
+     */
+    private final class VirtualWorkQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+        @Override
+        public Iterator<Runnable> iterator() {
+            return Collections.<Runnable>unmodifiableCollection(queue).iterator();
+        }
+
+        @Override
+        public int size() {
+            return queue.size();
+        }
+
+        @Override
+        public boolean offer(Runnable runnable) {
+            if (runnable == null) {
+                throw new NullPointerException();
+            }
+            return offerTask(runnable);
+        }
+
+        @Override
+        public boolean offer(Runnable runnable, long timeout, TimeUnit unit) {
+            return offer(runnable);
+        }
+
+        /**
+         * @throws IllegalStateException if the queue is full, it would block forever on virtual time
+         */
+        @Override
+        public void put(Runnable runnable) {
+            if (!offer(runnable)) {
+                throw new IllegalStateException("Queue full");
+            }
+        }
+
+        @Override
+        public Runnable poll() {
+            return pollTask();
+        }
+
+        @Override
+        public Runnable poll(long timeout, TimeUnit unit) {
+            return pollTask();
+        }
+
+        /**
+         * @throws IllegalStateException if the queue is empty, it would block forever on virtual time
+         */
+        @Override
+        public Runnable take() {
+            Runnable task = pollTask();
+            if (task == null) {
+                throw new IllegalStateException("Queue empty");
+            }
+            return task;
+        }
+
+        @Override
+        public Runnable peek() {
+            return queue.peek();
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return o instanceof Runnable && removeTask((Runnable) o);
+        }
+
+        @Override
+        public int remainingCapacity() {
+            return Math.max(0, queueCapacity - queue.size());
+        }
+
+        @Override
+        public int drainTo(Collection<? super Runnable> c) {
+            return drainTo(c, Integer.MAX_VALUE);
+        }
+
+        @Override
+        public int drainTo(Collection<? super Runnable> c, int maxElements) {
+            int n = 0;
+            Runnable task;
+            while (n < maxElements && (task = pollTask()) != null) {
+                c.add(task);
+                n++;
+            }
+            return n;
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Executor events emitter, emits JFR events. Java 11 version of the multi-release class.
+ * <p>
+ * Enablement is checked on the static {@link EventType} first, events are allocated and their fields
+ * (e.g. pool size and queue size) are read from the executor only if enabled, so it's cheap if disabled.
+ *
+ * @author sandynz
+ */
+final class ExecutorEvents {
+
+    private static final EventType WORKER_ADDED = EventType.getEventType(WorkerAddedEvent.class);
+    private static final EventType WORKER_EXITED = EventType.getEventType(WorkerExitedEvent.class);
+    private static final EventType TASK_REJECTED = EventType.getEventType(TaskRejectedEvent.class);
+    private static final EventType QUEUE_FULL = EventType.getEventType(QueueFullEvent.class);
+    private static final EventType TASK_SAMPLED = EventType.getEventType(TaskSampledEvent.class);
+
+    private ExecutorEvents() {
+    }
+
+    static void workerAdded(ExtendedThreadPoolExecutor executor, Thread thread) {
+        if (WORKER_ADDED.isEnabled()) {
+            WorkerAddedEvent event = new WorkerAddedEvent();
+            event.pool = executor.getName();
+            event.worker = thread;
+            event.poolSize = executor.getPoolSize();
+            event.commit();
+        }
+    }
+
+    static void workerExited(ExtendedThreadPoolExecutor executor, Thread thread, boolean completedAbruptly) {
+        if (WORKER_EXITED.isEnabled()) {
+            WorkerExitedEvent event = new WorkerExitedEvent();
+            event.pool = executor.getName();
+            event.worker = thread;
+            event.poolSize = executor.getPoolSize();
+            event.completedAbruptly = completedAbruptly;
+            event.commit();
+        }
+    }
+
+    static void taskRejected(ExtendedThreadPoolExecutor executor, RejectedExecutionCause cause) {
+        if (TASK_REJECTED.isEnabled()) {
+            TaskRejectedEvent event = new TaskRejectedEvent();
+            event.pool = executor.getName();
+            event.cause = cause.name();
+            event.commit();
+        }
+    }
+
+    static void queueFull(ExtendedThreadPoolExecutor executor) {
+        if (QUEUE_FULL.isEnabled()) {
+            QueueFullEvent event = new QueueFullEvent();
+            event.pool = executor.getName();
+            event.queueSize = executor.getExecutorExtContext().getApproximateQueueSize();
+            event.commit();
+        }
+    }
+
+    static void taskSampled(ExtendedThreadPoolExecutor executor, long waitNanos, long runNanos) {
+        if (TASK_SAMPLED.isEnabled()) {
+            TaskSampledEvent event = new TaskSampledEvent();
+            event.pool = executor.getName();
+            event.waitTime = waitNanos;
+            event.runTime = runNanos;
+            event.commit();
+        }
+    }
+
+    @Name("org.sandynz.sdcommons.concurrent.WorkerAdded")
+    @Label("Executor Worker Added")
+    @Category({"sdcommons", "Executor"})
+    @StackTrace(false)
+    static class WorkerAddedEvent extends Event {
+
+        @Label("Pool")
+        String pool;
+
+        @Label("Worker")
+        Thread worker;
+
+        @Label("Pool Size")
+        int poolSize;
+    }
+
+    @Name("org.sandynz.sdcommons.concurrent.WorkerExited")
+    @Label("Executor Worker Exited")
+    @Category({"sdcommons", "Executor"})
+    @StackTrace(false)
+    static class WorkerExitedEvent extends Event {
+
+        @Label("Pool")
+        String pool;
+
+        @Label("Worker")
+        Thread worker;
+
+        @Label("Pool Size")
+        @Description("Pool size after the worker exited")
+        int poolSize;
+
+        @Label("Completed Abruptly")
+        @Description("Whether the worker died due to task exception")
+        boolean completedAbruptly;
+    }
+
+    @Name("org.sandynz.sdcommons.concurrent.TaskRejected")
+    @Label("Executor Task Rejected")
+    @Category({"sdcommons", "Executor"})
+    static class TaskRejectedEvent extends Event {
+
+        @Label("Pool")
+        String pool;
+
+        @Label("Cause")
+        String cause;
+    }
+
+    @Name("org.sandynz.sdcommons.concurrent.QueueFull")
+    @Label("Executor Queue Full")
+    @Description("Work queue refused a task, a worker is added for it if possible")
+    @Category({"sdcommons", "Executor"})
+    @Enabled(false)
+    static class QueueFullEvent extends Event {
+
+        @Label("Pool")
+        String pool;
+
+        @Label("Queue Size")
+        int queueSize;
+    }
+
+    @Name("org.sandynz.sdcommons.concurrent.TaskSampled")
+    @Label("Executor Task Sampled")
+    @Description("Wait and run time of the sampled task, at most one queued task is sampled at a time")
+    @Category({"sdcommons", "Executor"})
+    @StackTrace(false)
+    @Enabled(false)
+    static class TaskSampledEvent extends Event {
+
+        @Label("Pool")
+        String pool;
+
+        @Label("Wait Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long waitTime;
+
+        @Label("Run Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long runTime;
+    }
+
+}
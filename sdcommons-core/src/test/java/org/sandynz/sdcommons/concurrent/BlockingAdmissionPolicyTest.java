@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@linkplain BlockingAdmissionPolicy} test cases.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class BlockingAdmissionPolicyTest {
+
+    private ExtendedThreadPoolExecutor newExecutor(BlockingAdmissionPolicy policy) {
+        return new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueue(new ArrayBlockingQueue<>(1))
+                .setThreadFactory(new ThreadFactoryImpl("blocking-"))
+                .setHandler(policy)
+                .build());
+    }
+
+    @Test
+    public void testBlockUntilQueued() throws InterruptedException {
+        BlockingAdmissionPolicy policy = new BlockingAdmissionPolicy(5, TimeUnit.SECONDS, 1);
+        ExtendedThreadPoolExecutor executor = newExecutor(policy);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(3);
+        Runnable task = () -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        };
+        executor.execute(task);
+        executor.execute(task);
+        new Thread(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException ignored) {
+            }
+            gate.countDown();
+        }).start();
+        long start = System.nanoTime();
+        executor.execute(task);
+        long blockedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("blockedMillis={}, policy={}", blockedMillis, policy);
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, policy.getBlockedCount());
+        Assert.assertEquals(0, policy.getTimeoutCount());
+        Assert.assertTrue(policy.getBlockedNanos() > 0);
+        // admitted task is not a rejection
+        Assert.assertEquals(0, executor.getRejectedTaskCount(RejectedExecutionCause.QUEUE_FULL));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testTimeout() throws InterruptedException {
+        BlockingAdmissionPolicy policy = new BlockingAdmissionPolicy(50, TimeUnit.MILLISECONDS, 1);
+        ExtendedThreadPoolExecutor executor = newExecutor(policy);
+        CountDownLatch gate = new CountDownLatch(1);
+        Runnable task = () -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        executor.execute(task);
+        executor.execute(task);
+        try {
+            executor.execute(task);
+            Assert.fail("should be rejected");
+        } catch (LightweightRejectedExecutionException e) {
+            log.info("rejected, policy={}", policy);
+        }
+        Assert.assertEquals(1, policy.getTimeoutCount());
+        Assert.assertEquals(1, executor.getRejectedTaskCount(RejectedExecutionCause.QUEUE_FULL));
+        Assert.assertTrue(policy.getBlockedNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+        gate.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+/**
+ * Steady-state allocation regression test cases of submit-and-run path, excluding the task itself.
+ * <p>
+ * Covered configurations: {@link ArrayBlockingQueue} work queue with a worker which keeps busy,
+ * without or with executor-registered {@link RunnableListener}s and a {@link ContextPropagator} which captures nothing.
+ * Not covered, and known to allocate per task: {@link java.util.concurrent.LinkedBlockingQueue} nodes,
+ * a worker parking for every task (condition wait nodes), {@link RunnableListenSupport} with more than one listener (attachments array),
+ * and {@link ContextCarrier} when some context is captured.
+ * <p>
+ * Allocations independent of task count are tolerated, e.g. lazily created striped counter cells,
+ * JIT compilation, and lock queue nodes while a worker waits for tasks.
+ * A single allocated object per task will exceed the tolerance by far.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class ExecutorAllocationTest {
+
+    private static final int TASK_COUNT_PER_ROUND = 100_000;
+    private static final int WARM_UP_ROUNDS = 3;
+    private static final int ROUNDS = 10;
+    private static final long TOLERANCE_BYTES = 256 * 1024;
+
+    private static com.sun.management.ThreadMXBean allocationMXBean() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        Assume.assumeTrue(allocationMXBean.isThreadAllocatedMemorySupported());
+        allocationMXBean.setThreadAllocatedMemoryEnabled(true);
+        return allocationMXBean;
+    }
+
+    @Test
+    public void testSubmitAndRun() throws InterruptedException {
+        // bounded array queue, no node allocated per offer
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueue(new ArrayBlockingQueue<>(TASK_COUNT_PER_ROUND))
+                .build());
+        assertSubmitAndRun(executor);
+    }
+
+    @Test
+    public void testSubmitAndRunWithListenersAndPropagator() throws InterruptedException {
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueue(new ArrayBlockingQueue<>(TASK_COUNT_PER_ROUND))
+                .build());
+        Object attachment = new Object();
+        for (int i = 0; i < 2; i++) {
+            executor.addRunnableListener(new RunnableListener() {
+                @Override
+                public Object beforeExecute(Thread thread, Runnable runnable) {
+                    return attachment;
+                }
+
+                @Override
+                public void afterExecute(Runnable runnable, Throwable throwable, Object beforeExecuteAttachment) {
+                    Assert.assertSame(attachment, beforeExecuteAttachment);
+                }
+            });
+        }
+        // nothing captured, tasks are not wrapped
+        executor.addContextPropagator(new ThreadLocalContextPropagator<>(new ThreadLocal<String>()));
+        assertSubmitAndRun(executor);
+    }
+
+    private void assertSubmitAndRun(ExtendedThreadPoolExecutor executor) throws InterruptedException {
+        com.sun.management.ThreadMXBean allocationMXBean = allocationMXBean();
+        AtomicLong completed = new AtomicLong();
+        Runnable task = completed::incrementAndGet;
+        AtomicLong workerThreadId = new AtomicLong();
+        executor.execute(() -> workerThreadId.set(Thread.currentThread().getId()));
+
+        runRounds(executor, task, completed, WARM_UP_ROUNDS);
+        long submitterThreadId = Thread.currentThread().getId();
+        long submitterBefore = allocationMXBean.getThreadAllocatedBytes(submitterThreadId);
+        long workerBefore = allocationMXBean.getThreadAllocatedBytes(workerThreadId.get());
+        runRounds(executor, task, completed, ROUNDS);
+        long submitterBytes = allocationMXBean.getThreadAllocatedBytes(submitterThreadId) - submitterBefore;
+        long workerBytes = allocationMXBean.getThreadAllocatedBytes(workerThreadId.get()) - workerBefore;
+        log.info("submissions={}, submitterBytes={}, workerBytes={}", ROUNDS * TASK_COUNT_PER_ROUND, submitterBytes, workerBytes);
+        Assert.assertTrue("submitterBytes=" + submitterBytes, submitterBytes < TOLERANCE_BYTES);
+        Assert.assertTrue("workerBytes=" + workerBytes, workerBytes < TOLERANCE_BYTES);
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Worker is gated while tasks are submitted, so that submitter and worker don't contend on the queue lock,
+     * and worker doesn't wait for tasks per submission.
+     */
+    private static void runRounds(ExtendedThreadPoolExecutor executor, Runnable task, AtomicLong completed, int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            long target = completed.get() + TASK_COUNT_PER_ROUND - 1;
+            CountDownLatch gate = new CountDownLatch(1);
+            executor.execute(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            for (int i = 0; i < TASK_COUNT_PER_ROUND - 1; i++) {
+                executor.execute(task);
+            }
+            gate.countDown();
+            while (completed.get() < target) {
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            }
+        }
+    }
+
+    @Test
+    public void testRunnableListenSupport() {
+        com.sun.management.ThreadMXBean allocationMXBean = allocationMXBean();
+        AtomicLong completed = new AtomicLong();
+        Object attachment = new Object();
+        RunnableListenSupport runnable = new RunnableListenSupport(completed::incrementAndGet, new RunnableListener() {
+            @Override
+            public Object beforeExecute(Thread thread, Runnable runnable) {
+                return attachment;
+            }
+
+            @Override
+            public void afterExecute(Runnable runnable, Throwable throwable, Object beforeExecuteAttachment) {
+                Assert.assertSame(attachment, beforeExecuteAttachment);
+            }
+        });
+        int runCount = 1_000_000;
+        for (int i = 0; i < runCount; i++) {
+            runnable.run();
+        }
+        long threadId = Thread.currentThread().getId();
+        long before = allocationMXBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < runCount; i++) {
+            runnable.run();
+        }
+        long bytes = allocationMXBean.getThreadAllocatedBytes(threadId) - before;
+        log.info("runCount={}, bytes={}", runCount, bytes);
+        Assert.assertEquals(runCount * 2L, completed.get());
+        Assert.assertTrue("bytes=" + bytes, bytes < TOLERANCE_BYTES);
+    }
+
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@linkplain ExecutorBulkhead} test cases.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class ExecutorBulkheadTest {
+
+    private final ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+            .setCorePoolSize(3).setMaxPoolSize(3)
+            .setWorkQueueCapacity(100)
+            .build());
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    private static Runnable blockingTask(CountDownLatch gate, CountDownLatch done) {
+        return () -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+            done.countDown();
+        };
+    }
+
+    private static void awaitInFlight(ExecutorBulkhead bulkhead, int count) throws InterruptedException {
+        while (bulkhead.getTotalInFlightCount() != count) {
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void testPartitionLimits() throws InterruptedException {
+        ExecutorBulkhead bulkhead = new ExecutorBulkhead(executor, false);
+        ExecutorBulkhead.Partition partition = bulkhead.addPartition("a", 1, 1);
+        Assert.assertSame(partition, bulkhead.getPartition("a"));
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        partition.execute(blockingTask(gate, done));
+        partition.execute(blockingTask(gate, done));
+        Assert.assertEquals(1, partition.getInFlightCount());
+        Assert.assertEquals(1, partition.getQueuedCount());
+        try {
+            partition.execute(() -> {
+            });
+            Assert.fail();
+        } catch (LightweightRejectedExecutionException e) {
+            Assert.assertEquals(RejectedExecutionCause.QUEUE_FULL, e.getRejectionCause());
+        }
+        Assert.assertFalse(partition.tryExecute(() -> {
+        }));
+        Assert.assertEquals(2, partition.getRejectedCount());
+        Assert.assertEquals(0, partition.getBorrowedCount());
+
+        gate.countDown();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        awaitInFlight(bulkhead, 0);
+        Assert.assertEquals(0, partition.getInFlightCount());
+        Assert.assertEquals(0, partition.getQueuedCount());
+    }
+
+    @Test
+    public void testBorrowing() throws InterruptedException {
+        ExecutorBulkhead bulkhead = new ExecutorBulkhead(executor, true);
+        ExecutorBulkhead.Partition a = bulkhead.addPartition("a", 1, 1);
+        ExecutorBulkhead.Partition b = bulkhead.addPartition("b", 1, 1);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(5);
+        for (int i = 0; i < 3; i++) {
+            a.execute(blockingTask(gate, done));
+        }
+        Assert.assertEquals(3, a.getInFlightCount());
+        Assert.assertEquals(2, a.getBorrowedCount());
+        // no capacity to borrow
+        a.execute(blockingTask(gate, done));
+        Assert.assertEquals(1, a.getQueuedCount());
+        Assert.assertFalse(a.tryExecute(() -> {
+        }));
+        // own slot is always available
+        b.execute(blockingTask(gate, done));
+        Assert.assertEquals(1, b.getInFlightCount());
+        Assert.assertEquals(4, bulkhead.getTotalInFlightCount());
+
+        gate.countDown();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        awaitInFlight(bulkhead, 0);
+        Assert.assertEquals(0, a.getQueuedCount());
+        Assert.assertEquals(1, a.getRejectedCount());
+    }
+
+    @Test
+    public void testQueuedTasksRejectedOnShutdown() throws InterruptedException {
+        List<Runnable> rejectedTasks = new CopyOnWriteArrayList<>();
+        List<RejectedExecutionCause> causes = new CopyOnWriteArrayList<>();
+        ExecutorBulkhead bulkhead = new ExecutorBulkhead(executor, false, new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor, RejectedExecutionCause cause) {
+                rejectedTasks.add(r);
+                causes.add(cause);
+            }
+        });
+        ExecutorBulkhead.Partition partition = bulkhead.addPartition("a", 1, 2);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        partition.execute(blockingTask(gate, done));
+        Runnable queued1 = () -> {
+        };
+        Runnable queued2 = () -> {
+        };
+        partition.execute(queued1);
+        partition.execute(queued2);
+        executor.shutdown();
+        // not queued once shut down
+        Assert.assertFalse(partition.tryExecute(() -> {
+        }));
+        Assert.assertEquals(2, partition.getQueuedCount());
+
+        // queued tasks are refused by the executor on draining, and handed to the handler
+        gate.countDown();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        awaitInFlight(bulkhead, 0);
+        Assert.assertEquals(Arrays.asList(queued1, queued2), rejectedTasks);
+        Assert.assertEquals(Arrays.asList(RejectedExecutionCause.SHUTDOWN, RejectedExecutionCause.SHUTDOWN), causes);
+        Assert.assertEquals(0, partition.getQueuedCount());
+        Assert.assertEquals(3, partition.getRejectedCount());
+    }
+
+    @Test
+    public void testShutdownNow() throws InterruptedException {
+        ExecutorBulkhead bulkhead = new ExecutorBulkhead(executor, false);
+        ExecutorBulkhead.Partition partition = bulkhead.addPartition("a", 1, 2);
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        partition.execute(blockingTask(gate, done));
+        FutureTask<Void> queued1 = new FutureTask<>(() -> {
+        }, null);
+        Runnable queued2 = () -> {
+        };
+        partition.execute(queued1);
+        partition.execute(queued2);
+
+        Assert.assertEquals(Arrays.asList(queued1, queued2), bulkhead.shutdownNow());
+        Assert.assertEquals(0, partition.getQueuedCount());
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        awaitInFlight(bulkhead, 0);
+        Assert.assertFalse(queued1.isDone());
+        Assert.assertFalse(partition.tryExecute(queued1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicatePartition() {
+        ExecutorBulkhead bulkhead = new ExecutorBulkhead(executor, true);
+        bulkhead.addPartition("a", 1, 0);
+        bulkhead.addPartition("a", 1, 0);
+    }
+
+}
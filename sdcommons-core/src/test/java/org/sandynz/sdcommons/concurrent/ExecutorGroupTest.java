@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@linkplain ExecutorGroup} test cases.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class ExecutorGroupTest {
+
+    @Test
+    public void testDispatch() throws InterruptedException {
+        ThreadFactoryImpl threadFactory = new ThreadFactoryImpl("group-");
+        int shardCount = 4;
+        ExecutorGroup group = new ExecutorGroup(shardCount, () -> ExecutorConstructionCfg.builder()
+                .setCorePoolSize(2).setMaxPoolSize(2)
+                .setWorkQueue(new LinkedBlockingQueue<>(1000))
+                .setThreadFactory(threadFactory)
+                .build());
+        Assert.assertEquals(shardCount, group.getShards().size());
+        int taskCount = 2000;
+        CountDownLatch latch = new CountDownLatch(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            group.execute(() -> {
+                try {
+                    TimeUnit.MICROSECONDS.sleep(100);
+                } catch (InterruptedException e) {
+                    log.error("ex caught", e);
+                }
+                latch.countDown();
+            });
+        }
+        Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+        group.shutdown();
+        Assert.assertTrue(group.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(taskCount, group.getCompletedTaskCount());
+        for (ExtendedThreadPoolExecutor shard : group.getShards()) {
+            log.info("shard completedTaskCount={}", shard.getCompletedTaskCount());
+            Assert.assertTrue(shard.getCompletedTaskCount() > taskCount / shardCount / 2);
+        }
+    }
+
+    @Test
+    public void testShardCfg() throws InterruptedException {
+        ExecutorConstructionCfg sharedCfg = ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(2)
+                .setAddWorkerStrategy(new ExecutorAddWorkerLatencyStrategy(10, 1, 0, TimeUnit.MILLISECONDS))
+                .build();
+        try {
+            new ExecutorGroup(2, () -> sharedCfg.toBuilder().setWorkQueue(new LinkedBlockingQueue<>()).build());
+            Assert.fail("strategy shared");
+        } catch (IllegalArgumentException e) {
+            log.info("expected: {}", e.getMessage());
+        }
+        // user defined handler could be stateful too
+        RejectedExecutionHandler sharedHandler = new BlockingAdmissionPolicy(1, TimeUnit.MILLISECONDS, 1);
+        try {
+            new ExecutorGroup(2, () -> ExecutorConstructionCfg.builder()
+                    .setCorePoolSize(1).setMaxPoolSize(2)
+                    .setWorkQueue(new LinkedBlockingQueue<>())
+                    .setHandler(sharedHandler)
+                    .build());
+            Assert.fail("handler shared");
+        } catch (IllegalArgumentException e) {
+            log.info("expected: {}", e.getMessage());
+        }
+
+        ExecutorGroup group = new ExecutorGroup(2, () -> ExecutorConstructionCfg.builder().setName("group")
+                .setCorePoolSize(1).setMaxPoolSize(2)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setAddWorkerStrategy(new ExecutorAddWorkerLatencyStrategy(10, 1, 0, TimeUnit.MILLISECONDS))
+                .build());
+        ExtendedThreadPoolExecutor shard0 = group.getShards().get(0);
+        ExtendedThreadPoolExecutor shard1 = group.getShards().get(1);
+        Assert.assertEquals("group-0", shard0.getName());
+        Assert.assertEquals("group-1", shard1.getName());
+        Assert.assertNotSame(shard0.getAddWorkerStrategy(), shard1.getAddWorkerStrategy());
+        Assert.assertNotSame(shard0.getQueue(), shard1.getQueue());
+        group.shutdown();
+        Assert.assertTrue(group.awaitTermination(5, TimeUnit.SECONDS));
+
+        // every shard creates its own queue from workQueueCapacity
+        ExecutorGroup boundedGroup = new ExecutorGroup(2, () -> ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(2)
+                .setWorkQueueCapacity(10)
+                .build());
+        BlockingQueue<Runnable> queue0 = boundedGroup.getShards().get(0).getQueue();
+        BlockingQueue<Runnable> queue1 = boundedGroup.getShards().get(1).getQueue();
+        Assert.assertTrue(queue0 instanceof ResizableBlockingQueue);
+        Assert.assertEquals(10, ((ResizableBlockingQueue<Runnable>) queue0).getCapacity());
+        Assert.assertNotSame(queue0, queue1);
+        boundedGroup.shutdown();
+        Assert.assertTrue(boundedGroup.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * {@linkplain ExecutorRegistry} test cases.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class ExecutorRegistryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static void write(Path file, String... lines) throws Exception {
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testLoadAndReload() throws Exception {
+        Path file = new File(temporaryFolder.getRoot(), "executors.properties").toPath();
+        write(file,
+                "executor.io.corePoolSize=2",
+                "executor.io.maxPoolSize=8",
+                "executor.io.workQueueCapacity=100",
+                "executor.io.addWorkerStrategy=eager",
+                "executor.cpu.corePoolSize=1",
+                "executor.cpu.maxPoolSize=1");
+        ExecutorRegistry registry = new ExecutorRegistry(file);
+        try {
+            Assert.assertEquals(Arrays.asList("cpu", "io"), Arrays.asList(registry.getNames().toArray()));
+            ExtendedThreadPoolExecutor io = registry.get("io");
+            Assert.assertEquals(2, io.getCorePoolSize());
+            Assert.assertEquals(8, io.getMaximumPoolSize());
+            Assert.assertEquals(100, io.getQueue().remainingCapacity());
+            ExecutorAddWorkerStrategy ioStrategy = io.getConstructionCfg().getAddWorkerStrategy();
+            Assert.assertTrue(ioStrategy instanceof ExecutorAddWorkerEagerStrategy);
+            Assert.assertNull(registry.get("cpu").getConstructionCfg().getAddWorkerStrategy());
+
+            write(file,
+                    "executor.io.corePoolSize=4",
+                    "executor.io.maxPoolSize=16",
+                    "executor.io.workQueueCapacity=50",
+                    "executor.io.addWorkerStrategy=eager",
+                    "executor.cpu.corePoolSize=1",
+                    "executor.cpu.maxPoolSize=abc",
+                    "executor.batch.corePoolSize=1",
+                    "executor.batch.maxPoolSize=2",
+                    "executor.overflow.corePoolSize=1",
+                    "executor.overflow.maxPoolSize=4294967298");
+            registry.reload();
+            Assert.assertSame(io, registry.get("io"));
+            Assert.assertEquals(4, io.getCorePoolSize());
+            Assert.assertEquals(16, io.getMaximumPoolSize());
+            Assert.assertEquals(50, io.getQueue().remainingCapacity());
+            Assert.assertSame(ioStrategy, io.getConstructionCfg().getAddWorkerStrategy());
+            // invalid settings skipped
+            Assert.assertEquals(1, registry.get("cpu").getMaximumPoolSize());
+            Assert.assertEquals(2, registry.get("batch").getMaximumPoolSize());
+            // out of int range, not wrapped to 2
+            Assert.assertNull(registry.get("overflow"));
+        } finally {
+            registry.shutdown();
+            Assert.assertTrue(registry.awaitTermination(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test(timeout = 60_000)
+    public void testWatching() throws Exception {
+        Path file = new File(temporaryFolder.getRoot(), "executors.properties").toPath();
+        write(file,
+                "executor.io.corePoolSize=1",
+                "executor.io.maxPoolSize=2");
+        ExecutorRegistry registry = new ExecutorRegistry(file);
+        try {
+            registry.startWatching();
+            ExtendedThreadPoolExecutor io = registry.get("io");
+            write(file,
+                    "executor.io.corePoolSize=3",
+                    "executor.io.maxPoolSize=6",
+                    "executor.io.addWorkerStrategy=org.sandynz.sdcommons.concurrent.ExecutorAddWorkerEagerStrategy");
+            // polling based watch service could take seconds
+            while (io.getMaximumPoolSize() != 6) {
+                Thread.sleep(50);
+            }
+            Assert.assertEquals(3, io.getCorePoolSize());
+            Assert.assertTrue(io.getConstructionCfg().getAddWorkerStrategy() instanceof ExecutorAddWorkerEagerStrategy);
+        } finally {
+            registry.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@linkplain ExtendedForkJoinExecutor} test cases.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class ExtendedForkJoinExecutorTest {
+
+    private static class SumTask extends RecursiveTask<Long> {
+
+        private static final long serialVersionUID = 1;
+
+        private final long from;
+        private final long to;
+
+        SumTask(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= 1000) {
+                long sum = 0;
+                for (long i = from; i < to; i++) {
+                    sum += i;
+                }
+                return sum;
+            }
+            long middle = (from + to) >>> 1;
+            SumTask left = new SumTask(from, middle);
+            left.fork();
+            return new SumTask(middle, to).compute() + left.join();
+        }
+    }
+
+    @Test
+    public void testInvokeRecursiveTask() throws Exception {
+        ExtendedForkJoinExecutor executor = new ExtendedForkJoinExecutor(ExecutorConstructionCfg.builder()
+                .setName("fj").setCorePoolSize(1).setMaxPoolSize(2)
+                .setThreadFactory(new ThreadFactoryImpl("fj-worker-"))
+                .build());
+        Assert.assertEquals("fj", executor.getName());
+        Assert.assertEquals(2, executor.getParallelism());
+        Assert.assertEquals(Long.valueOf(100_000L * 99_999L / 2), executor.invoke(new SumTask(0, 100_000)));
+        Future<String> future = executor.submit(() -> Thread.currentThread().getName());
+        Assert.assertTrue(future.get(5, TimeUnit.SECONDS).startsWith("fj-worker-"));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testBoundedSubmissions() throws InterruptedException {
+        ExtendedForkJoinExecutor executor = new ExtendedForkJoinExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueueCapacity(1)
+                .setHandler(new LightweightAbortPolicy(true))
+                .build());
+        Assert.assertEquals(2, executor.getMaxPendingCount());
+        AtomicInteger beforeCount = new AtomicInteger();
+        AtomicInteger afterCount = new AtomicInteger();
+        executor.addRunnableListener(new RunnableListener() {
+            @Override
+            public Object beforeExecute(Thread thread, Runnable runnable) {
+                beforeCount.incrementAndGet();
+                return null;
+            }
+
+            @Override
+            public void afterExecute(Runnable runnable, Throwable throwable, Object beforeExecuteAttachment) {
+                afterCount.incrementAndGet();
+            }
+        });
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            executor.execute(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    log.error("ex caught", e);
+                }
+                done.countDown();
+            });
+        }
+        try {
+            executor.execute(() -> {
+            });
+            Assert.fail();
+        } catch (LightweightRejectedExecutionException e) {
+            Assert.assertEquals(RejectedExecutionCause.QUEUE_FULL, e.getRejectionCause());
+        }
+        Assert.assertEquals(1, executor.getRejectedTaskCount(RejectedExecutionCause.QUEUE_FULL));
+        gate.countDown();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, executor.getPendingCount());
+        Assert.assertEquals(2, beforeCount.get());
+        Assert.assertEquals(2, afterCount.get());
+
+        try {
+            executor.execute(() -> {
+            });
+            Assert.fail();
+        } catch (LightweightRejectedExecutionException e) {
+            Assert.assertEquals(RejectedExecutionCause.SHUTDOWN, e.getRejectionCause());
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void testRecursiveTaskRejected() throws InterruptedException {
+        // neither discarded nor run by the caller, invoke fails instead of waiting forever or forking into the common pool
+        ExtendedForkJoinExecutor callerRunsExecutor = new ExtendedForkJoinExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueueCapacity(1)
+                .setHandler(new ThreadPoolExecutor.CallerRunsPolicy())
+                .build());
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            callerRunsExecutor.execute(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    log.error("ex caught", e);
+                }
+                done.countDown();
+            });
+        }
+        try {
+            callerRunsExecutor.invoke(new SumTask(0, 100_000));
+            Assert.fail();
+        } catch (RejectedExecutionException e) {
+            log.info("expected: {}", e.getMessage());
+        }
+        Assert.assertEquals(1, callerRunsExecutor.getRejectedTaskCount(RejectedExecutionCause.QUEUE_FULL));
+        gate.countDown();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        callerRunsExecutor.shutdown();
+        Assert.assertTrue(callerRunsExecutor.awaitTermination(5, TimeUnit.SECONDS));
+
+        ExtendedForkJoinExecutor discardExecutor = new ExtendedForkJoinExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setHandler(new ThreadPoolExecutor.DiscardPolicy())
+                .build());
+        discardExecutor.shutdown();
+        ForkJoinTask<Long> task = discardExecutor.submit(new SumTask(0, 100_000));
+        Assert.assertTrue(task.isCompletedAbnormally());
+        Assert.assertTrue(task.getException() instanceof RejectedExecutionException);
+        Assert.assertEquals(1, discardExecutor.getRejectedTaskCount(RejectedExecutionCause.SHUTDOWN));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnsupportedHandler() {
+        new ExtendedForkJoinExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setHandler(new ThreadPoolExecutor.DiscardOldestPolicy())
+                .build());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHandlerSubclassUnsupported() {
+        new ExtendedForkJoinExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setHandler(new ThreadPoolExecutor.AbortPolicy() {
+                    @Override
+                    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                        log.info("custom rejection, r={}", r);
+                    }
+                })
+                .build());
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@linkplain ExtendedScheduledExecutor} test cases.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class ExtendedScheduledExecutorTest {
+
+    private ExtendedScheduledExecutor newScheduledExecutor() {
+        ExtendedThreadPoolExecutor dispatchExecutor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(2).setMaxPoolSize(2)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setThreadFactory(new ThreadFactoryImpl("scheduled-dispatch-"))
+                .build());
+        return new ExtendedScheduledExecutor(dispatchExecutor, 1, TimeUnit.MILLISECONDS, 64, new ThreadFactoryImpl("scheduled-timer-", true));
+    }
+
+    @Test
+    public void testSchedule() throws InterruptedException, ExecutionException {
+        ExtendedScheduledExecutor executor = newScheduledExecutor();
+        long start = System.nanoTime();
+        // longer than one round of the wheel
+        ScheduledFuture<String> future = executor.schedule(() -> "done", 100, TimeUnit.MILLISECONDS);
+        Assert.assertEquals("done", future.get());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        log.info("elapsedMillis={}", elapsedMillis);
+        Assert.assertTrue(elapsedMillis >= 100);
+        Assert.assertTrue(future.getDelay(TimeUnit.MILLISECONDS) <= 0);
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        ExtendedScheduledExecutor executor = newScheduledExecutor();
+        AtomicInteger runCount = new AtomicInteger();
+        ScheduledFuture<?> future = executor.schedule(runCount::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(future.cancel(false));
+        Thread.sleep(100);
+        Assert.assertEquals(0, runCount.get());
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testPeriodic() throws InterruptedException {
+        ExtendedScheduledExecutor executor = newScheduledExecutor();
+        CountDownLatch fixedRateLatch = new CountDownLatch(5);
+        CountDownLatch fixedDelayLatch = new CountDownLatch(5);
+        ScheduledFuture<?> fixedRate = executor.scheduleAtFixedRate(fixedRateLatch::countDown, 0, 5, TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> fixedDelay = executor.scheduleWithFixedDelay(fixedDelayLatch::countDown, 0, 5, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(fixedRateLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(fixedDelayLatch.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(fixedRate.cancel(false));
+        Assert.assertTrue(fixedDelay.cancel(false));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testManyTimers() throws InterruptedException {
+        ExtendedScheduledExecutor executor = newScheduledExecutor();
+        int timerCount = 100_000;
+        CountDownLatch latch = new CountDownLatch(timerCount);
+        AtomicInteger early = new AtomicInteger();
+        for (int i = 0; i < timerCount; i++) {
+            long delayMillis = ThreadLocalRandom.current().nextInt(200);
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            executor.schedule(() -> {
+                if (System.nanoTime() < deadline) {
+                    early.incrementAndGet();
+                }
+                latch.countDown();
+            }, delayMillis, TimeUnit.MILLISECONDS);
+        }
+        Assert.assertTrue(latch.await(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, early.get());
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testShutdownNow() throws InterruptedException {
+        ExtendedScheduledExecutor executor = newScheduledExecutor();
+        ScheduledFuture<?> future = executor.schedule(() -> {
+        }, 1, TimeUnit.HOURS);
+        List<Runnable> unexpired = executor.shutdownNow();
+        Assert.assertEquals(1, unexpired.size());
+        Assert.assertSame(future, unexpired.get(0));
+        Assert.assertTrue(future.isCancelled());
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        try {
+            executor.schedule(() -> {
+            }, 1, TimeUnit.SECONDS);
+            Assert.fail("should be rejected");
+        } catch (LightweightRejectedExecutionException e) {
+            log.info("rejected after shutdown");
+        }
+    }
+
+}
@@ -21,15 +21,22 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.Range;
 import org.junit.Assert;
 import org.junit.Test;
+import org.sandynz.sdcommons.base.statistic.LeapArrayCfg;
+import org.slf4j.MDC;
 
 /**
  * {@link ExtendedThreadPoolExecutor} test cases.
@@ -93,4 +100,860 @@ public class ExtendedThreadPoolExecutorTest {
         test0(executorService, 20, Range.between(10, 10));
     }
 
+    @Test
+    public void testApproximateQueueSize() throws InterruptedException {
+        ExtendedThreadPoolExecutor executor = (ExtendedThreadPoolExecutor) createExecutorService(new ExecutorServiceTestCfg(1, 1, 10)
+                .setAddWorkerStrategy(new ExecutorAddWorkerEagerStrategy()));
+        ThreadPoolExecutor.ExecutorExtContext ctx = executor.getExecutorExtContext();
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+        });
+        Runnable noop = () -> {
+        };
+        for (int i = 0; i < 5; i++) {
+            executor.execute(noop);
+        }
+        Assert.assertEquals(5, ctx.getApproximateQueueSize());
+        Assert.assertTrue(executor.remove(noop));
+        Assert.assertEquals(4, ctx.getApproximateQueueSize());
+        latch.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, ctx.getApproximateQueueSize());
+    }
+
+    @Test
+    public void testSpinIdleStrategy() throws InterruptedException {
+        ExecutorWorkerSpinIdleStrategy idleStrategy = new ExecutorWorkerSpinIdleStrategy(1, 200, TimeUnit.MICROSECONDS, 2, 1);
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setThreadFactory(new ThreadFactoryImpl("spin-"))
+                .setWorkerIdleStrategy(idleStrategy)
+                .build());
+        int taskCount = 2000;
+        CountDownLatch latch = new CountDownLatch(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            executor.execute(latch::countDown);
+            // dense arrivals
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(20));
+        }
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        log.info("spinNanos={}", idleStrategy.getSpinNanos());
+        Assert.assertTrue(idleStrategy.getSpinNanos() > TimeUnit.MICROSECONDS.toNanos(1));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSpinIdleStrategyOnSynchronousQueue() throws InterruptedException {
+        // a spinning worker would not take hand-offs for 100ms, so execute would throw on rejection
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueue(new SynchronousQueue<>())
+                .setThreadFactory(new ThreadFactoryImpl("spin-sync-"))
+                .setWorkerIdleStrategy(new ExecutorWorkerSpinIdleStrategy(100, 100, TimeUnit.MILLISECONDS, 0, 1))
+                .build());
+        for (int i = 0; i < 5; i++) {
+            CountDownLatch latch = new CountDownLatch(1);
+            executor.execute(latch::countDown);
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            // let the worker block in take
+            Thread.sleep(20);
+        }
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testTryExecute() throws InterruptedException {
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueue(new LinkedBlockingQueue<>(1))
+                .setAddWorkerStrategy(new ExecutorAddWorkerEagerStrategy())
+                .setHandler((r, e) -> Assert.fail("handler should not be invoked"))
+                .build());
+        CountDownLatch latch = new CountDownLatch(1);
+        Assert.assertTrue(executor.tryExecute(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+        }));
+        Assert.assertTrue(executor.tryExecute(() -> {
+        }));
+        Assert.assertFalse(executor.tryExecute(() -> {
+        }));
+        latch.countDown();
+        executor.shutdown();
+        Assert.assertFalse(executor.tryExecute(() -> {
+        }));
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testSnapshot() throws InterruptedException {
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(2).setMaxPoolSize(2)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .build());
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch gate = new CountDownLatch(1);
+        for (int i = 0; i < 5; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    log.error("ex caught", e);
+                }
+            });
+        }
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        ExecutorStatistics statistics = executor.snapshot();
+        log.info("statistics={}", statistics);
+        Assert.assertEquals(2, statistics.getPoolSize());
+        Assert.assertEquals(2, statistics.getActiveCount());
+        Assert.assertEquals(2, statistics.getLargestPoolSize());
+        Assert.assertEquals(3, statistics.getQueueSize());
+        Assert.assertEquals(5, statistics.getTaskCount());
+        Assert.assertEquals(0, statistics.getCompletedTaskCount());
+        gate.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        statistics = executor.snapshot();
+        Assert.assertEquals(0, statistics.getActiveCount());
+        Assert.assertEquals(5, statistics.getTaskCount());
+        Assert.assertEquals(5, statistics.getCompletedTaskCount());
+        Assert.assertEquals(5, executor.getCompletedTaskCount());
+    }
+
+    @Test
+    public void testRejectionCause() throws InterruptedException {
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueueCapacity(1)
+                .setHandler(new LightweightAbortPolicy(true))
+                .build());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+        });
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> {
+        });
+        List<RejectedExecutionException> exceptions = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            try {
+                executor.execute(() -> {
+                });
+                Assert.fail();
+            } catch (RejectedExecutionException e) {
+                exceptions.add(e);
+            }
+        }
+        Assert.assertSame(exceptions.get(0), exceptions.get(1));
+        Assert.assertEquals(RejectedExecutionCause.QUEUE_FULL, ((LightweightRejectedExecutionException) exceptions.get(0)).getRejectionCause());
+        Assert.assertFalse(executor.tryExecute(() -> {
+        }));
+        Assert.assertEquals(3, executor.getRejectedTaskCount(RejectedExecutionCause.QUEUE_FULL));
+        gate.countDown();
+        executor.shutdown();
+        Assert.assertFalse(executor.tryExecute(() -> {
+        }));
+        ExecutorStatistics statistics = executor.snapshot();
+        Assert.assertEquals(1, statistics.getShutdownRejectedCount());
+        Assert.assertEquals(3, statistics.getQueueFullRejectedCount());
+        Assert.assertEquals(0, statistics.getMaxThreadsRejectedCount());
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        ExtendedThreadPoolExecutor handOffExecutor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(0).setMaxPoolSize(1)
+                .setWorkQueue(new SynchronousQueue<>())
+                .setHandler(new LightweightAbortPolicy())
+                .build());
+        CountDownLatch handOffGate = new CountDownLatch(1);
+        handOffExecutor.execute(() -> {
+            try {
+                handOffGate.await();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+        });
+        try {
+            handOffExecutor.execute(() -> {
+            });
+            Assert.fail();
+        } catch (LightweightRejectedExecutionException e) {
+            Assert.assertEquals(RejectedExecutionCause.MAX_THREADS, e.getRejectionCause());
+        }
+        Assert.assertEquals(1, handOffExecutor.getRejectedTaskCount(RejectedExecutionCause.MAX_THREADS));
+        handOffGate.countDown();
+        handOffExecutor.shutdown();
+        Assert.assertTrue(handOffExecutor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testEventHooks() throws InterruptedException {
+        AtomicInteger workerAdded = new AtomicInteger();
+        AtomicInteger workerExited = new AtomicInteger();
+        AtomicInteger queueFull = new AtomicInteger();
+        List<RejectedExecutionCause> rejections = Collections.synchronizedList(new ArrayList<>());
+        List<Long> sampledWaits = Collections.synchronizedList(new ArrayList<>());
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setName("hooks")
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueueCapacity(1)
+                .setHandler(new ThreadPoolExecutor.DiscardPolicy())
+                .build()) {
+            @Override
+            protected void workerAdded(Thread t) {
+                super.workerAdded(t);
+                workerAdded.incrementAndGet();
+            }
+
+            @Override
+            protected void workerExited(Thread t, boolean completedAbruptly) {
+                super.workerExited(t, completedAbruptly);
+                workerExited.incrementAndGet();
+            }
+
+            @Override
+            protected void taskRejected(Runnable r, RejectedExecutionCause cause) {
+                super.taskRejected(r, cause);
+                rejections.add(cause);
+            }
+
+            @Override
+            protected void queueFull(Runnable r) {
+                super.queueFull(r);
+                queueFull.incrementAndGet();
+            }
+
+            @Override
+            protected void taskSampled(Runnable r, long waitNanos, long runNanos) {
+                super.taskSampled(r, waitNanos, runNanos);
+                sampledWaits.add(waitNanos);
+            }
+        };
+        Assert.assertEquals("hooks", executor.getName());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+        });
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        executor.execute(() -> {
+        });
+        executor.execute(() -> {
+        });
+        Thread.sleep(20);
+        gate.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, workerAdded.get());
+        Assert.assertEquals(1, workerExited.get());
+        Assert.assertEquals(1, queueFull.get());
+        Assert.assertEquals(Collections.singletonList(RejectedExecutionCause.QUEUE_FULL), rejections);
+        Assert.assertEquals(1, sampledWaits.size());
+        Assert.assertTrue(sampledWaits.get(0) >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+
+    @Test
+    public void testExecuteAll() throws InterruptedException {
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(2).setMaxPoolSize(3)
+                .setWorkQueueCapacity(4)
+                .build());
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(7);
+        List<Runnable> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    log.error("ex caught", e);
+                }
+                done.countDown();
+            });
+        }
+        ExecuteAllResult result = executor.executeAll(tasks);
+        log.info("result={}", result);
+        // 2 core workers, 4 queued, 1 non-core worker, 3 rejected
+        Assert.assertEquals(7, result.getAcceptedCount());
+        Assert.assertEquals(tasks.subList(7, 10), result.getRejectedTasks());
+        Assert.assertEquals(3, executor.getPoolSize());
+        Assert.assertEquals(4, executor.getQueue().size());
+        Assert.assertEquals(3, executor.getRejectedTaskCount(RejectedExecutionCause.QUEUE_FULL));
+        gate.countDown();
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        Assert.assertTrue(executor.executeAll(tasks.subList(0, 1)).isAllAccepted());
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(8, executor.getCompletedTaskCount());
+        ExecuteAllResult rejected = executor.executeAll(tasks.subList(0, 2));
+        Assert.assertEquals(0, rejected.getAcceptedCount());
+        Assert.assertEquals(2, executor.getRejectedTaskCount(RejectedExecutionCause.SHUTDOWN));
+
+        ExtendedThreadPoolExecutor eagerExecutor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(4)
+                .setWorkQueueCapacity(100)
+                .setAddWorkerStrategy(new ExecutorAddWorkerEagerStrategy())
+                .build());
+        CountDownLatch eagerDone = new CountDownLatch(10);
+        List<Runnable> eagerTasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            eagerTasks.add(eagerDone::countDown);
+        }
+        Assert.assertTrue(eagerExecutor.executeAll(eagerTasks).isAllAccepted());
+        Assert.assertEquals(4, eagerExecutor.getLargestPoolSize());
+        Assert.assertTrue(eagerDone.await(5, TimeUnit.SECONDS));
+        eagerExecutor.shutdown();
+        Assert.assertTrue(eagerExecutor.awaitTermination(5, TimeUnit.SECONDS));
+
+        // stale batch worker count, e.g. core pool filled by concurrent submitters meanwhile,
+        // core workers only, the other tasks are queued rather than handed to non-core workers
+        ExtendedThreadPoolExecutor staleExecutor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(4)
+                .setWorkQueueCapacity(100)
+                .setAddWorkerStrategy(new ExecutorAddWorkerOriginalStrategy() {
+                    @Override
+                    public int getBatchWorkerCount(int taskCount, ThreadPoolExecutor.ExecutorExtContext ctx) {
+                        return taskCount;
+                    }
+                })
+                .build());
+        CountDownLatch staleGate = new CountDownLatch(1);
+        List<Runnable> staleTasks = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            staleTasks.add(() -> {
+                try {
+                    staleGate.await();
+                } catch (InterruptedException e) {
+                    log.error("ex caught", e);
+                }
+            });
+        }
+        Assert.assertTrue(staleExecutor.executeAll(staleTasks).isAllAccepted());
+        Assert.assertEquals(1, staleExecutor.getPoolSize());
+        Assert.assertEquals(2, staleExecutor.getQueue().size());
+        staleGate.countDown();
+        staleExecutor.shutdown();
+        Assert.assertTrue(staleExecutor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testAddWorkerRacingShutdown() throws InterruptedException {
+        for (int round = 0; round < 50; round++) {
+            ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                    .setCorePoolSize(0).setMaxPoolSize(64)
+                    .setWorkQueue(new LinkedBlockingQueue<>())
+                    .setAddWorkerStrategy(new ExecutorAddWorkerEagerStrategy())
+                    .setHandler(new ThreadPoolExecutor.DiscardPolicy())
+                    .build());
+            int submitterCount = 4;
+            CountDownLatch ready = new CountDownLatch(submitterCount);
+            List<Thread> submitters = new ArrayList<>();
+            for (int i = 0; i < submitterCount; i++) {
+                Thread submitter = new Thread(() -> {
+                    ready.countDown();
+                    for (int j = 0; j < 100; j++) {
+                        executor.execute(Thread::yield);
+                    }
+                });
+                submitter.start();
+                submitters.add(submitter);
+            }
+            ready.await();
+            executor.shutdown();
+            for (Thread submitter : submitters) {
+                submitter.join();
+            }
+            Assert.assertTrue("round " + round, executor.awaitTermination(5, TimeUnit.SECONDS));
+            Assert.assertEquals(0, executor.getPoolSize());
+        }
+    }
+
+    @Test
+    public void testRunnableListener() throws InterruptedException {
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .build());
+        List<Runnable> beforeTasks = Collections.synchronizedList(new ArrayList<>());
+        List<Throwable> afterThrowables = Collections.synchronizedList(new ArrayList<>());
+        RunnableListener listener = new RunnableListener() {
+            @Override
+            public Object beforeExecute(Thread thread, Runnable runnable) {
+                beforeTasks.add(runnable);
+                return runnable;
+            }
+
+            @Override
+            public void afterExecute(Runnable runnable, Throwable throwable, Object beforeExecuteAttachment) {
+                Assert.assertSame(runnable, beforeExecuteAttachment);
+                afterThrowables.add(throwable);
+            }
+        };
+        RunnableListener failingListener = new RunnableListener() {
+            @Override
+            public Object beforeExecute(Thread thread, Runnable runnable) {
+                throw new IllegalStateException("before");
+            }
+
+            @Override
+            public void afterExecute(Runnable runnable, Throwable throwable, Object beforeExecuteAttachment) {
+                Assert.assertTrue(beforeExecuteAttachment instanceof IllegalStateException);
+                throw new IllegalStateException("after");
+            }
+        };
+        executor.addRunnableListener(failingListener);
+        executor.addRunnableListener(listener);
+
+        CountDownLatch gate = new CountDownLatch(1);
+        Runnable gateTask = () -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+        };
+        Runnable queuedTask = () -> {
+        };
+        Runnable failingTask = () -> {
+            throw new IllegalArgumentException("task");
+        };
+        executor.execute(gateTask);
+        executor.execute(queuedTask);
+        executor.execute(failingTask);
+        // tasks are not wrapped
+        Assert.assertTrue(executor.getQueue().contains(queuedTask));
+        gate.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(3, beforeTasks.size());
+        Assert.assertSame(queuedTask, beforeTasks.get(1));
+        Assert.assertNull(afterThrowables.get(1));
+        Assert.assertTrue(afterThrowables.get(2) instanceof IllegalArgumentException);
+
+        Assert.assertTrue(executor.removeRunnableListener(listener));
+        Assert.assertFalse(executor.removeRunnableListener(listener));
+        Assert.assertEquals(1, executor.getRunnableListeners().length);
+    }
+
+    @Test
+    public void testContextPropagator() throws InterruptedException, ExecutionException {
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .build());
+        ThreadLocal<String> tenant = new ThreadLocal<>();
+        executor.addContextPropagator(new MdcContextPropagator());
+        executor.addContextPropagator(new ThreadLocalContextPropagator<>(tenant));
+        List<Runnable> beforeTasks = Collections.synchronizedList(new ArrayList<>());
+        executor.addRunnableListener(new RunnableListener() {
+            @Override
+            public Object beforeExecute(Thread thread, Runnable runnable) {
+                beforeTasks.add(runnable);
+                return null;
+            }
+        });
+
+        Runnable noContextTask = () -> {
+        };
+        executor.submit(noContextTask).get();
+        Assert.assertFalse(beforeTasks.get(0) instanceof ContextCarrier);
+
+        MDC.put("traceId", "t1");
+        tenant.set("tenant1");
+        try {
+            Assert.assertEquals("t1|tenant1", executor.submit(() -> MDC.get("traceId") + "|" + tenant.get()).get());
+        } finally {
+            MDC.clear();
+            tenant.remove();
+        }
+        // contexts are reset in worker
+        Assert.assertEquals("null|null", executor.submit(() -> MDC.get("traceId") + "|" + tenant.get()).get());
+
+        // previous contexts of worker are restored, with one or both contexts captured
+        executor.submit(() -> {
+            MDC.put("worker", "w1");
+            tenant.set("workerTenant");
+        }).get();
+        tenant.set("tenant2");
+        try {
+            Assert.assertEquals("w1|tenant2", executor.submit(() -> MDC.get("worker") + "|" + tenant.get()).get());
+            MDC.put("traceId", "t3");
+            Assert.assertEquals("null|t3|tenant2", executor.submit(() -> MDC.get("worker") + "|" + MDC.get("traceId") + "|" + tenant.get()).get());
+        } finally {
+            MDC.clear();
+            tenant.remove();
+        }
+        Assert.assertEquals("w1|null|workerTenant", executor.submit(() -> MDC.get("worker") + "|" + MDC.get("traceId") + "|" + tenant.get()).get());
+        executor.submit(() -> {
+            MDC.clear();
+            tenant.remove();
+        }).get();
+
+        // wrapped tasks keep identity for remove and shutdownNow
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch gate = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                log.info("interrupted");
+            }
+        });
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        MDC.put("traceId", "t2");
+        Runnable removedTask = () -> {
+        };
+        Runnable pendingTask = () -> {
+        };
+        try {
+            executor.execute(removedTask);
+            executor.execute(pendingTask);
+        } finally {
+            MDC.clear();
+        }
+        Assert.assertTrue(executor.remove(removedTask));
+        List<Runnable> pendingTasks = executor.shutdownNow();
+        Assert.assertEquals(Collections.singletonList(pendingTask), pendingTasks);
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        ContextPropagator<?> propagator = executor.getContextPropagators()[0];
+        Assert.assertTrue(executor.removeContextPropagator(propagator));
+        Assert.assertFalse(executor.removeContextPropagator(propagator));
+        Assert.assertEquals(1, executor.getContextPropagators().length);
+    }
+
+    @Test
+    public void testContextPropagatorOnRejection() throws InterruptedException, ExecutionException {
+        // rejected execution handler is given the task submitted by user, not its context wrapper
+        List<Runnable> rejectedTasks = Collections.synchronizedList(new ArrayList<>());
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueue(new LinkedBlockingQueue<>(1))
+                .setHandler((r, e) -> {
+                    rejectedTasks.add(r);
+                    if (r instanceof Future) {
+                        ((Future<?>) r).cancel(false);
+                    }
+                })
+                .build());
+        ThreadLocal<String> tenant = new ThreadLocal<>();
+        executor.addContextPropagator(new ThreadLocalContextPropagator<>(tenant));
+        CountDownLatch gate = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                log.info("interrupted");
+            }
+        });
+        tenant.set("tenant1");
+        Future<?> rejectedFuture;
+        try {
+            executor.execute(() -> {
+            });
+            rejectedFuture = executor.submit(() -> {
+            });
+        } finally {
+            tenant.remove();
+        }
+        Assert.assertEquals(Collections.singletonList(rejectedFuture), rejectedTasks);
+        Assert.assertTrue(rejectedFuture.isCancelled());
+        gate.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        // a handler queuing the task again keeps the context
+        ExtendedThreadPoolExecutor admittingExecutor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueue(new LinkedBlockingQueue<>(1))
+                .setHandler(new BlockingAdmissionPolicy(5, TimeUnit.SECONDS, 1))
+                .build());
+        admittingExecutor.addContextPropagator(new ThreadLocalContextPropagator<>(tenant));
+        CountDownLatch admittingGate = new CountDownLatch(1);
+        admittingExecutor.execute(() -> {
+            try {
+                admittingGate.await();
+            } catch (InterruptedException e) {
+                log.info("interrupted");
+            }
+        });
+        admittingExecutor.execute(() -> {
+        });
+        Thread opener = new Thread(() -> {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(50));
+            admittingGate.countDown();
+        });
+        opener.start();
+        tenant.set("tenant2");
+        Future<String> admittedFuture;
+        try {
+            admittedFuture = admittingExecutor.submit(tenant::get);
+        } finally {
+            tenant.remove();
+        }
+        Assert.assertEquals("tenant2", admittedFuture.get());
+        opener.join();
+        admittingExecutor.shutdown();
+        Assert.assertTrue(admittingExecutor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testLatencyStrategy() throws InterruptedException {
+        ExecutorAddWorkerLatencyStrategy strategy = new ExecutorAddWorkerLatencyStrategy(20, 5, 0, TimeUnit.MILLISECONDS);
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(4)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setAddWorkerStrategy(strategy)
+                .build());
+        CountDownLatch gate = new CountDownLatch(1);
+        Runnable blockingTask = () -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+        };
+        executor.execute(blockingTask);
+        // many queued tasks but short wait, no worker added
+        for (int i = 0; i < 10; i++) {
+            executor.execute(() -> {
+            });
+        }
+        Assert.assertEquals(1, executor.getPoolSize());
+        Assert.assertTrue(executor.getExecutorExtContext().getQueueWaitNanos() < TimeUnit.MILLISECONDS.toNanos(20));
+
+        Thread.sleep(30);
+        Assert.assertTrue(executor.getExecutorExtContext().getQueueWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(30));
+        executor.execute(() -> {
+        });
+        Assert.assertEquals(2, executor.getPoolSize());
+        Assert.assertTrue(strategy.isScalingUp());
+
+        gate.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, executor.getExecutorExtContext().getQueueWaitNanos());
+
+        // batches follow watermarks and cooldown
+        ExtendedThreadPoolExecutor batchExecutor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(4)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setAddWorkerStrategy(new ExecutorAddWorkerLatencyStrategy(20, 5, 60_000, TimeUnit.MILLISECONDS))
+                .build());
+        CountDownLatch batchGate = new CountDownLatch(1);
+        List<Runnable> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batch.add(() -> {
+                try {
+                    batchGate.await();
+                } catch (InterruptedException e) {
+                    log.error("ex caught", e);
+                }
+            });
+        }
+        Assert.assertTrue(batchExecutor.executeAll(batch).isAllAccepted());
+        Assert.assertTrue(batchExecutor.executeAll(batch).isAllAccepted());
+        Assert.assertEquals(1, batchExecutor.getPoolSize());
+        Thread.sleep(30);
+        Assert.assertTrue(batchExecutor.executeAll(batch).isAllAccepted());
+        Assert.assertEquals(2, batchExecutor.getPoolSize());
+        Assert.assertTrue(batchExecutor.executeAll(batch).isAllAccepted());
+        Assert.assertEquals(2, batchExecutor.getPoolSize());
+        batchGate.countDown();
+        batchExecutor.shutdown();
+        Assert.assertTrue(batchExecutor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testQueueWaitOfHead() throws InterruptedException {
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueue(new ResizableBlockingQueue<>(10))
+                .build());
+        ThreadPoolExecutor.ExecutorExtContext ctx = executor.getExecutorExtContext();
+        CountDownLatch gate = new CountDownLatch(1);
+        CountDownLatch secondStarted = new CountDownLatch(1);
+        CountDownLatch secondGate = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+        });
+        executor.execute(() -> {
+            secondStarted.countDown();
+            try {
+                secondGate.await();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+        });
+        Thread.sleep(30);
+        executor.execute(() -> {
+        });
+        executor.execute(() -> {
+        });
+        Assert.assertTrue(ctx.getQueueWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(30));
+
+        // once the second task is taken, the third one is the head, it doesn't lag behind the newest task
+        Thread.sleep(20);
+        gate.countDown();
+        Assert.assertTrue(secondStarted.await(5, TimeUnit.SECONDS));
+        long waitNanos = ctx.getQueueWaitNanos();
+        Assert.assertTrue(waitNanos >= TimeUnit.MILLISECONDS.toNanos(20));
+        Assert.assertTrue(waitNanos < TimeUnit.MILLISECONDS.toNanos(30 + 20));
+
+        // tasks removed through the queue don't stay waiting
+        executor.getQueue().clear();
+        Assert.assertEquals(0, ctx.getQueueWaitNanos());
+        secondGate.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testUtilizationWorkerRetirementPolicy() throws InterruptedException {
+        UtilizationWorkerRetirementPolicy policy = new UtilizationWorkerRetirementPolicy(
+                new LeapArrayCfg(10, TimeUnit.MILLISECONDS, 1000), 1, 20, 50, TimeUnit.MILLISECONDS);
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(8)
+                .setWorkQueue(new SynchronousQueue<>())
+                .setWorkerRetirementPolicy(policy)
+                .build());
+        int burstSize = 8;
+        CountDownLatch started = new CountDownLatch(burstSize);
+        CountDownLatch gate = new CountDownLatch(1);
+        for (int i = 0; i < burstSize; i++) {
+            executor.execute(() -> {
+                started.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    log.error("ex caught", e);
+                }
+            });
+        }
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        gate.countDown();
+        // kept warm within the window, although idle timeout is short
+        Thread.sleep(300);
+        Assert.assertEquals(burstSize, executor.getPoolSize());
+        Assert.assertEquals(burstSize, policy.getWarmWorkerCount());
+
+        // retire gradually after the window
+        long start = System.nanoTime();
+        while (executor.getPoolSize() > 1 && System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5)) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, executor.getPoolSize());
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testReconfigure() throws InterruptedException {
+        ExecutorConstructionCfg cfg = ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setWorkQueueCapacity(2)
+                .build();
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(cfg);
+        Assert.assertTrue(executor.getQueue() instanceof ResizableBlockingQueue);
+        // configuration could be reused, every executor creates its own queue
+        Assert.assertNull(cfg.getWorkQueue());
+        ExtendedThreadPoolExecutor sibling = new ExtendedThreadPoolExecutor(cfg);
+        Assert.assertNotSame(executor.getQueue(), sibling.getQueue());
+        sibling.shutdown();
+        CountDownLatch gate = new CountDownLatch(1);
+        Runnable blockingTask = () -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+        };
+        Assert.assertTrue(executor.tryExecute(blockingTask));
+        Assert.assertTrue(executor.tryExecute(blockingTask));
+        Assert.assertTrue(executor.tryExecute(blockingTask));
+        Assert.assertFalse(executor.tryExecute(blockingTask));
+
+        ExecutorAddWorkerEagerStrategy eagerStrategy = new ExecutorAddWorkerEagerStrategy();
+        executor.reconfigure(executor.getConstructionCfg().toBuilder()
+                .setCorePoolSize(2).setMaxPoolSize(4)
+                .setKeepAliveTime(10)
+                .setWorkQueueCapacity(4)
+                .setAddWorkerStrategy(eagerStrategy)
+                .build());
+        Assert.assertEquals(2, executor.getCorePoolSize());
+        Assert.assertEquals(4, executor.getMaximumPoolSize());
+        Assert.assertEquals(10, executor.getKeepAliveTime(TimeUnit.SECONDS));
+        Assert.assertSame(eagerStrategy, executor.getAddWorkerStrategy());
+        Assert.assertEquals(4, ((ResizableBlockingQueue<Runnable>) executor.getQueue()).getCapacity());
+        // queued tasks are kept, and a core worker is prestarted for them
+        Assert.assertEquals(1, executor.getQueue().size());
+        Assert.assertEquals(2, executor.getPoolSize());
+
+        try {
+            executor.reconfigure(executor.getConstructionCfg().toBuilder()
+                    .setWorkQueue(new LinkedBlockingQueue<>())
+                    .build());
+            Assert.fail("work queue could not be replaced");
+        } catch (IllegalArgumentException e) {
+            log.info("reconfigure failed, {}", e.getMessage());
+        }
+        Assert.assertEquals(2, executor.getCorePoolSize());
+
+        // shrink, core size lowered before max size
+        executor.reconfigure(executor.getConstructionCfg().toBuilder()
+                .setCorePoolSize(1).setMaxPoolSize(1)
+                .setAddWorkerStrategy(null)
+                .build());
+        Assert.assertEquals(1, executor.getMaximumPoolSize());
+        Assert.assertNull(executor.getAddWorkerStrategy());
+
+        // thread factory and handler which are not set are kept
+        ThreadFactoryImpl threadFactory = new ThreadFactoryImpl("reconfigure-");
+        LightweightAbortPolicy handler = new LightweightAbortPolicy();
+        executor.reconfigure(executor.getConstructionCfg().toBuilder()
+                .setThreadFactory(threadFactory).setHandler(handler)
+                .build());
+        executor.reconfigure(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(2)
+                .setWorkQueueCapacity(4)
+                .build());
+        Assert.assertEquals(2, executor.getMaximumPoolSize());
+        Assert.assertSame(threadFactory, executor.getThreadFactory());
+        Assert.assertSame(handler, executor.getRejectedExecutionHandler());
+
+        gate.countDown();
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
 }
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@linkplain KeyedSerialExecutor} test cases.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class KeyedSerialExecutorTest {
+
+    @Test
+    public void testSerialPerKey() throws InterruptedException {
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(8).setMaxPoolSize(8)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setThreadFactory(new ThreadFactoryImpl("keyed-"))
+                .build());
+        KeyedSerialExecutor<Integer> keyedExecutor = new KeyedSerialExecutor<>(executor, 4);
+        int keyCount = 10;
+        int taskCountPerKey = 2000;
+        int[] lastSeq = new int[keyCount];
+        AtomicInteger[] inFlight = new AtomicInteger[keyCount];
+        for (int i = 0; i < keyCount; i++) {
+            inFlight[i] = new AtomicInteger();
+        }
+        AtomicInteger violations = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(keyCount * taskCountPerKey);
+        for (int seq = 1; seq <= taskCountPerKey; seq++) {
+            for (int key = 0; key < keyCount; key++) {
+                int finalKey = key;
+                int finalSeq = seq;
+                keyedExecutor.execute(key, () -> {
+                    if (inFlight[finalKey].incrementAndGet() != 1) {
+                        violations.incrementAndGet();
+                    }
+                    // not volatile, guarded by per key serial execution
+                    if (lastSeq[finalKey] + 1 != finalSeq) {
+                        violations.incrementAndGet();
+                    }
+                    lastSeq[finalKey] = finalSeq;
+                    inFlight[finalKey].decrementAndGet();
+                    latch.countDown();
+                });
+            }
+        }
+        Assert.assertTrue(latch.await(30, TimeUnit.SECONDS));
+        Assert.assertEquals(0, violations.get());
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertEquals(0, keyedExecutor.getMailboxCount());
+    }
+
+    @Test
+    public void testRejectionRace() throws Exception {
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1),
+                new ThreadFactoryImpl("keyed-saturated-"));
+        CountDownLatch gate = new CountDownLatch(1);
+        Runnable blockingTask = () -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+        };
+        // one running and one queued, executor is saturated
+        executor.execute(blockingTask);
+        executor.execute(blockingTask);
+        KeyedSerialExecutor<Integer> keyedExecutor = new KeyedSerialExecutor<>(executor);
+        int threadCount = 8;
+        int taskCountPerThread = 200;
+        List<Future<?>> futures = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger thrown = new AtomicInteger();
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < taskCountPerThread; i++) {
+                    try {
+                        futures.add(keyedExecutor.submit(i % 2, () -> {
+                        }));
+                    } catch (LightweightRejectedExecutionException e) {
+                        thrown.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        log.info("thrown={}, futures={}", thrown.get(), futures.size());
+        Assert.assertEquals(threadCount * taskCountPerThread, thrown.get() + futures.size());
+        Assert.assertEquals(threadCount * taskCountPerThread, keyedExecutor.getRejectedTaskCount());
+        for (Future<?> future : futures) {
+            try {
+                future.get(5, TimeUnit.SECONDS);
+                Assert.fail("task ran on a saturated executor");
+            } catch (CancellationException e) {
+                Assert.assertTrue(future.isCancelled());
+            }
+        }
+        Assert.assertEquals(0, keyedExecutor.getMailboxCount());
+
+        gate.countDown();
+        while (executor.getCompletedTaskCount() < 2) {
+            TimeUnit.MILLISECONDS.sleep(1);
+        }
+        Assert.assertEquals("ok", keyedExecutor.submit(0, () -> "ok").get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sandynz.sdcommons.base.statistic.StatisticLeapArray;
+
+/**
+ * {@linkplain OverflowExecutorChain} test cases.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class OverflowExecutorChainTest {
+
+    private ExtendedThreadPoolExecutor createExecutor(String namePrefix, int maxPoolSize, int queueCapacity) {
+        return new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                .setCorePoolSize(1).setMaxPoolSize(maxPoolSize)
+                .setWorkQueue(new LinkedBlockingQueue<>(queueCapacity))
+                .setThreadFactory(new ThreadFactoryImpl(namePrefix))
+                .setAddWorkerStrategy(new ExecutorAddWorkerEagerStrategy())
+                .build());
+    }
+
+    @Test
+    public void testOverflow() throws InterruptedException {
+        StatisticLeapArray<String> latencyArray = new StatisticLeapArray<>(2, 1000);
+        List<OverflowExecutorChain.Tier> tiers = Arrays.asList(
+                new OverflowExecutorChain.Tier("tier1", createExecutor("tier1-", 2, 100),
+                        ExecutorAdmissionPredicate.queueSizeBelow(3).and(ExecutorAdmissionPredicate.averageLatencyBelow(latencyArray, 1000))),
+                new OverflowExecutorChain.Tier("tier2", createExecutor("tier2-", 2, 2), null),
+                new OverflowExecutorChain.Tier("tier3", createExecutor("tier3-", 10, 100), null)
+        );
+        OverflowExecutorChain chain = new OverflowExecutorChain(tiers);
+        CountDownLatch blockLatch = new CountDownLatch(1);
+        int taskCount = 20;
+        CountDownLatch doneLatch = new CountDownLatch(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            chain.execute(() -> {
+                try {
+                    blockLatch.await();
+                } catch (InterruptedException e) {
+                    log.error("ex caught", e);
+                }
+                doneLatch.countDown();
+            });
+        }
+        for (OverflowExecutorChain.Tier tier : chain.getTiers()) {
+            log.info("tier={}", tier);
+        }
+        // tier1: 2 workers and queue size below 3; tier2: 2 workers and 2 queued
+        Assert.assertEquals(5, tiers.get(0).getAdmittedCount());
+        Assert.assertEquals(4, tiers.get(1).getAdmittedCount());
+        Assert.assertEquals(11, tiers.get(2).getAdmittedCount());
+        Assert.assertEquals(taskCount - 5, tiers.get(0).getOverflowCount());
+        Assert.assertEquals(0, tiers.get(2).getOverflowCount());
+
+        latencyArray.add(2000);
+        chain.execute(doneLatch::countDown);
+        Assert.assertEquals(5, tiers.get(0).getAdmittedCount());
+
+        blockLatch.countDown();
+        Assert.assertTrue(doneLatch.await(5, TimeUnit.SECONDS));
+        chain.shutdown();
+        Assert.assertTrue(chain.awaitTermination(5, TimeUnit.SECONDS));
+        Assert.assertTrue(chain.isTerminated());
+    }
+
+    @Test
+    public void testLastTierExecutedOnce() throws InterruptedException {
+        ExtendedThreadPoolExecutor tier1Executor = new ExtendedThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new SynchronousQueue<>());
+        ExtendedThreadPoolExecutor tier2Executor = new ExtendedThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(1));
+        List<OverflowExecutorChain.Tier> tiers = Arrays.asList(
+                new OverflowExecutorChain.Tier("tier1", tier1Executor, null),
+                new OverflowExecutorChain.Tier("tier2", tier2Executor, (command, executor) -> false)
+        );
+        OverflowExecutorChain chain = new OverflowExecutorChain(tiers);
+        CountDownLatch blockLatch = new CountDownLatch(1);
+        Runnable blockingTask = () -> {
+            try {
+                blockLatch.await();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+        };
+        for (int i = 0; i < 3; i++) {
+            chain.execute(blockingTask);
+        }
+        try {
+            chain.execute(blockingTask);
+            Assert.fail("expected rejection");
+        } catch (RejectedExecutionException e) {
+            log.info("rejected: {}", e.toString());
+        }
+        // the last tier's admission predicate is ignored, every task is offered to it once
+        Assert.assertEquals(1, tiers.get(0).getAdmittedCount());
+        Assert.assertEquals(3, tiers.get(0).getOverflowCount());
+        Assert.assertEquals(2, tiers.get(1).getAdmittedCount());
+        Assert.assertEquals(1, tiers.get(1).getOverflowCount());
+        Assert.assertEquals(1, tier2Executor.getRejectedTaskCount(RejectedExecutionCause.QUEUE_FULL));
+
+        blockLatch.countDown();
+        chain.shutdown();
+        Assert.assertTrue(chain.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@linkplain ParallelFanOut} test cases.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class ParallelFanOutTest {
+
+    private final ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+            .setCorePoolSize(4).setMaxPoolSize(4)
+            .setWorkQueueCapacity(100)
+            .build());
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testInvokeAllBounded() throws Exception {
+        ParallelFanOut fanOut = new ParallelFanOut(executor, 2);
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            int value = i;
+            tasks.add(() -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                inFlight.decrementAndGet();
+                return value;
+            });
+        }
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7, 8, 9), fanOut.invokeAll(tasks));
+        Assert.assertTrue(maxInFlight.get() <= 2);
+    }
+
+    @Test
+    public void testInvokeAllFailFast() throws Exception {
+        ParallelFanOut fanOut = new ParallelFanOut(executor, 2);
+        AtomicInteger started = new AtomicInteger();
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            started.incrementAndGet();
+            firstStarted.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return 0;
+        });
+        tasks.add(() -> {
+            started.incrementAndGet();
+            // fail after the first one started, so it's interrupted rather than removed from work queue
+            firstStarted.await();
+            throw new IllegalStateException("failed");
+        });
+        for (int i = 0; i < 8; i++) {
+            tasks.add(() -> started.incrementAndGet());
+        }
+        try {
+            fanOut.invokeAll(tasks);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, started.get());
+    }
+
+    @Test
+    public void testInvokeQuorum() throws Exception {
+        ParallelFanOut fanOut = new ParallelFanOut(executor, 3);
+        CountDownLatch interrupted = new CountDownLatch(2);
+        List<Callable<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            tasks.add(() -> {
+                try {
+                    Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return "slow";
+            });
+        }
+        tasks.add(() -> {
+            throw new IllegalStateException("failed");
+        });
+        tasks.add(() -> "fast1");
+        tasks.add(() -> "fast2");
+        List<String> results = fanOut.invokeQuorum(tasks, 2);
+        Assert.assertEquals(Arrays.asList("fast1", "fast2"), results);
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+
+        // quorum unreachable
+        try {
+            fanOut.invokeQuorum(tasks.subList(2, 5), 3);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        ParallelFanOut fanOut = new ParallelFanOut(executor, 2);
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            tasks.add(() -> {
+                gate.await();
+                return 0;
+            });
+        }
+        try {
+            fanOut.invokeAll(tasks, 50, TimeUnit.MILLISECONDS);
+            Assert.fail();
+        } catch (TimeoutException e) {
+            log.info("timeout, {}", e.getMessage());
+        }
+        Assert.assertEquals(0, executor.getQueue().size());
+    }
+
+}
@@ -0,0 +1,190 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@linkplain ResizableBlockingQueue} test cases.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class ResizableBlockingQueueTest {
+
+    @Test
+    public void testOfferAndPoll() {
+        ResizableBlockingQueue<Integer> queue = new ResizableBlockingQueue<>(2);
+        Assert.assertTrue(queue.offer(1));
+        Assert.assertTrue(queue.offer(2));
+        Assert.assertFalse(queue.offer(3));
+        Assert.assertEquals(0, queue.remainingCapacity());
+        Assert.assertEquals(Integer.valueOf(1), queue.peek());
+        Assert.assertEquals(Integer.valueOf(1), queue.poll());
+        Assert.assertEquals(Integer.valueOf(2), queue.poll());
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test
+    public void testSetCapacity() {
+        ResizableBlockingQueue<Integer> queue = new ResizableBlockingQueue<>(2);
+        queue.offer(1);
+        queue.offer(2);
+        queue.setCapacity(3);
+        Assert.assertTrue(queue.offer(3));
+        Assert.assertFalse(queue.offer(4));
+
+        // lowered below size, elements are kept
+        queue.setCapacity(1);
+        Assert.assertEquals(3, queue.size());
+        Assert.assertEquals(0, queue.remainingCapacity());
+        Assert.assertFalse(queue.offer(4));
+        queue.poll();
+        queue.poll();
+        Assert.assertFalse(queue.offer(4));
+        queue.poll();
+        Assert.assertTrue(queue.offer(4));
+    }
+
+    @Test
+    public void testBlockedPutReleasedByRaisingCapacity() throws InterruptedException {
+        ResizableBlockingQueue<Integer> queue = new ResizableBlockingQueue<>(1);
+        queue.put(1);
+        CountDownLatch putDone = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                queue.put(2);
+                putDone.countDown();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+        });
+        producer.start();
+        Assert.assertFalse(putDone.await(50, TimeUnit.MILLISECONDS));
+        queue.setCapacity(2);
+        Assert.assertTrue(putDone.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, queue.size());
+        Assert.assertFalse(queue.offer(3, 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testBlockedPutReleasedByTakeAfterShrink() throws InterruptedException {
+        ResizableBlockingQueue<Integer> queue = new ResizableBlockingQueue<>(3);
+        queue.put(1);
+        queue.put(2);
+        queue.put(3);
+        queue.setCapacity(2);
+        CountDownLatch putDone = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                queue.put(4);
+                putDone.countDown();
+            } catch (InterruptedException e) {
+                log.error("ex caught", e);
+            }
+        });
+        producer.start();
+        Assert.assertEquals(Integer.valueOf(1), queue.take());
+        Assert.assertFalse(putDone.await(50, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(Integer.valueOf(2), queue.take());
+        Assert.assertTrue(putDone.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(Arrays.asList(3, 4), Arrays.asList(queue.toArray(new Integer[0])));
+    }
+
+    @Test
+    public void testRemoveDrainAndIterator() {
+        ResizableBlockingQueue<Integer> queue = new ResizableBlockingQueue<>(10);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(i);
+        }
+        Assert.assertTrue(queue.remove(2));
+        Assert.assertFalse(queue.remove(2));
+        Assert.assertTrue(queue.contains(3));
+        Iterator<Integer> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next() == 3) {
+                iterator.remove();
+            }
+        }
+        Assert.assertEquals("[0, 1, 4]", queue.toString());
+        List<Integer> drained = new ArrayList<>();
+        Assert.assertEquals(2, queue.drainTo(drained, 2));
+        Assert.assertEquals(Arrays.asList(0, 1), drained);
+        queue.clear();
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertTrue(queue.offer(5));
+        Assert.assertEquals(Integer.valueOf(5), queue.poll());
+    }
+
+    @Test
+    public void testOfferAll() throws InterruptedException {
+        ResizableBlockingQueue<Integer> queue = new ResizableBlockingQueue<>(4);
+        Assert.assertTrue(queue.offer(0));
+        List<Integer> elements = Arrays.asList(1, 2, 3, 4, 5);
+        Assert.assertEquals(3, queue.offerAll(elements, 0));
+        Assert.assertEquals(0, queue.offerAll(elements, 3));
+        Assert.assertEquals(4, queue.size());
+        List<Integer> drained = new ArrayList<>();
+        queue.drainTo(drained);
+        Assert.assertEquals(Arrays.asList(0, 1, 2, 3), drained);
+        Assert.assertEquals(2, queue.offerAll(elements, 3));
+        Assert.assertEquals(0, queue.offerAll(elements, 5));
+        Assert.assertEquals(Integer.valueOf(4), queue.take());
+        Assert.assertEquals(Integer.valueOf(5), queue.take());
+        Assert.assertTrue(queue.offer(6));
+        Assert.assertEquals(Integer.valueOf(6), queue.poll());
+
+        try {
+            queue.offerAll(Arrays.asList(7, null), 0);
+            Assert.fail();
+        } catch (NullPointerException e) {
+            Assert.assertTrue(queue.isEmpty());
+        }
+    }
+
+
+    @Test
+    public void testHeadWaitNanos() throws InterruptedException {
+        ResizableBlockingQueue<Integer> queue = new ResizableBlockingQueue<>(4);
+        Assert.assertEquals(0L, queue.getHeadWaitNanos());
+        queue.offer(1);
+        Thread.sleep(30);
+        queue.offer(2);
+        queue.offer(3);
+        Assert.assertTrue(queue.getHeadWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(30));
+        // next head is the wait of 2, not of the newest one
+        Thread.sleep(20);
+        Assert.assertEquals(Integer.valueOf(1), queue.poll());
+        long waitNanos = queue.getHeadWaitNanos();
+        Assert.assertTrue(waitNanos >= TimeUnit.MILLISECONDS.toNanos(20));
+        Assert.assertTrue(waitNanos < TimeUnit.MILLISECONDS.toNanos(30 + 20));
+        // removed head doesn't stay waiting
+        Assert.assertTrue(queue.remove(2));
+        Assert.assertTrue(queue.remove(3));
+        Assert.assertEquals(0L, queue.getHeadWaitNanos());
+        Assert.assertEquals(1, queue.offerAll(Arrays.asList(4), 0));
+        Assert.assertTrue(queue.getHeadWaitNanos() < TimeUnit.MILLISECONDS.toNanos(20));
+    }
+}
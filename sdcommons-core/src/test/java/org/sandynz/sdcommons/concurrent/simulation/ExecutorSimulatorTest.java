@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent.simulation;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Assert;
+import org.junit.Test;
+import org.sandynz.sdcommons.concurrent.ExecutorAddWorkerEagerStrategy;
+import org.sandynz.sdcommons.concurrent.ExecutorAddWorkerLatencyStrategy;
+import org.sandynz.sdcommons.concurrent.ExecutorAddWorkerOriginalStrategy;
+import org.sandynz.sdcommons.concurrent.ExecutorAddWorkerStrategy;
+import org.sandynz.sdcommons.concurrent.ExecutorConstructionCfg;
+import org.sandynz.sdcommons.concurrent.ThreadPoolExecutor;
+
+/**
+ * {@linkplain ExecutorSimulator} test cases.
+ *
+ * @author sandynz
+ */
+@Slf4j
+public class ExecutorSimulatorTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static ExecutorConstructionCfg cfg(int corePoolSize, int maxPoolSize, int workQueueCapacity, ExecutorAddWorkerStrategy strategy) {
+        return ExecutorConstructionCfg.builder().setCorePoolSize(corePoolSize).setMaxPoolSize(maxPoolSize)
+                .setKeepAliveTime(10L).setUnit(TimeUnit.MILLISECONDS)
+                .setWorkQueueCapacity(workQueueCapacity).setAddWorkerStrategy(strategy).build();
+    }
+
+    @Test
+    public void testDeterministic() {
+        SimulationTrace trace = SimulationTrace.poisson(7L, 10_000, 2_000D, 3 * MS);
+        SimulationReport report1 = new ExecutorSimulator(cfg(4, 16, 0, new ExecutorAddWorkerEagerStrategy())).run(trace);
+        SimulationReport report2 = new ExecutorSimulator(cfg(4, 16, 0, new ExecutorAddWorkerEagerStrategy())).run(trace);
+        log.info("report:\n{}", report1.format());
+        Assert.assertEquals(report1.toString(), report2.toString());
+        Assert.assertEquals(10_000, report1.getCompletedTaskCount());
+        Assert.assertEquals(0, report1.getRejectedTaskCount());
+        Assert.assertTrue(report1.getLargestWorkerCount() <= 16);
+        Assert.assertTrue(report1.getWorkersRetired() > 0);
+    }
+
+    @Test
+    public void testEagerVsOriginal() {
+        SimulationTrace trace = new SimulationTrace().addBurst(0L, 100, 10 * MS);
+        SimulationReport original = new ExecutorSimulator(cfg(2, 8, 0, new ExecutorAddWorkerOriginalStrategy())).run(trace);
+        SimulationReport eager = new ExecutorSimulator(cfg(2, 8, 0, new ExecutorAddWorkerEagerStrategy())).run(trace);
+        log.info("original:\n{}\neager:\n{}", original.format(), eager.format());
+        Assert.assertEquals(2, original.getLargestWorkerCount());
+        Assert.assertEquals(8, eager.getLargestWorkerCount());
+        Assert.assertEquals(500 * MS, original.getDurationNanos());
+        Assert.assertEquals(130 * MS, eager.getDurationNanos());
+        Assert.assertTrue(eager.getQueueWaitP99Nanos() < original.getQueueWaitP99Nanos());
+        Assert.assertEquals(100, eager.getCompletedTaskCount());
+    }
+
+    @Test
+    public void testRejection() {
+        SimulationTrace trace = new SimulationTrace().addBurst(0L, 3, MS).add(5 * MS, MS);
+        SimulationReport report = new ExecutorSimulator(cfg(1, 1, 1, null)).run(trace);
+        Assert.assertEquals(1, report.getRejectedTaskCount());
+        Assert.assertEquals(3, report.getCompletedTaskCount());
+        Assert.assertEquals(1, report.getLargestQueueSize());
+        Assert.assertEquals(MS, report.getQueueWaitMaxNanos());
+        Assert.assertEquals(0L, SimulationReport.percentile(new long[0], 99D));
+        Assert.assertEquals(3L, SimulationReport.percentile(new long[]{1L, 2L, 3L}, 99.9D));
+        Assert.assertEquals(2L, SimulationReport.percentile(new long[]{1L, 2L, 3L}, 50D));
+    }
+
+    @Test
+    public void testSynchronousQueue() {
+        // 2 workers are kept idle between the bursts, tasks are handed to them rather than rejected
+        SimulationTrace trace = new SimulationTrace().addBurst(0L, 2, MS).addBurst(5 * MS, 2, MS).addBurst(10 * MS, 3, MS);
+        ExecutorConstructionCfg cfg = ExecutorConstructionCfg.builder().setCorePoolSize(2).setMaxPoolSize(2)
+                .setWorkQueue(new SynchronousQueue<>()).build();
+        SimulationReport report = new ExecutorSimulator(cfg).run(trace);
+        Assert.assertEquals(6, report.getCompletedTaskCount());
+        Assert.assertEquals(1, report.getRejectedTaskCount());
+        Assert.assertEquals(2, report.getWorkersAdded());
+        Assert.assertEquals(0, report.getLargestQueueSize());
+        Assert.assertEquals(0L, report.getQueueWaitMaxNanos());
+    }
+
+    @Test
+    public void testTimedOfferAndWorkQueue() {
+        // queues by timed offer, and reads capacity from work queue
+        ExecutorAddWorkerStrategy strategy = new ExecutorAddWorkerOriginalStrategy() {
+            @Override
+            public boolean tryAddWorker(Runnable command, ThreadPoolExecutor.ExecutorExtContext ctx) {
+                if (ctx.getWorkerCount() < ctx.getCorePoolSize()) {
+                    return ctx.addWorker(command, true);
+                }
+                try {
+                    return ctx.getWorkQueue().remainingCapacity() > 0 && ctx.offerTask(command, 1L, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        };
+        SimulationTrace trace = new SimulationTrace().addBurst(0L, 4, MS);
+        SimulationReport report = new ExecutorSimulator(cfg(1, 1, 2, strategy)).run(trace);
+        Assert.assertEquals(3, report.getCompletedTaskCount());
+        Assert.assertEquals(1, report.getRejectedTaskCount());
+        Assert.assertEquals(2, report.getLargestQueueSize());
+    }
+
+    @Test
+    public void testLatencyStrategy() {
+        // one task per ms, each takes 4 ms, so one core worker falls behind
+        SimulationTrace trace = new SimulationTrace();
+        for (int i = 0; i < 200; i++) {
+            trace.add(i * MS, 4 * MS);
+        }
+        ExecutorAddWorkerLatencyStrategy strategy = new ExecutorAddWorkerLatencyStrategy(5L, 1L, 2L, TimeUnit.MILLISECONDS);
+        SimulationReport report = new ExecutorSimulator(cfg(1, 8, 0, strategy)).run(trace);
+        log.info("latency:\n{}", report.format());
+        Assert.assertTrue(report.getLargestWorkerCount() >= 4);
+        Assert.assertTrue(report.getQueueWaitP50Nanos() < 100 * MS);
+        Assert.assertEquals(200, report.getCompletedTaskCount());
+    }
+
+    @Test
+    public void testEveryContextMethodOverridden() {
+        // methods not overridden would act on the placeholder executor
+        for (Method method : ThreadPoolExecutor.ExecutorExtContext.class.getDeclaredMethods()) {
+            int modifiers = method.getModifiers();
+            if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers) || method.isSynthetic()) {
+                continue;
+            }
+            try {
+                VirtualExecutorContext.class.getDeclaredMethod(method.getName(), method.getParameterTypes());
+            } catch (NoSuchMethodException e) {
+                Assert.fail("not overridden by VirtualExecutorContext: " + method);
+            }
+        }
+    }
+
+}
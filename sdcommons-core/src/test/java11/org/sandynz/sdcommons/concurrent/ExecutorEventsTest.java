@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.concurrent;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@linkplain ExecutorEvents} test cases, run on Java 11 or later against the multi-release class.
+ *
+ * @author sandynz
+ */
+public class ExecutorEventsTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutorEventsTest.class);
+
+    private static final String EVENT_PREFIX = "org.sandynz.sdcommons.concurrent.";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testRecording() throws Exception {
+        Path file = new File(temporaryFolder.getRoot(), "executor-events.jfr").toPath();
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENT_PREFIX + "WorkerAdded");
+            recording.enable(EVENT_PREFIX + "WorkerExited");
+            recording.enable(EVENT_PREFIX + "TaskRejected");
+            recording.enable(EVENT_PREFIX + "QueueFull");
+            // TaskSampled is left disabled
+            recording.start();
+
+            ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder()
+                    .setName("events")
+                    .setCorePoolSize(1).setMaxPoolSize(1)
+                    .setWorkQueueCapacity(1)
+                    .build());
+            CountDownLatch gate = new CountDownLatch(1);
+            executor.execute(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    log.error("ex caught", e);
+                }
+            });
+            executor.execute(() -> {
+            });
+            try {
+                executor.execute(() -> {
+                });
+                Assert.fail("queue full");
+            } catch (RejectedExecutionException e) {
+                log.info("expected: {}", e.getMessage());
+            }
+            gate.countDown();
+            executor.shutdown();
+            Assert.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Map<String, RecordedEvent> eventsByName = new HashMap<>();
+        for (RecordedEvent event : events) {
+            String name = event.getEventType().getName();
+            if (name.startsWith(EVENT_PREFIX) && "events".equals(event.getString("pool"))) {
+                log.info("event: {}", event);
+                eventsByName.putIfAbsent(name.substring(EVENT_PREFIX.length()), event);
+            }
+        }
+        Assert.assertEquals(1, eventsByName.get("WorkerAdded").getInt("poolSize"));
+        Assert.assertEquals(0, eventsByName.get("WorkerExited").getInt("poolSize"));
+        Assert.assertFalse(eventsByName.get("WorkerExited").getBoolean("completedAbruptly"));
+        Assert.assertEquals(1, eventsByName.get("QueueFull").getInt("queueSize"));
+        Assert.assertEquals(RejectedExecutionCause.QUEUE_FULL.name(), eventsByName.get("TaskRejected").getString("cause"));
+        Assert.assertFalse(eventsByName.containsKey("TaskSampled"));
+    }
+
+}
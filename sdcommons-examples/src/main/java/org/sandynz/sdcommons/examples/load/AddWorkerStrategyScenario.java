@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.examples.load;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.sandynz.sdcommons.concurrent.ExecutorAddWorkerEagerStrategy;
+import org.sandynz.sdcommons.concurrent.ExecutorAddWorkerOriginalStrategy;
+import org.sandynz.sdcommons.concurrent.ExecutorAddWorkerStrategy;
+import org.sandynz.sdcommons.concurrent.ExecutorConstructionCfg;
+import org.sandynz.sdcommons.concurrent.ExtendedThreadPoolExecutor;
+import org.sandynz.sdcommons.concurrent.ThreadFactoryImpl;
+
+/**
+ * {@link ExecutorAddWorkerOriginalStrategy} vs {@link ExecutorAddWorkerEagerStrategy}, on I/O bound tasks with a large work queue.
+ * <p>
+ * Original strategy doesn't add non-core worker until work queue is full, so queued tasks wait behind core workers;
+ * eager strategy adds worker as soon as tasks are queued.
+ *
+ * @author sandynz
+ */
+public class AddWorkerStrategyScenario {
+
+    private static final double RATE_PER_SECOND = 800D;
+    private static final long TASK_MILLIS = 5L;
+
+    public static void main(String[] args) throws Exception {
+        run(LoadScenarios.durationSeconds(args), System.out);
+    }
+
+    static void run(int seconds, PrintStream out) throws InterruptedException {
+        out.printf("#### add worker strategy: %.0f requests/s, %d ms I/O per task, core 2, max 32, queue capacity 10000%n%n",
+                RATE_PER_SECOND, TASK_MILLIS);
+        run(seconds, out, "original", new ExecutorAddWorkerOriginalStrategy());
+        run(seconds, out, "eager", new ExecutorAddWorkerEagerStrategy());
+    }
+
+    private static void run(int seconds, PrintStream out, String name, ExecutorAddWorkerStrategy strategy) throws InterruptedException {
+        ExtendedThreadPoolExecutor executor = new ExtendedThreadPoolExecutor(ExecutorConstructionCfg.builder().setName(name)
+                .setCorePoolSize(2).setMaxPoolSize(32).setWorkQueueCapacity(10_000)
+                .setThreadFactory(new ThreadFactoryImpl(name + "-", true))
+                .setAddWorkerStrategy(strategy).build());
+        try {
+            OpenLoopLoadGenerator.Result result = new OpenLoopLoadGenerator(RATE_PER_SECOND, seconds, TimeUnit.SECONDS).run(executor, () -> {
+                LoadScenarios.sleep(TASK_MILLIS);
+                return true;
+            });
+            result.print(out, name + " strategy, largest pool size " + executor.getLargestPoolSize());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.examples.load;
+
+import java.io.PrintStream;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.sandynz.sdcommons.base.util.SingleResourceInitializer;
+import org.sandynz.sdcommons.concurrent.ExtendedThreadPoolExecutor;
+
+/**
+ * Cache stampede when a hot entry expires: every request missing the cache loads it from backend, vs only one request reloads it
+ * by {@link SingleResourceInitializer} while others wait for it.
+ * <p>
+ * Backend serves at most {@link #BACKEND_CONCURRENCY} loads concurrently, so a stampede queues loads behind each other.
+ *
+ * @author sandynz
+ */
+public class CacheStampedeScenario {
+
+    private static final double RATE_PER_SECOND = 1000D;
+    private static final long TTL_MILLIS = 200L;
+    private static final long LOAD_MILLIS = 20L;
+    private static final int BACKEND_CONCURRENCY = 2;
+
+    private static class Entry {
+
+        final long expireNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(TTL_MILLIS);
+
+        boolean isExpired() {
+            return System.nanoTime() - expireNanos >= 0;
+        }
+
+    }
+
+    private static class Backend {
+
+        private final Semaphore permits = new Semaphore(BACKEND_CONCURRENCY, true);
+        private final AtomicLong loadCount = new AtomicLong();
+
+        Entry load() {
+            loadCount.incrementAndGet();
+            permits.acquireUninterruptibly();
+            try {
+                LoadScenarios.sleep(LOAD_MILLIS);
+                return new Entry();
+            } finally {
+                permits.release();
+            }
+        }
+
+    }
+
+    public static void main(String[] args) throws Exception {
+        run(LoadScenarios.durationSeconds(args), System.out);
+    }
+
+    static void run(int seconds, PrintStream out) throws InterruptedException {
+        out.printf("#### cache stampede: %.0f requests/s on one key, ttl %d ms, load %d ms, backend concurrency %d%n%n",
+                RATE_PER_SECOND, TTL_MILLIS, LOAD_MILLIS, BACKEND_CONCURRENCY);
+
+        Backend backend = new Backend();
+        Entry[] naiveCache = new Entry[1];
+        run(seconds, out, "no coordination", backend, () -> {
+            Entry entry;
+            synchronized (naiveCache) {
+                entry = naiveCache[0];
+            }
+            if (entry == null || entry.isExpired()) {
+                entry = backend.load();
+                synchronized (naiveCache) {
+                    naiveCache[0] = entry;
+                }
+            }
+            return entry;
+        });
+
+        Backend backend2 = new Backend();
+        SingleResourceInitializer<String, Entry> initializer = new SingleResourceInitializer<>();
+        run(seconds, out, "SingleResourceInitializer", backend2,
+                () -> initializer.initAndGet("hot-key", (key, old) -> backend2.load(), entry -> true, Entry::isExpired));
+    }
+
+    private static void run(int seconds, PrintStream out, String name, Backend backend, Supplier<Entry> cache) throws InterruptedException {
+        ExtendedThreadPoolExecutor clientExecutor = LoadScenarios.newClientExecutor();
+        try {
+            OpenLoopLoadGenerator.Result result = new OpenLoopLoadGenerator(RATE_PER_SECOND, seconds, TimeUnit.SECONDS)
+                    .run(clientExecutor, () -> cache.get() != null);
+            result.print(out, name + ", " + backend.loadCount.get() + " loads from backend");
+        } finally {
+            clientExecutor.shutdownNow();
+        }
+    }
+
+}
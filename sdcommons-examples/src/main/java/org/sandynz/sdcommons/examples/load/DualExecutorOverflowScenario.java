@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.examples.load;
+
+import java.io.PrintStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import org.sandynz.sdcommons.concurrent.DualExecutor;
+import org.sandynz.sdcommons.concurrent.ExtendedThreadPoolExecutor;
+import org.sandynz.sdcommons.concurrent.LightweightAbortPolicy;
+import org.sandynz.sdcommons.concurrent.ThreadFactoryImpl;
+
+/**
+ * Base executor alone vs {@link DualExecutor}, when offered load exceeds capacity of base executor.
+ * <p>
+ * Base executor alone rejects overflowed tasks, {@link DualExecutor} hands them over to spare executor.
+ *
+ * @author sandynz
+ */
+public class DualExecutorOverflowScenario {
+
+    private static final double RATE_PER_SECOND = 600D;
+    private static final long TASK_MILLIS = 10L;
+
+    public static void main(String[] args) throws Exception {
+        run(LoadScenarios.durationSeconds(args), System.out);
+    }
+
+    static void run(int seconds, PrintStream out) throws InterruptedException {
+        out.printf("#### DualExecutor overflow: %.0f requests/s, %d ms I/O per task, base executor 4 threads and queue capacity 16%n%n",
+                RATE_PER_SECOND, TASK_MILLIS);
+        OpenLoopLoadGenerator generator = new OpenLoopLoadGenerator(RATE_PER_SECOND, seconds, TimeUnit.SECONDS);
+
+        ExtendedThreadPoolExecutor base = newBaseExecutor();
+        try {
+            generator.run(base, DualExecutorOverflowScenario::task).print(out, "base executor alone");
+        } finally {
+            base.shutdownNow();
+        }
+
+        base = newBaseExecutor();
+        ExtendedThreadPoolExecutor spare = new ExtendedThreadPoolExecutor(0, 16, 10L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new ThreadFactoryImpl("spare-", true), new LightweightAbortPolicy());
+        DualExecutor dualExecutor = new DualExecutor(base, spare);
+        try {
+            OpenLoopLoadGenerator.Result result = generator.run(dualExecutor, DualExecutorOverflowScenario::task);
+            result.print(out, "DualExecutor, " + spare.getCompletedTaskCount() + " tasks overflowed to spare executor");
+        } finally {
+            dualExecutor.shutdownNow();
+        }
+    }
+
+    private static ExtendedThreadPoolExecutor newBaseExecutor() {
+        return new ExtendedThreadPoolExecutor(4, 4, 10L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(16),
+                new ThreadFactoryImpl("base-", true), new LightweightAbortPolicy());
+    }
+
+    private static boolean task() {
+        LoadScenarios.sleep(TASK_MILLIS);
+        return true;
+    }
+
+}
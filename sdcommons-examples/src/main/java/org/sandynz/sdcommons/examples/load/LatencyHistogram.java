@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.examples.load;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe log-linear latency histogram, in the same spirit of HdrHistogram.
+ * <p>
+ * Values less than 128 are recorded exactly, larger values are recorded with 64 sub-buckets per power of 2,
+ * so relative error is less than 1/64.
+ *
+ * @author sandynz
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_HALF_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_COUNT = SUB_BUCKET_HALF_COUNT << 1;
+    private static final int BUCKET_COUNT = LINEAR_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT;
+
+    private static final double[] PERCENTILES = {0D, 50D, 75D, 90D, 99D, 99.9D, 99.99D, 100D};
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+
+    /**
+     * @param nanos latency, negative value is recorded as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        totalNanos.add(value);
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift);
+        return LINEAR_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (sub - SUB_BUCKET_HALF_COUNT);
+    }
+
+    /**
+     * @return the highest value which is recorded into the same bucket of {@code index}
+     */
+    static long highestValueOf(int index) {
+        if (index < LINEAR_COUNT) {
+            return index;
+        }
+        int shift = (index - LINEAR_COUNT) / SUB_BUCKET_HALF_COUNT + 1;
+        long sub = (index - LINEAR_COUNT) % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return (sub << shift) + (1L << shift) - 1;
+    }
+
+    public long getTotalCount() {
+        return totalCount.sum();
+    }
+
+    public double getMeanNanos() {
+        long count = totalCount.sum();
+        return count == 0 ? 0D : (double) totalNanos.sum() / count;
+    }
+
+    /**
+     * @param percentile percentile in [0, 100]
+     * @return highest equivalent value at {@code percentile}, 0 if nothing recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        return valueAtPercentile(snapshot, total, percentile);
+    }
+
+    private long[] snapshot() {
+        long[] snapshot = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    private static long valueAtPercentile(long[] snapshot, long total, double percentile) {
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100D * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return highestValueOf(i);
+            }
+        }
+        return highestValueOf(snapshot.length - 1);
+    }
+
+    /**
+     * Prints percentile distribution, values in milliseconds, like {@code HdrHistogram#outputPercentileDistribution}.
+     */
+    public void print(PrintStream out, String title) {
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        out.println(title);
+        out.printf("%14s %12s %12s %14s%n", "Value(ms)", "Percentile", "TotalCount", "1/(1-Percentile)");
+        for (double percentile : PERCENTILES) {
+            long value = valueAtPercentile(snapshot, total, percentile);
+            long rank = Math.max(1L, (long) Math.ceil(percentile / 100D * total));
+            String inverse = percentile < 100D ? String.format("%.2f", 100D / (100D - percentile)) : "";
+            out.printf("%14.3f %12.6f %12d %14s%n", value / 1_000_000D, percentile / 100D, total == 0 ? 0L : rank, inverse);
+        }
+        out.printf("#[Mean = %.3f ms, Max = %.3f ms, Total count = %d]%n",
+                getMeanNanos() / 1_000_000D, valueAtPercentile(snapshot, total, 100D) / 1_000_000D, total);
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.examples.load;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import org.sandynz.sdcommons.base.statistic.LeapArray;
+import org.sandynz.sdcommons.base.statistic.StatisticLeapArray;
+import org.sandynz.sdcommons.concurrent.ExtendedThreadPoolExecutor;
+
+/**
+ * Rate limiting by {@link LeapArray} sliding window, offered load is twice of the limit.
+ * <p>
+ * Limited requests fail fast, admitted requests keep low latency, since the limit is under capacity of the backend.
+ * More buckets make the window slide smoother, fewer buckets make it close to a fixed window.
+ *
+ * @author sandynz
+ */
+public class LeapArrayRateLimitScenario {
+
+    private static final double RATE_PER_SECOND = 1000D;
+    private static final long LIMIT_PER_SECOND = 500L;
+    private static final long TASK_MILLIS = 2L;
+
+    /**
+     * Admits at most {@code limit} requests in the sliding window.
+     */
+    private static class SlidingWindowRateLimiter {
+
+        private final StatisticLeapArray<String> window;
+        private final long limit;
+
+        SlidingWindowRateLimiter(int sampleCount, int intervalInMs, long limit) {
+            this.window = new StatisticLeapArray<>(sampleCount, intervalInMs);
+            this.limit = limit;
+        }
+
+        synchronized boolean tryAcquire() {
+            if (window.count() >= limit) {
+                return false;
+            }
+            window.add(1L);
+            return true;
+        }
+
+    }
+
+    public static void main(String[] args) throws Exception {
+        run(LoadScenarios.durationSeconds(args), System.out);
+    }
+
+    static void run(int seconds, PrintStream out) throws InterruptedException {
+        out.printf("#### LeapArray rate limiting: %.0f requests/s, limit %d requests/s, %d ms I/O per admitted request%n%n",
+                RATE_PER_SECOND, LIMIT_PER_SECOND, TASK_MILLIS);
+        run(seconds, out, 2);
+        run(seconds, out, 20);
+    }
+
+    private static void run(int seconds, PrintStream out, int sampleCount) throws InterruptedException {
+        SlidingWindowRateLimiter limiter = new SlidingWindowRateLimiter(sampleCount, 1000, LIMIT_PER_SECOND);
+        ExtendedThreadPoolExecutor clientExecutor = LoadScenarios.newClientExecutor();
+        try {
+            OpenLoopLoadGenerator.Result result = new OpenLoopLoadGenerator(RATE_PER_SECOND, seconds, TimeUnit.SECONDS).run(clientExecutor, () -> {
+                if (!limiter.tryAcquire()) {
+                    return false;
+                }
+                LoadScenarios.sleep(TASK_MILLIS);
+                return true;
+            });
+            long admitted = result.getLatency().getTotalCount();
+            result.print(out, String.format("%d buckets, admitted %.1f requests/s (failed = limited)",
+                    sampleCount, admitted * 1_000_000_000D / result.getElapsedNanos()));
+        } finally {
+            clientExecutor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.examples.load;
+
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import org.sandynz.sdcommons.concurrent.ExtendedThreadPoolExecutor;
+import org.sandynz.sdcommons.concurrent.ThreadFactoryImpl;
+
+/**
+ * Runs all load scenarios, optional argument is duration of every run in seconds.
+ *
+ * @author sandynz
+ */
+public class LoadScenarios {
+
+    static final int DEFAULT_DURATION_SECONDS = 5;
+
+    public static void main(String[] args) throws Exception {
+        int seconds = durationSeconds(args);
+        AddWorkerStrategyScenario.run(seconds, System.out);
+        DualExecutorOverflowScenario.run(seconds, System.out);
+        LeapArrayRateLimitScenario.run(seconds, System.out);
+        CacheStampedeScenario.run(seconds, System.out);
+    }
+
+    static int durationSeconds(String[] args) {
+        return args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_DURATION_SECONDS;
+    }
+
+    /**
+     * @return executor which never queues and never rejects, used to send synchronous requests in open loop
+     */
+    static ExtendedThreadPoolExecutor newClientExecutor() {
+        return new ExtendedThreadPoolExecutor(0, Integer.MAX_VALUE, 10L, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                new ThreadFactoryImpl("client-", true));
+    }
+
+    /**
+     * Simulates blocking I/O.
+     */
+    static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
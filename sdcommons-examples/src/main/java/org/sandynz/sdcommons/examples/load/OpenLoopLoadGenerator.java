@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.examples.load;
+
+import java.io.PrintStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Open-loop load generator, sends requests at a constant rate whatever how slow the target is.
+ * <p>
+ * Latency is measured from the intended start time of every request in the schedule, not from the time it's really sent,
+ * so stalls of target or of the generator itself are not hidden by coordinated omission.
+ * Latency from the time it's really sent is recorded too, as service latency, to show the difference.
+ *
+ * @author sandynz
+ */
+public class OpenLoopLoadGenerator {
+
+    private static final long DEFAULT_DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30L);
+
+    private final double ratePerSecond;
+    private final long durationNanos;
+    private final long drainTimeoutNanos;
+
+    /**
+     * Accepted requests are waited for at most 30 seconds after the last one is sent.
+     *
+     * @throws IllegalArgumentException if {@code ratePerSecond} or {@code duration} is not positive
+     */
+    public OpenLoopLoadGenerator(double ratePerSecond, long duration, TimeUnit unit) {
+        this(ratePerSecond, unit.toNanos(duration), DEFAULT_DRAIN_TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param drainTimeout how long to wait for accepted requests after the last one is sent, the others are reported as incomplete
+     * @throws IllegalArgumentException if {@code ratePerSecond} or {@code duration} is not positive, or {@code drainTimeout} is negative
+     */
+    public OpenLoopLoadGenerator(double ratePerSecond, long duration, long drainTimeout, TimeUnit unit) {
+        if (ratePerSecond <= 0) {
+            throw new IllegalArgumentException("ratePerSecond le 0");
+        }
+        if (duration <= 0) {
+            throw new IllegalArgumentException("duration le 0");
+        }
+        if (drainTimeout < 0) {
+            throw new IllegalArgumentException("drainTimeout lt 0");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.durationNanos = unit.toNanos(duration);
+        this.drainTimeoutNanos = unit.toNanos(drainTimeout);
+    }
+
+    /**
+     * Sends requests to {@code target}, waits for accepted requests to complete until drain timeout.
+     * Requests not completed by then, e.g. dropped by target, are reported as incomplete, and ignored if they complete later.
+     *
+     * @param target    requests are submitted to it, {@link RejectedExecutionException} is counted as rejected
+     * @param operation request, false or exception is counted as failed, and its latency is not recorded
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Result run(Executor target, BooleanSupplier operation) throws InterruptedException {
+        Result result = new Result();
+        double intervalNanos = 1_000_000_000D / ratePerSecond;
+        long requestCount = (long) (durationNanos / intervalNanos);
+        long startNanos = System.nanoTime();
+        for (long i = 0; i < requestCount; i++) {
+            long intendedNanos = startNanos + (long) (i * intervalNanos);
+            long now;
+            while ((now = System.nanoTime()) < intendedNanos) {
+                LockSupport.parkNanos(intendedNanos - now);
+            }
+            long sentNanos = now;
+            try {
+                target.execute(() -> {
+                    if (result.closed) {
+                        return;
+                    }
+                    boolean succeeded;
+                    try {
+                        succeeded = operation.getAsBoolean();
+                    } catch (RuntimeException e) {
+                        succeeded = false;
+                    }
+                    long endNanos = System.nanoTime();
+                    if (result.closed) {
+                        return;
+                    }
+                    if (succeeded) {
+                        result.latency.record(endNanos - intendedNanos);
+                        result.serviceLatency.record(endNanos - sentNanos);
+                    } else {
+                        result.failed.increment();
+                    }
+                    result.completed.increment();
+                });
+                result.sent++;
+            } catch (RejectedExecutionException e) {
+                result.rejected++;
+            }
+        }
+        long drainDeadline = System.nanoTime() + drainTimeoutNanos;
+        while (result.completed.sum() < result.sent && System.nanoTime() - drainDeadline < 0L) {
+            Thread.sleep(10L);
+        }
+        result.closed = true;
+        result.incomplete = result.sent - result.completed.sum();
+        result.elapsedNanos = System.nanoTime() - startNanos;
+        return result;
+    }
+
+    public static class Result {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LatencyHistogram serviceLatency = new LatencyHistogram();
+        private final LongAdder completed = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private long sent;
+        private long rejected;
+        private long incomplete;
+        private long elapsedNanos;
+        /**
+         * Set on drain timeout, requests completing later are not recorded.
+         */
+        private volatile boolean closed;
+
+        /**
+         * @return latency from intended start time, free of coordinated omission
+         */
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        /**
+         * @return latency from the time request is really sent
+         */
+        public LatencyHistogram getServiceLatency() {
+            return serviceLatency;
+        }
+
+        public long getSent() {
+            return sent;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getFailed() {
+            return failed.sum();
+        }
+
+        /**
+         * @return number of accepted requests not completed by drain timeout
+         */
+        public long getIncomplete() {
+            return incomplete;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public void print(PrintStream out, String title) {
+            out.printf("==== %s: sent %d, rejected %d, failed %d, incomplete %d, elapsed %.1f s%n",
+                    title, sent, rejected, failed.sum(), incomplete, elapsedNanos / 1_000_000_000D);
+            latency.print(out, "latency from intended start:");
+            out.printf("service latency p99 %.3f ms, max %.3f ms%n%n",
+                    serviceLatency.getValueAtPercentile(99D) / 1_000_000D, serviceLatency.getValueAtPercentile(100D) / 1_000_000D);
+        }
+
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.examples.load;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@linkplain LatencyHistogram} test cases.
+ *
+ * @author sandynz
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (long value : new long[]{0L, 1L, 127L, 128L, 129L, 1_000L, 123_456_789L, Long.MAX_VALUE >> 1}) {
+            long highest = LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(value));
+            Assert.assertTrue(value + " " + highest, highest >= value);
+            Assert.assertTrue(value + " " + highest, highest - value <= value / 64);
+        }
+        Assert.assertEquals(127L, LatencyHistogram.highestValueOf(127));
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0L, histogram.getValueAtPercentile(99D));
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-1L);
+        Assert.assertEquals(101L, histogram.getTotalCount());
+        Assert.assertEquals(0L, histogram.getValueAtPercentile(0D));
+        Assert.assertEquals(50L, histogram.getValueAtPercentile(50D));
+        Assert.assertEquals(100L, histogram.getValueAtPercentile(100D));
+        Assert.assertEquals(50D, histogram.getMeanNanos(), 0.01D);
+    }
+
+}
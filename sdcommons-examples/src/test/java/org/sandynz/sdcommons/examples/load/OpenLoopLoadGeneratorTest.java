@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sandynz.sdcommons.examples.load;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * {@linkplain OpenLoopLoadGenerator} test cases.
+ *
+ * @author sandynz
+ */
+public class OpenLoopLoadGeneratorTest {
+
+    @Test(timeout = 10_000)
+    public void testDrainTimeout() throws InterruptedException {
+        // every other accepted request is dropped by target
+        Executor target = new Executor() {
+            private int count;
+
+            @Override
+            public synchronized void execute(Runnable command) {
+                if (count++ % 2 == 0) {
+                    command.run();
+                }
+            }
+        };
+        OpenLoopLoadGenerator generator = new OpenLoopLoadGenerator(100D, 100L, 100L, TimeUnit.MILLISECONDS);
+        OpenLoopLoadGenerator.Result result = generator.run(target, () -> true);
+        Assert.assertEquals(10, result.getSent());
+        Assert.assertEquals(5, result.getIncomplete());
+        Assert.assertEquals(5, result.getLatency().getTotalCount());
+        Assert.assertTrue(result.getElapsedNanos() >= TimeUnit.MILLISECONDS.toNanos(100L));
+    }
+
+}